@@ -0,0 +1,90 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.format;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.patriot_framework.virtual_smart_home.house.device.Fireplace;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding of device listings in every {@link MediaFormat}.
+ *
+ * Bodies are written and read by one {@code ObjectMapper} with the factory of the format,
+ * as {@link NegotiatedJacksonDataFormat} does. The encoded size per device is printed
+ * when the trial starts, as it doesn't depend on time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MediaFormatBenchmark {
+
+    @Param({"JSON", "CBOR", "SMILE"})
+    private MediaFormat format;
+
+    @Param({"1", "1000"})
+    private int deviceCount;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private Fireplace[] devices;
+    private byte[] encoded;
+
+    @Setup
+    public void setup() throws IOException {
+        devices = new Fireplace[deviceCount];
+        for (int i = 0; i < deviceCount; i++) {
+            devices[i] = new Fireplace("fireplace" + i);
+            devices[i].setEnabled(i % 2 == 0);
+        }
+        encoded = encode();
+        System.out.printf("%n%s: %d bytes per device%n", format, encoded.length / deviceCount);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream(encoded == null ? 64 : encoded.length);
+        try (JsonGenerator generator = format.getFactory().createGenerator(stream)) {
+            mapper.writeValue(generator, devices);
+        }
+        return stream.toByteArray();
+    }
+
+    @Benchmark
+    public Fireplace[] decode() throws IOException {
+        try (JsonParser parser = format.getFactory().createParser(encoded)) {
+            return mapper.readValue(parser, Fireplace[].class);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.house;
+
+import io.patriot_framework.virtual_smart_home.house.device.Actuator;
+import io.patriot_framework.virtual_smart_home.house.device.Device;
+import io.patriot_framework.virtual_smart_home.house.device.Fireplace;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Benchmarks of {@code House} operations on houses of various sizes and storages.
+ *
+ * Thread count of the non-grouped benchmarks is controlled by the JMH {@code -t} option,
+ * e.g. {@code mvn -Pbenchmarks test-compile exec:exec -Djmh.include=HouseBenchmark -Djmh.args="-t 8"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class HouseBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int deviceCount;
+
+    @Param({"INDEXED", "COMPACT"})
+    private HouseStorage storage;
+
+    private House house;
+    private String[] labels;
+    private Device[] devices;
+
+    @Setup
+    public void setup() {
+        house = new House("benchmark", storage);
+        labels = new String[deviceCount];
+        devices = new Device[deviceCount];
+        for (int i = 0; i < deviceCount; i++) {
+            labels[i] = "fireplace" + i;
+            devices[i] = new Fireplace(labels[i]);
+            house.addDevice(labels[i], devices[i]);
+        }
+    }
+
+    /**
+     * Per-thread source of labels that are not present in the house.
+     */
+    @State(Scope.Thread)
+    public static class FreshLabels {
+
+        private static final AtomicInteger THREADS = new AtomicInteger();
+        private final String prefix = "fresh" + THREADS.getAndIncrement() + "-";
+        private final String[] labels = new String[1024];
+        private final Fireplace[] devices = new Fireplace[labels.length];
+        private int next;
+
+        @Setup
+        public void setup() {
+            for (int i = 0; i < labels.length; i++) {
+                labels[i] = prefix + i;
+                devices[i] = new Fireplace(labels[i]);
+            }
+        }
+
+        int next() {
+            next = (next + 1) % labels.length;
+            return next;
+        }
+    }
+
+    /**
+     * Read/write mix of {@link #mixed}.
+     */
+    @State(Scope.Benchmark)
+    public static class ReadMix {
+
+        /**
+         * Percentage of reads, the rest are updates.
+         */
+        @Param({"100", "90", "50"})
+        private int readPercent;
+    }
+
+    private int randomIndex() {
+        return ThreadLocalRandom.current().nextInt(deviceCount);
+    }
+
+    @Benchmark
+    public Device getDevice() {
+        return house.getDevice(labels[randomIndex()]);
+    }
+
+    @Benchmark
+    public Fireplace getDeviceOfType() {
+        return house.getDevice(labels[randomIndex()], Fireplace.class);
+    }
+
+    @Benchmark
+    public Device getDevicesOfTypeLookup() {
+        return house.getDevicesOfType(Actuator.class).get(labels[randomIndex()]);
+    }
+
+    @Benchmark
+    public void getDevicesOfTypeIteration(Blackhole blackhole) {
+        for (Map.Entry<String, Device> entry : house.getDevicesOfType(Fireplace.class).entrySet()) {
+            blackhole.consume(entry);
+        }
+    }
+
+    @Benchmark
+    public void addAndRemoveDevice(FreshLabels fresh) {
+        final int i = fresh.next();
+        house.addDevice(fresh.labels[i], fresh.devices[i]);
+        house.removeDevice(fresh.labels[i]);
+    }
+
+    @Benchmark
+    public Device mixed(ReadMix mix) {
+        final int i = randomIndex();
+        if (ThreadLocalRandom.current().nextInt(100) < mix.readPercent) {
+            return house.getDevice(labels[i], Fireplace.class);
+        }
+        house.updateDevice(labels[i], devices[i]);
+        return devices[i];
+    }
+
+    @Benchmark
+    @Group("readersAndWriter")
+    @GroupThreads(3)
+    public Device groupRead() {
+        return house.getDevice(labels[randomIndex()], Fireplace.class);
+    }
+
+    @Benchmark
+    @Group("readersAndWriter")
+    @GroupThreads(1)
+    public void groupWrite() {
+        final int i = randomIndex();
+        house.updateDevice(labels[i], devices[i]);
+    }
+}
@@ -0,0 +1,350 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.patriot_framework.virtual_smart_home.house.device.Actuator;
+import io.patriot_framework.virtual_smart_home.house.device.Device;
+import io.patriot_framework.virtual_smart_home.house.device.Fireplace;
+import io.patriot_framework.virtual_smart_home.route.AbstractDeviceRoute;
+import io.patriot_framework.virtual_smart_home.route.FireplaceRoute;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load generator driving the device REST API of a running local instance
+ *
+ * Requests arrive at a fixed average {@code rate} regardless of how fast the instance answers,
+ * at most {@code connections} of them in flight. Latency is measured from the time a request
+ * was due, so queueing in the generator counts as well and stalls aren't hidden. Every device
+ * type gets {@code devices} devices before the run and requests are spread over the types
+ * evenly. Options are passed as {@code key=value}: {@code url} (http://localhost:8080),
+ * {@code rate} (1000 per second), {@code seconds} (30), {@code warmupSeconds} (5),
+ * {@code connections} (256), {@code devices} (1000), {@code types} (all known endpoints),
+ * {@code poisson} (true, exponential gaps between arrivals instead of fixed ones) and
+ * {@code mix} (GET:70,POST:5,PUT:10,PATCH:10,DELETE:5), which can be set for a single type
+ * by {@code mix.<endpoint>}, e.g.
+ * {@code mvn -Pbenchmarks test-compile exec:exec@load-generator -Dload.args="rate=5000 mix.fireplace=GET:90,PUT:10"}.
+ */
+public final class LoadGenerator {
+
+    /**
+     * Device types by endpoint, as set up by the device routes
+     */
+    private static final Map<String, Class<? extends Device>> DEVICE_TYPES =
+            Map.of(FireplaceRoute.ENDPOINT, Fireplace.class);
+    private static final String DEFAULT_MIX = "GET:70,POST:5,PUT:10,PATCH:10,DELETE:5";
+    private static final int SEED_BATCH = 1000;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final List<Target> targets = new ArrayList<>();
+    private final URI url;
+    private final double rate;
+    private final long seconds;
+    private final long warmupSeconds;
+    private final int connections;
+    private final int devices;
+    private final boolean poisson;
+    private final HttpClient client;
+    private final Semaphore inFlight;
+
+    private LoadGenerator(Map<String, String> options) throws Exception {
+        url = URI.create(options.getOrDefault("url", "http://localhost:8080/"));
+        final InetAddress address = InetAddress.getByName(url.getHost());
+        if (!address.isLoopbackAddress()) {
+            throw new IllegalArgumentException("Load can be generated against a local instance only, not "
+                    + url.getHost());
+        }
+        rate = Double.parseDouble(options.getOrDefault("rate", "1000"));
+        seconds = Long.parseLong(options.getOrDefault("seconds", "30"));
+        warmupSeconds = Long.parseLong(options.getOrDefault("warmupSeconds", "5"));
+        connections = Integer.parseInt(options.getOrDefault("connections", "256"));
+        devices = Integer.parseInt(options.getOrDefault("devices", "1000"));
+        poisson = Boolean.parseBoolean(options.getOrDefault("poisson", "true"));
+        final String types = options.getOrDefault("types", String.join(",", DEVICE_TYPES.keySet()));
+        for (String endpoint : types.split(",")) {
+            final Class<? extends Device> type = DEVICE_TYPES.get(endpoint.trim());
+            if (type == null) {
+                throw new IllegalArgumentException("Unknown device endpoint " + endpoint);
+            }
+            targets.add(new Target(endpoint.trim(), type,
+                    Mix.parse(options.getOrDefault("mix." + endpoint.trim(), options.getOrDefault("mix", DEFAULT_MIX)))));
+        }
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors()))
+                .build();
+        inFlight = new Semaphore(connections);
+    }
+
+    public static void main(String[] args) throws Exception {
+        final Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            final String[] option = arg.split("=", 2);
+            options.put(option[0], option.length > 1 ? option[1] : "");
+        }
+        final LoadGenerator generator = new LoadGenerator(options);
+        generator.seed();
+        generator.load(generator.warmupSeconds, new Report());
+        final Report report = new Report();
+        generator.load(generator.seconds, report);
+        report.print(generator.seconds, generator.rate);
+        System.exit(0);
+    }
+
+    /**
+     * Creates the devices requests are sent to, by bulk requests of the device routes.
+     */
+    private void seed() throws Exception {
+        for (Target target : targets) {
+            for (int first = 0; first < devices; first += SEED_BATCH) {
+                final List<Device> batch = new ArrayList<>();
+                for (int i = first; i < Math.min(first + SEED_BATCH, devices); i++) {
+                    batch.add(target.device(target.seededLabel(i), false));
+                }
+                final HttpResponse<Void> response = client.send(HttpRequest.newBuilder(target.uri(
+                        AbstractDeviceRoute.BULK_PATH))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(batch)))
+                        .build(), HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() != 200) {
+                    throw new IllegalStateException("Seeding " + target.endpoint + " failed with status "
+                            + response.statusCode());
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends requests at the configured rate for the given time and waits for all of them to complete.
+     */
+    private void load(long duration, Report report) throws Exception {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final double meanGapNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        final long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(duration);
+        double due = System.nanoTime();
+        while (due < end) {
+            final long wait = (long) due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            final Target target = targets.get(random.nextInt(targets.size()));
+            final Operation operation = target.mix.next(random);
+            inFlight.acquire();
+            send(target, operation, (long) due, report);
+            due += poisson ? -Math.log(1 - random.nextDouble()) * meanGapNanos : meanGapNanos;
+        }
+        inFlight.acquire(connections);
+        inFlight.release(connections);
+    }
+
+    private void send(Target target, Operation operation, long due, Report report) throws Exception {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final String seeded = target.seededLabel(random.nextInt(devices));
+        final HttpRequest.Builder request;
+        final String created;
+        switch (operation) {
+            case GET:
+                created = null;
+                request = HttpRequest.newBuilder(target.uri(seeded)).GET();
+                break;
+            case POST:
+                created = target.createdLabel();
+                request = HttpRequest.newBuilder(target.uri(null)).POST(target.body(created, false));
+                break;
+            case PUT:
+            case PATCH:
+                created = null;
+                request = HttpRequest.newBuilder(target.uri(null))
+                        .method(operation.name(), target.body(seeded, random.nextBoolean()));
+                break;
+            default:
+                // Devices created by the load are deleted, so that the seeded ones stay
+                final String deleted = target.created.poll();
+                created = null;
+                request = HttpRequest.newBuilder(target.uri(deleted == null ? "?label=none"
+                        : "?label=" + deleted)).DELETE();
+        }
+        request.header("Content-Type", "application/json").timeout(Duration.ofSeconds(60));
+        client.sendAsync(request.build(), HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+            final boolean success = error == null && response.statusCode() < 300
+                    || operation == Operation.DELETE && response != null && response.statusCode() == 404;
+            report.record(operation, System.nanoTime() - due, success);
+            if (created != null && success) {
+                target.created.add(created);
+            }
+            inFlight.release();
+        });
+    }
+
+    private enum Operation {
+        GET, POST, PUT, PATCH, DELETE
+    }
+
+    /**
+     * Weighted choice of operations
+     */
+    private static final class Mix {
+
+        private final Operation[] operations;
+        private final int[] cumulativeWeights;
+
+        private Mix(Operation[] operations, int[] cumulativeWeights) {
+            this.operations = operations;
+            this.cumulativeWeights = cumulativeWeights;
+        }
+
+        static Mix parse(String mix) {
+            final String[] entries = mix.split(",");
+            final Operation[] operations = new Operation[entries.length];
+            final int[] cumulativeWeights = new int[entries.length];
+            int total = 0;
+            for (int i = 0; i < entries.length; i++) {
+                final String[] entry = entries[i].split(":");
+                operations[i] = Operation.valueOf(entry[0].trim().toUpperCase());
+                total += Integer.parseInt(entry[1].trim());
+                cumulativeWeights[i] = total;
+            }
+            return new Mix(operations, cumulativeWeights);
+        }
+
+        Operation next(ThreadLocalRandom random) {
+            final int choice = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+            int i = 0;
+            while (cumulativeWeights[i] <= choice) {
+                i++;
+            }
+            return operations[i];
+        }
+    }
+
+    /**
+     * Device type requests are sent to, with the endpoint layout of {@code AbstractDeviceRoute}
+     */
+    private final class Target {
+
+        private final String endpoint;
+        private final Class<? extends Device> type;
+        private final Mix mix;
+        private final Queue<String> created = new ConcurrentLinkedQueue<>();
+        private final AtomicLong createdCount = new AtomicLong();
+
+        Target(String endpoint, Class<? extends Device> type, Mix mix) {
+            this.endpoint = endpoint;
+            this.type = type;
+            this.mix = mix;
+        }
+
+        String seededLabel(int index) {
+            return "load-" + endpoint + "-" + index;
+        }
+
+        String createdLabel() {
+            return "load-" + endpoint + "-created-" + createdCount.incrementAndGet();
+        }
+
+        URI uri(String path) {
+            final String route = AbstractDeviceRoute.pathOf(endpoint);
+            if (path == null) {
+                return url.resolve("/" + route);
+            }
+            return url.resolve("/" + route + (path.startsWith("?") ? path : "/" + path));
+        }
+
+        Device device(String label, boolean enabled) throws Exception {
+            final Device device = type.getConstructor(String.class).newInstance(label);
+            if (device instanceof Actuator) {
+                ((Actuator) device).setEnabled(enabled);
+            }
+            return device;
+        }
+
+        HttpRequest.BodyPublisher body(String label, boolean enabled) throws Exception {
+            return HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(device(label, enabled)));
+        }
+    }
+
+    /**
+     * Latency histograms and error counts of completed requests by operation
+     */
+    private static final class Report {
+
+        private final Map<Operation, Recorder> latencies = new EnumMap<>(Operation.class);
+        private final Map<Operation, AtomicLong> errors = new EnumMap<>(Operation.class);
+
+        Report() {
+            for (Operation operation : Operation.values()) {
+                latencies.put(operation, new Recorder(3));
+                errors.put(operation, new AtomicLong());
+            }
+        }
+
+        void record(Operation operation, long latencyNanos, boolean success) {
+            latencies.get(operation).recordValue(latencyNanos);
+            if (!success) {
+                errors.get(operation).incrementAndGet();
+            }
+        }
+
+        void print(long seconds, double rate) {
+            System.out.printf("Target rate %.0f req/s over %d s%n", rate, seconds);
+            System.out.printf("%-8s %10s %8s %10s %9s %9s %9s %9s %9s%n",
+                    "", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+            final Histogram total = new Histogram(3);
+            long totalErrors = 0;
+            for (Operation operation : Operation.values()) {
+                final Histogram histogram = latencies.get(operation).getIntervalHistogram();
+                if (histogram.getTotalCount() > 0) {
+                    print(operation.name(), histogram, errors.get(operation).get(), seconds);
+                }
+                total.add(histogram);
+                totalErrors += errors.get(operation).get();
+            }
+            print("TOTAL", total, totalErrors, seconds);
+        }
+
+        private static void print(String name, Histogram histogram, long errors, long seconds) {
+            System.out.printf("%-8s %10d %8d %10.0f %9.2f %9.2f %9.2f %9.2f %9.2f%n", name, histogram.getTotalCount(),
+                    errors, (double) histogram.getTotalCount() / seconds, millis(histogram, 50), millis(histogram, 90),
+                    millis(histogram, 99), millis(histogram, 99.9), histogram.getMaxValue() / 1e6);
+        }
+
+        private static double millis(Histogram histogram, double percentile) {
+            return histogram.getValueAtPercentile(percentile) / 1e6;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.metrics;
+
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.patriot_framework.virtual_smart_home.house.House;
+import io.patriot_framework.virtual_smart_home.house.device.Device;
+import io.patriot_framework.virtual_smart_home.house.device.Fireplace;
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.spi.RoutePolicy;
+import org.apache.camel.support.DefaultExchange;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead of metrics, compare each instrumented benchmark with its plain counterpart.
+ *
+ * The difference is expected to stay well below 1 microsecond per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetricsBenchmark {
+
+    private static final int DEVICE_COUNT = 1000;
+
+    private final PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+    private House plainHouse;
+    private House meteredHouse;
+    private CamelContext camelContext;
+    private RoutePolicy policy;
+    private int next;
+
+    @Setup
+    public void setup() {
+        plainHouse = new House("plain");
+        meteredHouse = new House("metered");
+        for (int i = 0; i < DEVICE_COUNT; i++) {
+            plainHouse.addDevice("fireplace" + i, new Fireplace("fireplace" + i));
+            meteredHouse.addDevice("fireplace" + i, new Fireplace("fireplace" + i));
+        }
+        new HouseMeterBinder(meteredHouse).bindTo(registry);
+        camelContext = new DefaultCamelContext();
+        policy = new RouteMetricsPolicyFactory(registry).createRoutePolicy(camelContext, "benchmark-route", null);
+    }
+
+    @TearDown
+    public void tearDown() {
+        camelContext.stop();
+    }
+
+    private String nextLabel() {
+        next = (next + 1) % DEVICE_COUNT;
+        return "fireplace" + next;
+    }
+
+    @Benchmark
+    public Device findDevicePlain() {
+        return plainHouse.findDevice(nextLabel());
+    }
+
+    @Benchmark
+    public Device findDeviceMetered() {
+        return meteredHouse.findDevice(nextLabel());
+    }
+
+    @Benchmark
+    public Exchange exchangePlain() {
+        final Exchange exchange = new DefaultExchange(camelContext);
+        exchange.getMessage().setHeader(Exchange.HTTP_RESPONSE_CODE, 200);
+        return exchange;
+    }
+
+    @Benchmark
+    public Exchange exchangeMetered() {
+        final Exchange exchange = new DefaultExchange(camelContext);
+        exchange.getMessage().setHeader(Exchange.HTTP_RESPONSE_CODE, 200);
+        policy.onExchangeBegin(null, exchange);
+        policy.onExchangeDone(null, exchange);
+        return exchange;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.route;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.patriot_framework.virtual_smart_home.InitialApplication;
+import io.patriot_framework.virtual_smart_home.format.SerializedJson;
+import io.patriot_framework.virtual_smart_home.house.House;
+import io.patriot_framework.virtual_smart_home.house.device.Fireplace;
+import org.apache.camel.CamelContext;
+import org.apache.camel.ProducerTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmarks of in-process invocation of the {@code FireplaceRoute} direct endpoints.
+ *
+ * Request bodies are bound from JSON and response bodies are written back to JSON with
+ * the same Jackson setup the REST binding uses, so the numbers include the binding cost
+ * but not the HTTP transport.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FireplaceRouteBenchmark {
+
+    @Param({"100", "10000"})
+    private int deviceCount;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final AtomicLong created = new AtomicLong();
+    private ConfigurableApplicationContext application;
+    private ProducerTemplate template;
+    private String[] labels;
+    private byte[][] updateBodies;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        application = SpringApplication.run(InitialApplication.class,
+                "--server.port=0", "--logging.level.root=WARN");
+        template = application.getBean(CamelContext.class).createProducerTemplate();
+
+        final House house = application.getBean(House.class);
+        labels = new String[deviceCount];
+        updateBodies = new byte[deviceCount][];
+        for (int i = 0; i < deviceCount; i++) {
+            labels[i] = "fireplace" + i;
+            final Fireplace fireplace = new Fireplace(labels[i]);
+            house.addDevice(labels[i], fireplace);
+            fireplace.setEnabled(true);
+            updateBodies[i] = mapper.writeValueAsBytes(fireplace);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        template.stop();
+        application.close();
+    }
+
+    private int randomIndex() {
+        return ThreadLocalRandom.current().nextInt(deviceCount);
+    }
+
+    private byte[] request(String endpoint, Object body, String label) throws Exception {
+        return toJson(template.requestBodyAndHeader(endpoint, body, "label", label));
+    }
+
+    private byte[] toJson(Object response) throws Exception {
+        // Cached representations are written by the binding as they are
+        return response instanceof SerializedJson
+                ? ((SerializedJson) response).getBytes() : mapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] readFireplace() throws Exception {
+        return request("direct:readfireplace", null, labels[randomIndex()]);
+    }
+
+    @Benchmark
+    public byte[] readFireplaces() throws Exception {
+        return toJson(template.requestBody("direct:readfireplaces", (Object) null));
+    }
+
+    @Benchmark
+    public byte[] updateFireplace() throws Exception {
+        final Fireplace fireplace = mapper.readValue(updateBodies[randomIndex()], Fireplace.class);
+        return request("direct:updatefireplace", fireplace, null);
+    }
+
+    @Benchmark
+    public byte[] toggleFireplace() throws Exception {
+        return toJson(template.requestBodyAndHeaders("direct:commandfireplace", null,
+                Map.of("label", labels[randomIndex()], HouseRoute.COMMAND_HEADER, "toggle")));
+    }
+
+    @Benchmark
+    public byte[] createAndDeleteFireplace() throws Exception {
+        final String label = "created" + created.incrementAndGet();
+        final byte[] body = ("{\"label\":\"" + label + "\",\"enabled\":false}").getBytes();
+        final byte[] response = request("direct:createfireplace", mapper.readValue(body, Fireplace.class), null);
+        template.requestBodyAndHeader("direct:deletefireplace", null, "label", label);
+        return response;
+    }
+}
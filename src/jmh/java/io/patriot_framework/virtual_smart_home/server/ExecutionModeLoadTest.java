@@ -0,0 +1,175 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.server;
+
+import io.patriot_framework.virtual_smart_home.InitialApplication;
+import io.patriot_framework.virtual_smart_home.house.House;
+import io.patriot_framework.virtual_smart_home.house.device.Fireplace;
+import org.apache.camel.CamelContext;
+import org.apache.camel.builder.RouteBuilder;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load test comparing throughput and tail latency of the execution modes
+ *
+ * For every mode the application is started in-process and a fixed number of connections
+ * keep requesting a fireplace through a route that blocks for the simulated device latency
+ * first, the way a slow device integration would. Options are passed as {@code key=value}:
+ * {@code connections} (10000), {@code seconds} (30), {@code warmupSeconds} (5),
+ * {@code latencyMillis} (50) and {@code modes} (PLATFORM,VIRTUAL), e.g.
+ * {@code mvn -Pbenchmarks test-compile exec:exec@load-test -Dload.args="connections=2000"}.
+ * Virtual threads need the test to be run on Java 21 or newer.
+ */
+public final class ExecutionModeLoadTest {
+
+    private final int connections;
+    private final long seconds;
+    private final long warmupSeconds;
+    private final long latencyMillis;
+
+    private ExecutionModeLoadTest(Map<String, String> options) {
+        connections = Integer.parseInt(options.getOrDefault("connections", "10000"));
+        seconds = Long.parseLong(options.getOrDefault("seconds", "30"));
+        warmupSeconds = Long.parseLong(options.getOrDefault("warmupSeconds", "5"));
+        latencyMillis = Long.parseLong(options.getOrDefault("latencyMillis", "50"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        final Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            final String[] option = arg.split("=", 2);
+            options.put(option[0], option.length > 1 ? option[1] : "");
+        }
+        final ExecutionModeLoadTest test = new ExecutionModeLoadTest(options);
+        System.out.printf("%-10s %12s %10s %12s %10s %10s %10s %10s%n",
+                "mode", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (String mode : options.getOrDefault("modes", "PLATFORM,VIRTUAL").split(",")) {
+            test.run(ExecutionMode.valueOf(mode.trim().toUpperCase()));
+        }
+        System.exit(0);
+    }
+
+    private void run(ExecutionMode mode) throws Exception {
+        final ConfigurableApplicationContext application = SpringApplication.run(InitialApplication.class,
+                "--server.port=0", "--logging.level.root=WARN", "--house.rest.execution-mode=" + mode,
+                "--server.tomcat.max-connections=" + (connections + 1000),
+                "--server.tomcat.accept-count=" + connections);
+        try {
+            application.getBean(House.class).addDevice("fireplace", new Fireplace("fireplace"));
+            application.getBean(CamelContext.class).addRoutes(new RouteBuilder() {
+                @Override
+                public void configure() {
+                    rest("load/")
+                            .get("fireplace")
+                                .route()
+                                .process(exchange -> Thread.sleep(latencyMillis))
+                                .setHeader("label", constant("fireplace"))
+                                .to("direct:readfireplace")
+                                .endRest();
+                }
+            });
+            final URI uri = URI.create("http://localhost:"
+                    + application.getEnvironment().getProperty("local.server.port") + "/load/fireplace");
+
+            load(uri, warmupSeconds, new Recorder());
+            final Recorder recorder = new Recorder();
+            load(uri, seconds, recorder);
+            recorder.print(mode, seconds);
+        } finally {
+            application.close();
+        }
+    }
+
+    /**
+     * Keeps every connection busy with one request after another for the given time.
+     */
+    private void load(URI uri, long duration, Recorder recorder) throws InterruptedException {
+        final HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors()))
+                .build();
+        final HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(60)).build();
+        final long deadline = System.nanoTime() + Duration.ofSeconds(duration).toNanos();
+        final CountDownLatch finished = new CountDownLatch(connections);
+        for (int i = 0; i < connections; i++) {
+            send(client, request, deadline, recorder, finished);
+        }
+        finished.await();
+    }
+
+    private void send(HttpClient client, HttpRequest request, long deadline, Recorder recorder,
+                      CountDownLatch finished) {
+        final long start = System.nanoTime();
+        if (start - deadline >= 0) {
+            finished.countDown();
+            return;
+        }
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+            recorder.record(System.nanoTime() - start, error == null && response.statusCode() == 200);
+            send(client, request, deadline, recorder, finished);
+        });
+    }
+
+    /**
+     * Collects latencies of completed requests.
+     */
+    private static final class Recorder {
+
+        private final AtomicLong errors = new AtomicLong();
+        private long[] latencies = new long[1 << 16];
+        private int count;
+
+        synchronized void record(long latencyNanos, boolean success) {
+            if (!success) {
+                errors.incrementAndGet();
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latencyNanos;
+        }
+
+        synchronized void print(ExecutionMode mode, long seconds) {
+            final long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            System.out.printf("%-10s %12d %10d %12.0f %10.1f %10.1f %10.1f %10.1f%n", mode, count, errors.get(),
+                    (double) count / seconds, percentile(sorted, 0.5), percentile(sorted, 0.99),
+                    percentile(sorted, 0.999), percentile(sorted, 1.0));
+        }
+
+        private static double percentile(long[] sorted, double quantile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            final int index = (int) Math.ceil(quantile * sorted.length) - 1;
+            return sorted[Math.max(index, 0)] / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.simulation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a tick of {@code TimingWheel} holding many periodic timeouts.
+ *
+ * Timeouts are spread over {@code period} ticks, so a tick expires {@code timeoutCount / period} of them
+ * on average. With a fixed number of expirations per tick, the cost shouldn't grow with the timeout count.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class TimingWheelBenchmark {
+
+    private static final int EXPIRATIONS_PER_TICK = 100;
+
+    @Param({"10000", "1000000"})
+    private int timeoutCount;
+
+    private TimingWheel wheel;
+
+    @Setup
+    public void setup() {
+        wheel = new TimingWheel();
+        final long period = timeoutCount / EXPIRATIONS_PER_TICK;
+        final Random random = new Random(42);
+        for (int i = 0; i < timeoutCount; i++) {
+            wheel.schedule(new PeriodicTimeout(wheel, period), 1 + random.nextInt((int) period));
+        }
+    }
+
+    @Benchmark
+    public long tick() {
+        wheel.advance();
+        return wheel.getTick();
+    }
+
+    private static final class PeriodicTimeout extends TimingWheel.Timeout {
+
+        private final TimingWheel wheel;
+        private final long period;
+
+        PeriodicTimeout(TimingWheel wheel, long period) {
+            this.wheel = wheel;
+            this.period = period;
+        }
+
+        @Override
+        protected void expire(long tick) {
+            wheel.schedule(this, period);
+        }
+    }
+}
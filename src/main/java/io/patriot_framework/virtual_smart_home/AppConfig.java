@@ -16,19 +16,115 @@
 
 package io.patriot_framework.virtual_smart_home;
 
+import io.patriot_framework.virtual_smart_home.event.DeviceEventServlet;
+import io.patriot_framework.virtual_smart_home.event.OverflowPolicy;
 import io.patriot_framework.virtual_smart_home.house.House;
+import io.patriot_framework.virtual_smart_home.house.HouseRegistry;
+import io.patriot_framework.virtual_smart_home.house.HouseStorage;
+import io.patriot_framework.virtual_smart_home.house.device.Actuator;
+import io.patriot_framework.virtual_smart_home.house.persistence.HousePersistence;
+import io.patriot_framework.virtual_smart_home.server.ExecutionMode;
+import io.patriot_framework.virtual_smart_home.server.ExecutionModeCustomizer;
+import io.patriot_framework.virtual_smart_home.simulation.ActuatorSchedule;
+import io.patriot_framework.virtual_smart_home.simulation.Simulation;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.ServletRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+
 @Configuration
 public class AppConfig {
 
     @Value("${house.name}")
     private String houseName;
+    @Value("${house.storage:INDEXED}")
+    private HouseStorage houseStorage;
+    @Value("${house.events.buffer-size:1024}")
+    private int eventBufferSize;
+    @Value("${house.events.overflow-policy:RESYNC}")
+    private OverflowPolicy eventOverflowPolicy;
+    @Value("${house.events.heartbeat-seconds:15}")
+    private long eventHeartbeatSeconds;
+    @Value("${house.persistence.directory:data}")
+    private String persistenceDirectory;
+    @Value("${house.persistence.group-commit-millis:10}")
+    private long persistenceGroupCommitMillis;
+    @Value("${house.persistence.snapshot-interval-seconds:300}")
+    private long persistenceSnapshotIntervalSeconds;
+    @Value("${house.rest.execution-mode:PLATFORM}")
+    private ExecutionMode executionMode;
+    @Value("${house.simulation.tick-millis:100}")
+    private long simulationTickMillis;
+    @Value("${house.simulation.actuator-on-ticks:0}")
+    private long simulationActuatorOnTicks;
+    @Value("${house.simulation.actuator-off-ticks:0}")
+    private long simulationActuatorOffTicks;
 
     @Bean
     public House houseProducer() {
-        return new House(houseName);
+        return new House(houseName, houseStorage);
+    }
+
+    @Bean
+    public HouseRegistry houseRegistry(House house) {
+        final HouseRegistry registry = new HouseRegistry(houseStorage);
+        registry.putHouseIfAbsent(house);
+        return registry;
+    }
+
+    @Bean
+    public ExecutionModeCustomizer executionModeCustomizer() {
+        return new ExecutionModeCustomizer(executionMode);
+    }
+
+    @Bean
+    public ServletRegistrationBean<DeviceEventServlet> deviceEventServlet(House house) {
+        final ServletRegistrationBean<DeviceEventServlet> registration = new ServletRegistrationBean<>(
+                new DeviceEventServlet(house, eventBufferSize, eventOverflowPolicy, eventHeartbeatSeconds),
+                "/house/events");
+        registration.setAsyncSupported(true);
+        return registration;
+    }
+
+    /**
+     * Restores the house from disk and keeps persisting its mutations, enabled by {@code house.persistence.enabled}
+     *
+     * @param house house to be persisted
+     * @return started persistence of the house
+     * @throws IOException if the stored state can't be restored
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "house.persistence.enabled", havingValue = "true")
+    public HousePersistence housePersistence(House house) throws IOException {
+        final HousePersistence persistence = new HousePersistence(house, Paths.get(persistenceDirectory),
+                persistenceGroupCommitMillis, persistenceSnapshotIntervalSeconds);
+        persistence.start();
+        return persistence;
+    }
+
+    /**
+     * Drives devices of the house over simulated time, enabled by {@code house.simulation.enabled}
+     *
+     * If both {@code house.simulation.actuator-on-ticks} and {@code house.simulation.actuator-off-ticks}
+     * are positive, all actuators are switched on and off periodically.
+     *
+     * @param house simulated house
+     * @return started simulation of the house
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "house.simulation.enabled", havingValue = "true")
+    public Simulation simulation(House house) {
+        final Simulation simulation = new Simulation(house, simulationTickMillis);
+        simulation.start();
+        if (simulationActuatorOnTicks > 0 && simulationActuatorOffTicks > 0) {
+            simulation.attachToType(Actuator.class,
+                    new ActuatorSchedule(simulationActuatorOnTicks, simulationActuatorOffTicks),
+                    simulationActuatorOffTicks);
+        }
+        return simulation;
     }
 }
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.patriot_framework.virtual_smart_home.house.House;
+import io.patriot_framework.virtual_smart_home.house.HouseListener;
+import io.patriot_framework.virtual_smart_home.house.device.Device;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Server-Sent Events feed of device changes in {@code House}
+ *
+ * Clients may filter the feed by {@code type} (simple name of the device class or of any
+ * of its supertypes, e.g. {@code fireplace} or {@code actuator}) and by {@code label}.
+ * Every event carries the house version as its id and is named {@code added},
+ * {@code updated} or {@code removed}. Subscribers are served by a single dispatcher
+ * thread using non-blocking IO, see {@link EventSubscriber}.
+ */
+public class DeviceEventServlet extends HttpServlet implements HouseListener {
+
+    public static final Logger LOGGER = LogManager.getLogger();
+    public static final String EVENT_STREAM_VALUE = "text/event-stream";
+
+    private final House house;
+    private final int bufferSize;
+    private final OverflowPolicy overflowPolicy;
+    private final long heartbeatSeconds;
+    private final ObjectMapper mapper = new ObjectMapper();
+    /**
+     * Copy-on-write array of subscribers, so that delivering a change doesn't allocate an iterator.
+     */
+    private volatile EventSubscriber[] subscribers = new EventSubscriber[0];
+    private transient ScheduledExecutorService dispatcher;
+
+    public DeviceEventServlet(House house, int bufferSize, OverflowPolicy overflowPolicy, long heartbeatSeconds) {
+        this.house = house;
+        this.bufferSize = bufferSize;
+        this.overflowPolicy = overflowPolicy;
+        this.heartbeatSeconds = heartbeatSeconds;
+    }
+
+    @Override
+    public void init() {
+        dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "device-events");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dispatcher.scheduleAtFixedRate(() -> Arrays.stream(subscribers).forEach(EventSubscriber::heartbeat),
+                heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+        house.addListener(this);
+    }
+
+    @Override
+    public void destroy() {
+        house.removeListener(this);
+        Arrays.stream(subscribers).forEach(EventSubscriber::close);
+        dispatcher.shutdownNow();
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(EVENT_STREAM_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader("Cache-Control", "no-cache");
+
+        final AsyncContext context = request.startAsync();
+        context.setTimeout(0);
+        final EventSubscriber subscriber = new EventSubscriber(this, context, request.getParameter("type"),
+                request.getParameter("label"), bufferSize, overflowPolicy, dispatcher);
+        context.addListener(subscriber);
+        // The dispatcher may drain the subscriber once it's subscribed, which requires the write listener
+        response.getOutputStream().setWriteListener(subscriber);
+        subscribe(subscriber);
+    }
+
+    private synchronized void subscribe(EventSubscriber subscriber) {
+        final EventSubscriber[] extended = Arrays.copyOf(subscribers, subscribers.length + 1);
+        extended[subscribers.length] = subscriber;
+        subscribers = extended;
+        LOGGER.debug("New device event subscriber, {} subscribers in total", subscribers.length);
+    }
+
+    synchronized void unsubscribe(EventSubscriber subscriber) {
+        subscribers = Arrays.stream(subscribers).filter(registered -> registered != subscriber)
+                .toArray(EventSubscriber[]::new);
+    }
+
+    /**
+     * Serializes the change once and enqueues it to all matching subscribers.
+     */
+    @Override
+    public void deviceChanged(String label, Device origDevice, Device device, long version) {
+        final Device subject = device != null ? device : origDevice;
+        byte[] event = null;
+        for (EventSubscriber subscriber : subscribers) {
+            if (!subscriber.matches(label, subject)) {
+                continue;
+            }
+            if (event == null) {
+                event = serialize(label, origDevice, device, version);
+            }
+            subscriber.offer(event);
+        }
+    }
+
+    private byte[] serialize(String label, Device origDevice, Device device, long version) {
+        final String name = origDevice == null ? "added" : device == null ? "removed" : "updated";
+        final Device subject = device != null ? device : origDevice;
+        final ObjectNode data = mapper.createObjectNode()
+                .put("label", label)
+                .put("type", subject.getClass().getSimpleName());
+        data.set("device", device == null ? null : mapper.valueToTree(device));
+        try {
+            return String.format("id: %d\nevent: %s\ndata: %s\n\n", version, name, mapper.writeValueAsString(data))
+                    .getBytes(StandardCharsets.UTF_8);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Device can't be serialized", e);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.event;
+
+import io.patriot_framework.virtual_smart_home.house.device.Device;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Single client of the device change feed
+ *
+ * Events are buffered in a bounded queue and written with non-blocking servlet IO,
+ * so an idle or slow subscriber doesn't hold any thread.
+ */
+final class EventSubscriber implements WriteListener, AsyncListener {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final byte[] RESYNC_EVENT = "event: resync\ndata: {}\n\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] HEARTBEAT = ": heartbeat\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final DeviceEventServlet servlet;
+    private final AsyncContext context;
+    private final ServletOutputStream output;
+    private final String type;
+    private final String label;
+    private final OverflowPolicy overflowPolicy;
+    private final Executor dispatcher;
+    private final Queue<byte[]> queue;
+    private final AtomicBoolean resync = new AtomicBoolean();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile boolean closed;
+
+    EventSubscriber(DeviceEventServlet servlet, AsyncContext context, String type, String label,
+                    int bufferSize, OverflowPolicy overflowPolicy, Executor dispatcher) throws IOException {
+        this.servlet = servlet;
+        this.context = context;
+        this.output = context.getResponse().getOutputStream();
+        this.type = type;
+        this.label = label;
+        this.overflowPolicy = overflowPolicy;
+        this.dispatcher = dispatcher;
+        this.queue = new ArrayBlockingQueue<>(bufferSize);
+    }
+
+    /**
+     * Checks filters of the subscriber against a changed device.
+     */
+    boolean matches(String deviceLabel, Device device) {
+        if (label != null && !label.equals(deviceLabel)) {
+            return false;
+        }
+        if (type == null) {
+            return true;
+        }
+        for (Class<?> deviceType = device.getClass(); Device.class.isAssignableFrom(deviceType);
+             deviceType = deviceType.getSuperclass()) {
+            if (deviceType.getSimpleName().equalsIgnoreCase(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Enqueues serialized event without blocking, applying overflow policy if the buffer is full.
+     */
+    void offer(byte[] event) {
+        if (!queue.offer(event) && overflowPolicy == OverflowPolicy.RESYNC) {
+            queue.clear();
+            resync.set(true);
+        }
+        schedule();
+    }
+
+    /**
+     * Enqueues heartbeat comment if there is nothing else to be sent, so that closed connections are detected.
+     */
+    void heartbeat() {
+        if (queue.isEmpty() && queue.offer(HEARTBEAT)) {
+            schedule();
+        }
+    }
+
+    private void schedule() {
+        if (!closed && scheduled.compareAndSet(false, true)) {
+            dispatcher.execute(this::drain);
+        }
+    }
+
+    /**
+     * Writes buffered events for as long as the connection accepts data without blocking.
+     * If it doesn't, the container calls {@link #onWritePossible()} once it does.
+     */
+    private synchronized void drain() {
+        scheduled.set(false);
+        if (closed) {
+            return;
+        }
+        try {
+            while (output.isReady()) {
+                final byte[] event = resync.getAndSet(false) ? RESYNC_EVENT : queue.poll();
+                if (event == null) {
+                    output.flush();
+                    return;
+                }
+                output.write(event);
+            }
+        } catch (IOException | IllegalStateException e) {
+            LOGGER.debug("Event subscriber disconnected: {}", e.getMessage());
+            close();
+        }
+    }
+
+    /**
+     * Ends the response and unregisters the subscriber.
+     */
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        servlet.unsubscribe(this);
+        try {
+            context.complete();
+        } catch (IllegalStateException e) {
+            LOGGER.debug("Event subscriber was already completed");
+        }
+    }
+
+    @Override
+    public void onWritePossible() {
+        drain();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        close();
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+        close();
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+        close();
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+        close();
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+        // Nothing to do, the subscriber is registered for a single async cycle.
+    }
+}
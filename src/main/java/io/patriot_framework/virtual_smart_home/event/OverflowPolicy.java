@@ -0,0 +1,34 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.event;
+
+/**
+ * What happens to events of a subscriber which doesn't keep up with the change feed
+ */
+public enum OverflowPolicy {
+
+    /**
+     * Events which don't fit into the subscriber buffer are silently dropped.
+     */
+    DROP,
+
+    /**
+     * Buffered events are discarded and a single {@code resync} event is sent instead,
+     * telling the client to re-read the current state over REST.
+     */
+    RESYNC
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.format;
+
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.Message;
+import org.apache.camel.NamedNode;
+import org.apache.camel.Route;
+import org.apache.camel.model.RouteDefinition;
+import org.apache.camel.spi.RoutePolicy;
+import org.apache.camel.spi.RoutePolicyFactory;
+import org.apache.camel.support.RoutePolicySupport;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Negotiates {@link MediaFormat} of request and response bodies of REST routes
+ *
+ * Route policies see an exchange before the REST binding does. The policy stores the
+ * formats in exchange properties for {@link NegotiatedJacksonDataFormat} and hides the
+ * binary content type from the binding, which otherwise handles JSON and XML only.
+ */
+public class FormatNegotiationPolicyFactory implements RoutePolicyFactory {
+
+    @Override
+    public RoutePolicy createRoutePolicy(CamelContext camelContext, String routeId, NamedNode route) {
+        // Only REST routes are bound, the direct routes they call share the negotiated exchange.
+        if (route instanceof RouteDefinition && Boolean.TRUE.equals(((RouteDefinition) route).isRest())) {
+            return new FormatNegotiationPolicy();
+        }
+        return null;
+    }
+
+    /**
+     * Negotiation of exchanges of a REST route
+     */
+    static final class FormatNegotiationPolicy extends RoutePolicySupport {
+
+        @Override
+        public void onExchangeBegin(Route route, Exchange exchange) {
+            final Message message = exchange.getIn();
+            exchange.setProperty(MediaFormat.RESPONSE_FORMAT,
+                    MediaFormat.negotiate(message.getHeader("Accept", String.class)));
+
+            final MediaFormat request = MediaFormat.ofContentType(message.getHeader(Exchange.CONTENT_TYPE,
+                    String.class));
+            if (request != null && request.isBinary()) {
+                exchange.setProperty(MediaFormat.REQUEST_FORMAT, request);
+                // The binding reads the body as text first, which keeps every byte only in ISO-8859-1.
+                exchange.setProperty(Exchange.CHARSET_NAME, StandardCharsets.ISO_8859_1.name());
+                message.removeHeader(Exchange.CONTENT_TYPE);
+            }
+        }
+    }
+}
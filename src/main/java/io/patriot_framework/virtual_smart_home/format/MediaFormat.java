@@ -0,0 +1,120 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.format;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.apache.camel.Exchange;
+
+import java.util.Locale;
+
+/**
+ * Encodings of request and response bodies of REST routes
+ *
+ * JSON is the default, CBOR and Smile are binary encodings of the same data model,
+ * which are smaller and cheaper to generate and parse. All of them are written and
+ * read by the same {@code ObjectMapper}, only the Jackson factory differs.
+ */
+public enum MediaFormat {
+
+    JSON("application/json", new JsonFactory()),
+    CBOR("application/cbor", new CBORFactory()),
+    SMILE("application/x-jackson-smile", new SmileFactory());
+
+    /**
+     * Exchange property holding the format of the response body
+     */
+    public static final String RESPONSE_FORMAT = "house-response-format";
+    /**
+     * Exchange property holding the format of a binary request body, absent for JSON
+     */
+    public static final String REQUEST_FORMAT = "house-request-format";
+
+    private static final MediaFormat[] FORMATS = values();
+
+    private final String mediaType;
+    private final JsonFactory factory;
+
+    MediaFormat(String mediaType, JsonFactory factory) {
+        this.mediaType = mediaType;
+        this.factory = factory;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public JsonFactory getFactory() {
+        return factory;
+    }
+
+    public boolean isBinary() {
+        return this != JSON;
+    }
+
+    /**
+     * Selects the format of a body by its {@code Content-Type}
+     *
+     * @param contentType value of the {@code Content-Type} header, may be null
+     * @return format of the body, null if the content type isn't one of the formats
+     */
+    public static MediaFormat ofContentType(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        final int end = contentType.indexOf(';');
+        final String type = (end < 0 ? contentType : contentType.substring(0, end)).trim().toLowerCase(Locale.ROOT);
+        for (MediaFormat format : FORMATS) {
+            if (format.mediaType.equals(type)) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Selects the format of a response by the {@code Accept} header, which is the first
+     * listed media type of a known format. Wildcards and unknown types fall back to JSON.
+     *
+     * @param accept value of the {@code Accept} header, may be null
+     * @return format of the response
+     */
+    public static MediaFormat negotiate(String accept) {
+        if (accept == null) {
+            return JSON;
+        }
+        for (String range : accept.split(",")) {
+            final MediaFormat format = ofContentType(range);
+            if (format != null) {
+                return format;
+            }
+        }
+        return JSON;
+    }
+
+    /**
+     * Format negotiated for the response of the current exchange
+     *
+     * @param exchange exchange of the current request
+     * @return format of the response, JSON if nothing was negotiated
+     */
+    public static MediaFormat responseFormat(Exchange exchange) {
+        final MediaFormat format = exchange.getProperty(RESPONSE_FORMAT, MediaFormat.class);
+        return format == null ? JSON : format;
+    }
+}
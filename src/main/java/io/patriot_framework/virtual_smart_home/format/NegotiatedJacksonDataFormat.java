@@ -0,0 +1,82 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.format;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.camel.Exchange;
+import org.apache.camel.component.jackson.JacksonDataFormat;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * JSON data format of the REST binding which also reads and writes binary formats
+ *
+ * The REST binding always works in JSON mode, the actual format of a body is taken from
+ * the exchange properties set by {@link FormatNegotiationPolicyFactory}. Binary bodies are
+ * handled by the same {@code ObjectMapper} as JSON, so all formats bind devices alike.
+ * Bodies already serialized to JSON, see {@link SerializedJson}, are written as they are.
+ * The binding resolves the data format by its name {@value #NAME}.
+ */
+public class NegotiatedJacksonDataFormat extends JacksonDataFormat {
+
+    public static final String NAME = "negotiated-json";
+
+    @Override
+    public String getDataFormatName() {
+        return NAME;
+    }
+
+    @Override
+    public void marshal(Exchange exchange, Object graph, OutputStream stream) throws Exception {
+        final MediaFormat format = MediaFormat.responseFormat(exchange);
+        if (graph instanceof SerializedJson && !format.isBinary()) {
+            stream.write(((SerializedJson) graph).getBytes());
+            return;
+        }
+        if (!format.isBinary()) {
+            super.marshal(exchange, graph, stream);
+            return;
+        }
+        final Object value = graph instanceof SerializedJson
+                ? getObjectMapper().readTree(((SerializedJson) graph).getBytes()) : graph;
+        try (JsonGenerator generator = format.getFactory().createGenerator(stream)) {
+            getObjectMapper().writeValue(generator, value);
+        }
+        exchange.getMessage().setHeader(Exchange.CONTENT_TYPE, format.getMediaType());
+    }
+
+    @Override
+    public Object unmarshal(Exchange exchange, InputStream stream) throws Exception {
+        final MediaFormat format = exchange.getProperty(MediaFormat.REQUEST_FORMAT, MediaFormat.class);
+        if (format == null) {
+            return super.unmarshal(exchange, stream);
+        }
+        // Body is decoded, the lossless charset of the raw bytes mustn't apply to the response.
+        exchange.removeProperty(Exchange.CHARSET_NAME);
+        final ObjectMapper mapper = getObjectMapper();
+        final JavaType type = getCollectionType() == null
+                ? mapper.getTypeFactory().constructType(getUnmarshalType())
+                : mapper.getTypeFactory().constructCollectionType(getCollectionType(), getUnmarshalType());
+        try (JsonParser parser = format.getFactory().createParser(stream)) {
+            return mapper.readValue(parser, type);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.format;
+
+/**
+ * Response body which is already serialized to JSON
+ *
+ * {@link NegotiatedJacksonDataFormat} writes the bytes as they are, so a route can answer
+ * from cached representations without serializing anything. Clients which negotiated
+ * a binary format get the same data converted to their format.
+ */
+public final class SerializedJson {
+
+    private final byte[] bytes;
+
+    public SerializedJson(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    public byte[] getBytes() {
+        return bytes;
+    }
+}
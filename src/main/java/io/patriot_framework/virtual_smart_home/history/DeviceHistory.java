@@ -0,0 +1,179 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.history;
+
+import io.patriot_framework.virtual_smart_home.house.device.Actuator;
+import io.patriot_framework.virtual_smart_home.house.device.Device;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * State transitions of a single device in a delta-encoded ring buffer
+ *
+ * A sample takes five bytes, an int with milliseconds since the previous sample and a byte of state,
+ * only the time of the oldest and of the newest sample is kept in full. Arrays start small and grow
+ * up to the maximum number of samples, then the oldest samples are overwritten.
+ */
+final class DeviceHistory {
+
+    static final byte PRESENT = 1;
+    static final byte ENABLED = 2;
+    private static final int INITIAL_CAPACITY = 4;
+
+    private final int maxSamples;
+    private int[] deltas;
+    private byte[] states;
+    private int head;
+    private int size;
+    private long firstTime;
+    private long lastTime;
+    private Class<?> type;
+    private boolean retired;
+
+    DeviceHistory(int maxSamples) {
+        this.maxSamples = maxSamples;
+        final int capacity = Math.min(INITIAL_CAPACITY, maxSamples);
+        this.deltas = new int[capacity];
+        this.states = new byte[capacity];
+    }
+
+    /**
+     * Appends sample unless the state didn't change
+     *
+     * @param time time of the change in milliseconds
+     * @param state encoded state of the device
+     * @param deviceType class of the device, null if the device was removed
+     * @return false if the history was retired by {@link #trim(long)} and the sample has to go to a new history
+     */
+    synchronized boolean record(long time, byte state, Class<?> deviceType) {
+        if (retired) {
+            return false;
+        }
+        if (deviceType != null) {
+            type = deviceType;
+        }
+        if (size > 0 && states[index(size - 1)] == state) {
+            return true;
+        }
+        final int delta;
+        if (size == 0) {
+            delta = 0;
+            firstTime = time;
+            lastTime = time;
+        } else {
+            delta = (int) Math.min(Integer.MAX_VALUE, Math.max(0, time - lastTime));
+            lastTime += delta;
+        }
+        if (size == deltas.length) {
+            if (size < maxSamples) {
+                grow();
+            } else {
+                dropOldest();
+            }
+        }
+        deltas[index(size)] = delta;
+        states[index(size)] = state;
+        size++;
+        return true;
+    }
+
+    /**
+     * Drops samples superseded before given time, the sample in effect at that time is kept.
+     * History of a removed device is retired once its removal is older than given time.
+     *
+     * @param minTime oldest time of interest in milliseconds
+     * @return true if the history was retired and should be forgotten
+     */
+    synchronized boolean trim(long minTime) {
+        while (size > 1 && firstTime + deltas[index(1)] <= minTime) {
+            dropOldest();
+        }
+        if (size == 0 || (states[index(size - 1)] & PRESENT) == 0 && lastTime < minTime) {
+            retired = true;
+        }
+        return retired;
+    }
+
+    /**
+     * Returns samples of given time range
+     *
+     * @param from start of the range in milliseconds, inclusive
+     * @param to end of the range in milliseconds, inclusive
+     * @return samples in the range, from the oldest
+     */
+    synchronized List<HistorySample> range(long from, long to) {
+        final List<HistorySample> samples = new ArrayList<>();
+        long time = firstTime;
+        for (int i = 0; i < size && time <= to; i++) {
+            if (i > 0) {
+                time += deltas[index(i)];
+            }
+            if (time >= from && time <= to) {
+                final byte state = states[index(i)];
+                samples.add(new HistorySample(time, (state & PRESENT) != 0, (state & ENABLED) != 0));
+            }
+        }
+        return samples;
+    }
+
+    synchronized Class<?> getType() {
+        return type;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    private int index(int offset) {
+        return (head + offset) % deltas.length;
+    }
+
+    private void grow() {
+        final int capacity = Math.min(maxSamples, deltas.length * 2);
+        final int[] grownDeltas = new int[capacity];
+        final byte[] grownStates = new byte[capacity];
+        for (int i = 0; i < size; i++) {
+            grownDeltas[i] = deltas[index(i)];
+            grownStates[i] = states[index(i)];
+        }
+        deltas = grownDeltas;
+        states = grownStates;
+        head = 0;
+    }
+
+    private void dropOldest() {
+        head = (head + 1) % deltas.length;
+        size--;
+        if (size > 0) {
+            firstTime += deltas[head];
+        }
+    }
+
+    /**
+     * Encodes state of the device
+     *
+     * @param device device stored in the house, null if it was removed
+     * @return encoded state
+     */
+    static byte stateOf(Device device) {
+        if (device == null) {
+            return 0;
+        }
+        return device instanceof Actuator && ((Actuator) device).isEnabled() ? PRESENT | ENABLED : PRESENT;
+    }
+}
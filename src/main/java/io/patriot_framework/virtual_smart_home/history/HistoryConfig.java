@@ -0,0 +1,51 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.history;
+
+import io.patriot_framework.virtual_smart_home.house.House;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * History of devices of the default house, served at {@code house/device/{type}/{label}/history}
+ */
+@Configuration
+public class HistoryConfig {
+
+    @Value("${house.history.max-samples:1024}")
+    private int maxSamples;
+    @Value("${house.history.max-age-seconds:3600}")
+    private long maxAgeSeconds;
+
+    /**
+     * Records state transitions of devices of the house, enabled by {@code house.history.enabled=true}
+     *
+     * @param house observed house
+     * @return started history store
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "house.history.enabled", havingValue = "true")
+    public HistoryStore historyStore(House house) {
+        final HistoryStore store = new HistoryStore(house, maxSamples, TimeUnit.SECONDS.toMillis(maxAgeSeconds));
+        store.start();
+        return store;
+    }
+}
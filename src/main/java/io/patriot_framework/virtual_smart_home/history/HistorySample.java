@@ -0,0 +1,60 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.history;
+
+/**
+ * State of a device since a point in time, as returned by history queries
+ */
+public final class HistorySample {
+
+    private final long time;
+    private final boolean present;
+    private final boolean enabled;
+
+    HistorySample(long time, boolean present, boolean enabled) {
+        this.time = time;
+        this.present = present;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Returns time of the transition
+     *
+     * @return milliseconds since the epoch
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Returns whether the device was in the house, false once it was removed
+     *
+     * @return true if the device was present
+     */
+    public boolean isPresent() {
+        return present;
+    }
+
+    /**
+     * Returns state of the device, false for devices other than actuators
+     *
+     * @return true if the actuator was enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+}
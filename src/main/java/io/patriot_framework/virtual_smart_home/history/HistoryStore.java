@@ -0,0 +1,140 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.history;
+
+import io.patriot_framework.virtual_smart_home.house.House;
+import io.patriot_framework.virtual_smart_home.house.HouseListener;
+import io.patriot_framework.virtual_smart_home.house.device.Device;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * History of state transitions of devices in {@code House}
+ *
+ * Every label has its own {@link DeviceHistory}, retention is bounded by the number of samples
+ * per device and by their age. Samples older than the maximum age are trimmed on every write
+ * and by a periodic sweep, which also forgets devices removed longer than the maximum age ago.
+ */
+public final class HistoryStore implements HouseListener, Closeable {
+
+    private static final long SWEEP_PERIOD_MILLIS = 60_000;
+
+    private final House house;
+    private final long maxAgeMillis;
+    private final LongSupplier clock;
+    private final Map<String, DeviceHistory> histories = new ConcurrentHashMap<>();
+    private final Function<String, DeviceHistory> historyFactory;
+    private ScheduledExecutorService sweeper;
+
+    /**
+     * Creates history store of a house
+     *
+     * @param house observed house
+     * @param maxSamples maximum number of samples kept per device
+     * @param maxAgeMillis maximum age of samples in milliseconds
+     * @throws IllegalArgumentException if house is null or any of the limits isn't positive
+     */
+    public HistoryStore(House house, int maxSamples, long maxAgeMillis) throws IllegalArgumentException {
+        this(house, maxSamples, maxAgeMillis, System::currentTimeMillis);
+    }
+
+    HistoryStore(House house, int maxSamples, long maxAgeMillis, LongSupplier clock) throws IllegalArgumentException {
+        if (house == null) {
+            throw new IllegalArgumentException("House can't be null");
+        }
+        if (maxSamples <= 0 || maxAgeMillis <= 0) {
+            throw new IllegalArgumentException("Retention of history must be positive");
+        }
+        this.house = house;
+        this.maxAgeMillis = maxAgeMillis;
+        this.clock = clock;
+        this.historyFactory = label -> new DeviceHistory(maxSamples);
+    }
+
+    /**
+     * Starts recording changes of the house and the periodic sweep
+     */
+    public synchronized void start() {
+        house.addListener(this);
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "house-history");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final long period = Math.min(SWEEP_PERIOD_MILLIS, maxAgeMillis);
+        sweeper.scheduleAtFixedRate(this::sweep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        house.removeListener(this);
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+            sweeper = null;
+        }
+    }
+
+    /**
+     * Records the state of the changed device, unless it's the same as the last recorded one.
+     */
+    @Override
+    public void deviceChanged(String label, Device origDevice, Device device, long version) {
+        final long now = clock.getAsLong();
+        final byte state = DeviceHistory.stateOf(device);
+        final Class<?> type = device == null ? null : device.getClass();
+        DeviceHistory history = histories.computeIfAbsent(label, historyFactory);
+        while (!history.record(now, state, type)) {
+            // The history was retired by a concurrent sweep
+            histories.remove(label, history);
+            history = histories.computeIfAbsent(label, historyFactory);
+        }
+        history.trim(now - maxAgeMillis);
+    }
+
+    /**
+     * Returns samples of a device in given time range
+     *
+     * @param label label of the device
+     * @param type type the device must have had, supertypes such as {@code Actuator} are accepted as well
+     * @param from start of the range in milliseconds since the epoch, inclusive
+     * @param to end of the range in milliseconds since the epoch, inclusive
+     * @return samples in the range from the oldest, null if there is no history of such device
+     */
+    public List<HistorySample> getHistory(String label, Class<? extends Device> type, long from, long to) {
+        final DeviceHistory history = histories.get(label);
+        if (history == null || history.getType() == null || !type.isAssignableFrom(history.getType())) {
+            return null;
+        }
+        return history.range(from, to);
+    }
+
+    /**
+     * Trims all histories by age and forgets devices removed longer than the maximum age ago
+     */
+    public void sweep() {
+        final long minTime = clock.getAsLong() - maxAgeMillis;
+        histories.entrySet().removeIf(entry -> entry.getValue().trim(minTime));
+    }
+}
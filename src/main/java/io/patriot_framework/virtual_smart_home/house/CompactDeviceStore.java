@@ -0,0 +1,1443 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.house;
+
+import io.patriot_framework.virtual_smart_home.house.device.Actuator;
+import io.patriot_framework.virtual_smart_home.house.device.Device;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Columnar store of devices, see {@link HouseStorage#COMPACT}
+ *
+ * Every device takes a slot of a few primitive arrays: offset of its label in a shared byte array,
+ * hash of the label, id of its type, its version and a bit of the enabled state. Labels are encoded
+ * like compact strings, one byte per character unless they need two. Slots are found by labels
+ * through an open-addressing index of slot numbers. Freed slots are reused and the label bytes
+ * are compacted once most of them are garbage.
+ *
+ * Writes hold the write lock of a {@code StampedLock}, reads are optimistic and only fall back
+ * to the read lock if a write interfered. Label bytes are never changed in place, label arrays
+ * are replaced on growth and compaction, so label-ordered snapshots of slots can be sorted
+ * without holding the lock. Enabled actuators are found by scanning the bits of the enabled
+ * state and counted by counters per type, without looking at any other device.
+ */
+final class CompactDeviceStore implements DeviceStore {
+
+    /**
+     * At most this many device classes can be stored, so that sets of them fit in a long.
+     */
+    private static final int MAX_TYPES = Long.SIZE;
+    private static final int MIN_SLOTS = 16;
+    private static final int MIN_COMPACTED_LABELS = 1 << 12;
+    /**
+     * Label offset of a free slot
+     */
+    private static final int FREE = -1;
+    /**
+     * Index entries, other entries are slot numbers + 1
+     */
+    private static final int EMPTY = 0;
+    private static final int REMOVED = -1;
+    /**
+     * Marks the end of slots when reading them one by one
+     */
+    private static final Device END = new Actuator("");
+    private static final String UNMODIFIABLE = "Sorted devices of a compact house are unmodifiable";
+
+    private final StampedLock lock = new StampedLock();
+    private int[] offsets = new int[MIN_SLOTS];
+    private int[] hashes = new int[MIN_SLOTS];
+    private byte[] typeIds = new byte[MIN_SLOTS];
+    private long[] versions = new long[MIN_SLOTS];
+    private long[] enabled = new long[wordsOf(MIN_SLOTS)];
+    private int slotCount;
+    private int[] freeSlots = new int[MIN_SLOTS];
+    private int freeCount;
+    private int[] index = new int[MIN_SLOTS * 2];
+    private int indexUsed;
+    private byte[] labels = new byte[1 << 10];
+    private int labelsSize;
+    private int labelsGarbage;
+    private final Class<?>[] types = new Class<?>[MAX_TYPES];
+    private final Constructor<?>[] constructors = new Constructor<?>[MAX_TYPES];
+    private final int[] typeCounts = new int[MAX_TYPES];
+    private final int[] enabledCounts = new int[MAX_TYPES];
+    private volatile int typeCount;
+    /**
+     * Incremented whenever a label is added or removed or a slot changes its type,
+     * i.e. whenever label-ordered snapshots become stale.
+     */
+    private volatile int structure;
+    /**
+     * Incremented whenever an actuator is enabled or disabled, or an enabled one is removed or changes its type.
+     */
+    private volatile int enabledChanges;
+    private final Map<Long, SortedSlots> sortedSlots = new ConcurrentHashMap<>();
+    private final Map<Long, SortedSlots> sortedEnabledSlots = new ConcurrentHashMap<>();
+
+    @Override
+    public Device get(String label) {
+        return get(label, Device.class);
+    }
+
+    @Override
+    public Device get(String label, Class<?> type) {
+        final int hash = label.hashCode();
+        final long state = read(() -> {
+            final int slot = find(label, hash);
+            return slot < 0 ? -1 : (long) typeIds[slot] << 1 | (isEnabled(slot) ? 1 : 0);
+        });
+        if (state < 0 || !type.isAssignableFrom(types[(int) (state >>> 1)])) {
+            return null;
+        }
+        return create(label, (int) (state >>> 1), (state & 1) != 0);
+    }
+
+    @Override
+    public void update(String label, Device origDevice, Device device, long version)
+            throws IllegalArgumentException {
+        final int hash = label.hashCode();
+        final long stamp = lock.writeLock();
+        try {
+            int slot = find(label, hash);
+            if (device == null) {
+                if (slot >= 0) {
+                    free(slot);
+                }
+                return;
+            }
+            final int typeId = typeId(device.getClass());
+            final boolean enabledState = device instanceof Actuator && ((Actuator) device).isEnabled();
+            boolean wasEnabled = false;
+            if (slot < 0) {
+                slot = allocate(label, hash);
+                typeCounts[typeId]++;
+            } else {
+                wasEnabled = isEnabled(slot);
+                if (wasEnabled) {
+                    enabledCounts[typeIds[slot]]--;
+                }
+                if (typeIds[slot] != typeId) {
+                    typeCounts[typeIds[slot]]--;
+                    typeCounts[typeId]++;
+                    structure++;
+                    enabledChanges += wasEnabled ? 1 : 0;
+                }
+            }
+            if (enabledState) {
+                enabledCounts[typeId]++;
+            }
+            if (enabledState != wasEnabled) {
+                enabledChanges++;
+            }
+            typeIds[slot] = (byte) typeId;
+            setEnabled(slot, enabledState);
+            versions[slot] = version;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public long getVersion(String label) {
+        final int hash = label.hashCode();
+        return read(() -> {
+            final int slot = find(label, hash);
+            return slot < 0 ? 0 : versions[slot];
+        });
+    }
+
+    @Override
+    public Map<String, Device> getDevicesOfType(Class<?> type) {
+        return new TypeView(type);
+    }
+
+    @Override
+    public NavigableMap<String, Device> getSortedDevicesOfType(Class<?> type) {
+        final long mask = typeMask(type);
+        final SortedSlots sorted = sortedSlots(mask, false);
+        return new SortedView(sorted.slots, mask, false, 0, sorted.slots.length, null, false, null, false);
+    }
+
+    @Override
+    public NavigableMap<String, Device> getEnabledDevicesOfType(Class<?> type) {
+        final long mask = typeMask(type);
+        final SortedSlots sorted = sortedSlots(mask, true);
+        return new SortedView(sorted.slots, mask, true, 0, sorted.slots.length, null, false, null, false);
+    }
+
+    @Override
+    public int countDevicesOfType(Class<?> type) {
+        return countOf(typeCounts, typeMask(type));
+    }
+
+    @Override
+    public int countEnabledDevicesOfType(Class<?> type) {
+        return countOf(enabledCounts, typeMask(type));
+    }
+
+    @Override
+    public Set<Class<?>> getDeviceTypes() {
+        final Set<Class<?>> deviceTypes = new HashSet<>();
+        for (int typeId = 0; typeId < typeCount; typeId++) {
+            for (Class<?> type = types[typeId]; Device.class.isAssignableFrom(type); type = type.getSuperclass()) {
+                deviceTypes.add(type);
+            }
+        }
+        return Collections.unmodifiableSet(deviceTypes);
+    }
+
+    @Override
+    public boolean storesInstances() {
+        return false;
+    }
+
+    /**
+     * Runs a read of the columns, optimistically first, under the read lock if a write interfered.
+     * The read must not have any side effects, it may see torn state and fail.
+     */
+    private long read(LongSupplier reader) {
+        final long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                final long result = reader.getAsLong();
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                // Torn read of columns being written, repeated under the lock
+            }
+        }
+        final long readStamp = lock.readLock();
+        try {
+            return reader.getAsLong();
+        } finally {
+            lock.unlockRead(readStamp);
+        }
+    }
+
+    private <T> T readObject(Supplier<T> reader) {
+        final long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                final T result = reader.get();
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                // Torn read of columns being written, repeated under the lock
+            }
+        }
+        final long readStamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(readStamp);
+        }
+    }
+
+    /**
+     * Returns slot of given label, -1 if the label isn't stored.
+     */
+    private int find(String label, int hash) {
+        final int[] slots = index;
+        final int mask = slots.length - 1;
+        for (int i = spread(hash) & mask, probes = 0; probes < slots.length; i = (i + 1) & mask, probes++) {
+            final int entry = slots[i];
+            if (entry == EMPTY) {
+                return -1;
+            }
+            if (entry != REMOVED && hashes[entry - 1] == hash && equalsLabel(labels, offsets[entry - 1], label)) {
+                return entry - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns device stored in a slot if it has one of the types of given mask (and is enabled),
+     * null otherwise, or {@code END} past the last slot.
+     */
+    private Device deviceAt(int slot, long mask, boolean enabledOnly) {
+        return readObject(() -> {
+            if (slot >= slotCount) {
+                return END;
+            }
+            final int offset = offsets[slot];
+            if (offset == FREE || (mask >>> typeIds[slot] & 1) == 0 || enabledOnly && !isEnabled(slot)) {
+                return null;
+            }
+            return create(decodeLabel(labels, offset), typeIds[slot], isEnabled(slot));
+        });
+    }
+
+    private String labelAt(int slot) {
+        return readObject(() -> offsets[slot] == FREE ? null : decodeLabel(labels, offsets[slot]));
+    }
+
+    private Device create(String label, int typeId, boolean enabledState) {
+        final Device device;
+        try {
+            device = (Device) constructors[typeId].newInstance(label);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Device of type " + types[typeId].getName() + " can't be created", e);
+        }
+        if (device instanceof Actuator) {
+            ((Actuator) device).setEnabled(enabledState);
+        }
+        return device;
+    }
+
+    /**
+     * Returns id of a device class, registering it if it wasn't stored yet. Must hold the write lock.
+     */
+    private int typeId(Class<?> type) throws IllegalArgumentException {
+        final int count = typeCount;
+        for (int typeId = 0; typeId < count; typeId++) {
+            if (types[typeId] == type) {
+                return typeId;
+            }
+        }
+        if (count == MAX_TYPES) {
+            throw new IllegalArgumentException("At most " + MAX_TYPES + " device types can be stored compactly");
+        }
+        Constructor<?> constructor = null;
+        try {
+            constructor = type.getConstructor(String.class);
+        } catch (NoSuchMethodException e) {
+            // Reported below together with abstract types
+        }
+        if (constructor == null || Modifier.isAbstract(type.getModifiers())) {
+            throw new IllegalArgumentException("Devices of type " + type.getName()
+                    + " can't be stored compactly, they can't be created from their label");
+        }
+        types[count] = type;
+        constructors[count] = constructor;
+        typeCount = count + 1;
+        return count;
+    }
+
+    /**
+     * Returns set of ids of types assignable to given type, as bits of a long.
+     */
+    private long typeMask(Class<?> type) {
+        long mask = 0;
+        final int count = typeCount;
+        for (int typeId = 0; typeId < count; typeId++) {
+            if (type.isAssignableFrom(types[typeId])) {
+                mask |= 1L << typeId;
+            }
+        }
+        return mask;
+    }
+
+    private int countOf(int[] counts, long mask) {
+        return (int) read(() -> {
+            int count = 0;
+            for (long remaining = mask; remaining != 0; remaining &= remaining - 1) {
+                count += counts[Long.numberOfTrailingZeros(remaining)];
+            }
+            return count;
+        });
+    }
+
+    private boolean isEnabled(int slot) {
+        return (enabled[slot >>> 6] >>> slot & 1) != 0;
+    }
+
+    private void setEnabled(int slot, boolean enabledState) {
+        if (enabledState) {
+            enabled[slot >>> 6] |= 1L << slot;
+        } else {
+            enabled[slot >>> 6] &= ~(1L << slot);
+        }
+    }
+
+    /**
+     * Takes a slot for a new label. Must hold the write lock.
+     */
+    private int allocate(String label, int hash) {
+        final int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            if (slotCount == offsets.length) {
+                growSlots();
+            }
+            slot = slotCount++;
+        }
+        offsets[slot] = appendLabel(label);
+        hashes[slot] = hash;
+        if ((indexUsed + 1) * 4L > index.length * 3L) {
+            rebuildIndex(slotCount - freeCount);
+        }
+        insertIntoIndex(slot, hash);
+        structure++;
+        return slot;
+    }
+
+    /**
+     * Frees slot of a removed label. Must hold the write lock.
+     */
+    private void free(int slot) {
+        final int[] slots = index;
+        final int mask = slots.length - 1;
+        int i = spread(hashes[slot]) & mask;
+        while (slots[i] != slot + 1) {
+            i = (i + 1) & mask;
+        }
+        slots[i] = REMOVED;
+        labelsGarbage += labelLength(labels, offsets[slot]);
+        offsets[slot] = FREE;
+        typeCounts[typeIds[slot]]--;
+        if (isEnabled(slot)) {
+            enabledCounts[typeIds[slot]]--;
+            enabledChanges++;
+        }
+        setEnabled(slot, false);
+        versions[slot] = 0;
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlots.length * 2);
+        }
+        freeSlots[freeCount++] = slot;
+        structure++;
+        if (labelsGarbage > labelsSize / 2 && labelsSize > MIN_COMPACTED_LABELS) {
+            compactLabels();
+        }
+    }
+
+    private void growSlots() {
+        final int capacity = offsets.length * 2;
+        offsets = Arrays.copyOf(offsets, capacity);
+        hashes = Arrays.copyOf(hashes, capacity);
+        typeIds = Arrays.copyOf(typeIds, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+        enabled = Arrays.copyOf(enabled, wordsOf(capacity));
+    }
+
+    private void insertIntoIndex(int slot, int hash) {
+        final int[] slots = index;
+        final int mask = slots.length - 1;
+        int i = spread(hash) & mask;
+        while (slots[i] != EMPTY && slots[i] != REMOVED) {
+            i = (i + 1) & mask;
+        }
+        if (slots[i] == EMPTY) {
+            indexUsed++;
+        }
+        slots[i] = slot + 1;
+    }
+
+    /**
+     * Replaces the index by a new one at most half full, which drops all removed entries.
+     */
+    private void rebuildIndex(int size) {
+        int capacity = MIN_SLOTS * 2;
+        while (capacity < (size + 1) * 2) {
+            capacity *= 2;
+        }
+        index = new int[capacity];
+        indexUsed = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (offsets[slot] != FREE) {
+                insertIntoIndex(slot, hashes[slot]);
+            }
+        }
+    }
+
+    /**
+     * Appends encoded label to the label bytes: a varint header with the number of characters
+     * and a flag of two-byte characters, followed by the characters.
+     */
+    private int appendLabel(String label) {
+        boolean wide = false;
+        for (int i = 0; i < label.length() && !wide; i++) {
+            wide = label.charAt(i) > 0xFF;
+        }
+        final int header = label.length() << 1 | (wide ? 1 : 0);
+        final int length = varintLength(header) + label.length() * (wide ? 2 : 1);
+        if (labelsSize + length > labels.length) {
+            labels = Arrays.copyOf(labels, Math.max(labels.length * 2, labelsSize + length));
+        }
+        final int offset = labelsSize;
+        int position = offset;
+        for (int value = header; ; value >>>= 7) {
+            if ((value & ~0x7F) == 0) {
+                labels[position++] = (byte) value;
+                break;
+            }
+            labels[position++] = (byte) (value & 0x7F | 0x80);
+        }
+        for (int i = 0; i < label.length(); i++) {
+            final char c = label.charAt(i);
+            if (wide) {
+                labels[position++] = (byte) (c >>> 8);
+            }
+            labels[position++] = (byte) c;
+        }
+        labelsSize = position;
+        return offset;
+    }
+
+    /**
+     * Copies labels of all used slots to new label bytes. Must hold the write lock.
+     */
+    private void compactLabels() {
+        final byte[] compacted = new byte[Math.max(labels.length / 2, (labelsSize - labelsGarbage) * 2)];
+        int position = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (offsets[slot] != FREE) {
+                final int length = labelLength(labels, offsets[slot]);
+                System.arraycopy(labels, offsets[slot], compacted, position, length);
+                offsets[slot] = position;
+                position += length;
+            }
+        }
+        labels = compacted;
+        labelsSize = position;
+        labelsGarbage = 0;
+    }
+
+    /**
+     * Returns label-ordered slots of devices of given types, sorting them again only if labels changed.
+     * Slots of enabled devices are found by the set bits of the enabled state.
+     */
+    private SortedSlots sortedSlots(long mask, boolean enabledOnly) {
+        final Map<Long, SortedSlots> cache = enabledOnly ? sortedEnabledSlots : sortedSlots;
+        final SortedSlots cached = cache.get(mask);
+        if (cached != null && cached.stamp == sortedStamp(enabledOnly)) {
+            return cached;
+        }
+        final long builtStamp;
+        final byte[] sortedLabels;
+        final long[] entries;
+        final long stamp = lock.readLock();
+        try {
+            builtStamp = sortedStamp(enabledOnly);
+            sortedLabels = labels;
+            entries = new long[countOf(enabledOnly ? enabledCounts : typeCounts, mask)];
+            int count = 0;
+            if (enabledOnly) {
+                for (int word = 0; word < wordsOf(slotCount); word++) {
+                    for (long bits = enabled[word]; bits != 0; bits &= bits - 1) {
+                        final int slot = word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+                        if ((mask >>> typeIds[slot] & 1) != 0) {
+                            entries[count++] = (long) offsets[slot] << 32 | slot;
+                        }
+                    }
+                }
+            } else {
+                for (int slot = 0; slot < slotCount; slot++) {
+                    if (offsets[slot] != FREE && (mask >>> typeIds[slot] & 1) != 0) {
+                        entries[count++] = (long) offsets[slot] << 32 | slot;
+                    }
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        sortByLabel(entries, new long[entries.length], 0, entries.length, sortedLabels);
+        final int[] slots = new int[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            slots[i] = (int) entries[i];
+        }
+        final SortedSlots sorted = new SortedSlots(builtStamp, slots);
+        cache.put(mask, sorted);
+        return sorted;
+    }
+
+    private long sortedStamp(boolean enabledOnly) {
+        return enabledOnly ? (long) structure << Integer.SIZE | enabledChanges & 0xFFFFFFFFL : structure;
+    }
+
+    /**
+     * Merge sort of {@code offset << 32 | slot} entries by the labels at the offsets.
+     */
+    private static void sortByLabel(long[] entries, long[] buffer, int from, int to, byte[] labelBytes) {
+        if (to - from < 16) {
+            for (int i = from + 1; i < to; i++) {
+                final long entry = entries[i];
+                int j = i - 1;
+                while (j >= from && compareLabels(labelBytes, (int) (entries[j] >>> 32), (int) (entry >>> 32)) > 0) {
+                    entries[j + 1] = entries[j];
+                    j--;
+                }
+                entries[j + 1] = entry;
+            }
+            return;
+        }
+        final int middle = (from + to) >>> 1;
+        sortByLabel(entries, buffer, from, middle, labelBytes);
+        sortByLabel(entries, buffer, middle, to, labelBytes);
+        System.arraycopy(entries, from, buffer, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || left < middle
+                    && compareLabels(labelBytes, (int) (buffer[left] >>> 32), (int) (buffer[right] >>> 32)) <= 0) {
+                entries[i] = buffer[left++];
+            } else {
+                entries[i] = buffer[right++];
+            }
+        }
+    }
+
+    private static int wordsOf(int bits) {
+        return (bits + Long.SIZE - 1) / Long.SIZE;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int varintLength(int value) {
+        int length = 1;
+        for (int remaining = value >>> 7; remaining != 0; remaining >>>= 7) {
+            length++;
+        }
+        return length;
+    }
+
+    private static int readHeader(byte[] labelBytes, int offset) {
+        int header = 0;
+        for (int shift = 0, position = offset; ; shift += 7) {
+            final byte b = labelBytes[position++];
+            header |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return header;
+            }
+        }
+    }
+
+    /**
+     * Returns number of bytes of an encoded label including its header.
+     */
+    private static int labelLength(byte[] labelBytes, int offset) {
+        final int header = readHeader(labelBytes, offset);
+        return varintLength(header) + (header >>> 1) * ((header & 1) + 1);
+    }
+
+    private static char charAt(byte[] labelBytes, int start, boolean wide, int i) {
+        return wide ? (char) ((labelBytes[start + 2 * i] & 0xFF) << 8 | labelBytes[start + 2 * i + 1] & 0xFF)
+                : (char) (labelBytes[start + i] & 0xFF);
+    }
+
+    private static String decodeLabel(byte[] labelBytes, int offset) {
+        final int header = readHeader(labelBytes, offset);
+        final int start = offset + varintLength(header);
+        final boolean wide = (header & 1) != 0;
+        final int length = header >>> 1;
+        if (start + length * (wide ? 2 : 1) > labelBytes.length) {
+            throw new IllegalStateException("Label exceeds the label bytes");
+        }
+        final char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = charAt(labelBytes, start, wide, i);
+        }
+        return new String(chars);
+    }
+
+    private static boolean equalsLabel(byte[] labelBytes, int offset, String label) {
+        final int header = readHeader(labelBytes, offset);
+        if (header >>> 1 != label.length()) {
+            return false;
+        }
+        final int start = offset + varintLength(header);
+        final boolean wide = (header & 1) != 0;
+        for (int i = 0; i < label.length(); i++) {
+            if (charAt(labelBytes, start, wide, i) != label.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares two encoded labels the way {@code String.compareTo} compares them decoded.
+     */
+    private static int compareLabels(byte[] labelBytes, int offset, int otherOffset) {
+        final int header = readHeader(labelBytes, offset);
+        final int otherHeader = readHeader(labelBytes, otherOffset);
+        final int start = offset + varintLength(header);
+        final int otherStart = otherOffset + varintLength(otherHeader);
+        final int length = Math.min(header >>> 1, otherHeader >>> 1);
+        for (int i = 0; i < length; i++) {
+            final char c = charAt(labelBytes, start, (header & 1) != 0, i);
+            final char other = charAt(labelBytes, otherStart, (otherHeader & 1) != 0, i);
+            if (c != other) {
+                return c - other;
+            }
+        }
+        return (header >>> 1) - (otherHeader >>> 1);
+    }
+
+    /**
+     * Slots of devices of some types in the order of their labels
+     */
+    private static final class SortedSlots {
+
+        private final long stamp;
+        private final int[] slots;
+
+        SortedSlots(long stamp, int[] slots) {
+            this.stamp = stamp;
+            this.slots = slots;
+        }
+    }
+
+    /**
+     * Live view of devices of a type
+     */
+    private final class TypeView extends AbstractMap<String, Device> {
+
+        private final Class<?> type;
+
+        TypeView(Class<?> type) {
+            this.type = type;
+        }
+
+        @Override
+        public Device get(Object key) {
+            return key instanceof String ? CompactDeviceStore.this.get((String) key, type) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public int size() {
+            return countOf(typeCounts, typeMask(type));
+        }
+
+        @Override
+        public Set<Entry<String, Device>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, Device>> iterator() {
+                    return new SlotIterator(typeMask(type));
+                }
+
+                @Override
+                public int size() {
+                    return TypeView.this.size();
+                }
+            };
+        }
+    }
+
+    /**
+     * Iterator of devices of some types in the order of their slots
+     */
+    private final class SlotIterator implements Iterator<Map.Entry<String, Device>> {
+
+        private final long mask;
+        private int slot;
+        private Device next;
+
+        SlotIterator(long mask) {
+            this.mask = mask;
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (next == null) {
+                final Device device = deviceAt(slot++, mask, false);
+                if (device == END) {
+                    return;
+                }
+                next = device;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Map.Entry<String, Device> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            final Device device = next;
+            advance();
+            return new AbstractMap.SimpleImmutableEntry<>(device.getLabel(), device);
+        }
+    }
+
+    /**
+     * Label-ordered view of devices of some types over a range of sorted slots
+     *
+     * The slots are a snapshot, so devices added later aren't in the view. Slots freed
+     * and reused for other labels since are skipped if they don't fit the order or the bounds.
+     */
+    private final class SortedView extends AbstractMap<String, Device> implements NavigableMap<String, Device> {
+
+        private final int[] slots;
+        private final long mask;
+        private final boolean enabledOnly;
+        private final int from;
+        private final int to;
+        private final String low;
+        private final boolean lowInclusive;
+        private final String high;
+        private final boolean highInclusive;
+
+        SortedView(int[] slots, long mask, boolean enabledOnly, int from, int to, String low, boolean lowInclusive,
+                   String high, boolean highInclusive) {
+            this.slots = slots;
+            this.mask = mask;
+            this.enabledOnly = enabledOnly;
+            this.from = from;
+            this.to = to;
+            this.low = low;
+            this.lowInclusive = lowInclusive;
+            this.high = high;
+            this.highInclusive = highInclusive;
+        }
+
+        private boolean inRange(String label) {
+            if (low != null) {
+                final int compared = label.compareTo(low);
+                if (compared < 0 || compared == 0 && !lowInclusive) {
+                    return false;
+                }
+            }
+            if (high != null) {
+                final int compared = label.compareTo(high);
+                return compared < 0 || compared == 0 && highInclusive;
+            }
+            return true;
+        }
+
+        /**
+         * Returns the first position of the range whose label is greater than (or equal to) the key.
+         * Positions of freed slots don't matter, as they are skipped anyway.
+         */
+        private int position(String key, boolean inclusive) {
+            int lo = from;
+            int hi = to;
+            while (lo < hi) {
+                final int middle = (lo + hi) >>> 1;
+                int live = middle;
+                String label = null;
+                while (live < hi && (label = labelAt(slots[live])) == null) {
+                    live++;
+                }
+                if (live == hi) {
+                    hi = middle;
+                    continue;
+                }
+                final int compared = label.compareTo(key);
+                if (compared < 0 || compared == 0 && !inclusive) {
+                    lo = live + 1;
+                } else {
+                    hi = middle;
+                }
+            }
+            return lo;
+        }
+
+        @Override
+        public NavigableMap<String, Device> subMap(String fromKey, boolean fromInclusive, String toKey,
+                                                   boolean toInclusive) {
+            String newLow = low;
+            boolean newLowInclusive = lowInclusive;
+            if (fromKey != null && (low == null || fromKey.compareTo(low) > 0
+                    || fromKey.equals(low) && !fromInclusive)) {
+                newLow = fromKey;
+                newLowInclusive = fromInclusive;
+            }
+            String newHigh = high;
+            boolean newHighInclusive = highInclusive;
+            if (toKey != null && (high == null || toKey.compareTo(high) < 0 || toKey.equals(high) && !toInclusive)) {
+                newHigh = toKey;
+                newHighInclusive = toInclusive;
+            }
+            final int newFrom = newLow == null ? from : position(newLow, newLowInclusive);
+            final int newTo = newHigh == null ? to : position(newHigh, !newHighInclusive);
+            return new SortedView(slots, mask, enabledOnly, newFrom, Math.max(newFrom, newTo), newLow,
+                    newLowInclusive, newHigh, newHighInclusive);
+        }
+
+        @Override
+        public NavigableMap<String, Device> headMap(String toKey, boolean inclusive) {
+            return subMap(null, false, toKey, inclusive);
+        }
+
+        @Override
+        public NavigableMap<String, Device> tailMap(String fromKey, boolean inclusive) {
+            return subMap(fromKey, inclusive, null, false);
+        }
+
+        @Override
+        public SortedMap<String, Device> subMap(String fromKey, String toKey) {
+            return subMap(fromKey, true, toKey, false);
+        }
+
+        @Override
+        public SortedMap<String, Device> headMap(String toKey) {
+            return headMap(toKey, false);
+        }
+
+        @Override
+        public SortedMap<String, Device> tailMap(String fromKey) {
+            return tailMap(fromKey, true);
+        }
+
+        @Override
+        public Device get(Object key) {
+            if (!(key instanceof String) || !inRange((String) key)) {
+                return null;
+            }
+            final Device device = CompactDeviceStore.this.get((String) key, Device.class);
+            if (device == null || (mask >>> typeId(device) & 1) == 0
+                    || enabledOnly && !(device instanceof Actuator && ((Actuator) device).isEnabled())) {
+                return null;
+            }
+            return device;
+        }
+
+        private int typeId(Device device) {
+            final int count = typeCount;
+            for (int typeId = 0; typeId < count; typeId++) {
+                if (types[typeId] == device.getClass()) {
+                    return typeId;
+                }
+            }
+            return MAX_TYPES;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public Set<Entry<String, Device>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, Device>> iterator() {
+                    return new SortedIterator();
+                }
+
+                @Override
+                public int size() {
+                    int size = 0;
+                    for (Iterator<Entry<String, Device>> entries = iterator(); entries.hasNext(); entries.next()) {
+                        size++;
+                    }
+                    return size;
+                }
+            };
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return firstEntry() == null;
+        }
+
+        @Override
+        public Entry<String, Device> firstEntry() {
+            final Iterator<Entry<String, Device>> entries = new SortedIterator();
+            return entries.hasNext() ? entries.next() : null;
+        }
+
+        @Override
+        public Entry<String, Device> lastEntry() {
+            for (int position = to - 1; position >= from; position--) {
+                final Device device = deviceAt(slots[position], mask, enabledOnly);
+                if (device != null && device != END && inRange(device.getLabel())) {
+                    return new AbstractMap.SimpleImmutableEntry<>(device.getLabel(), device);
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public Entry<String, Device> lowerEntry(String key) {
+            return headMap(key, false).lastEntry();
+        }
+
+        @Override
+        public Entry<String, Device> floorEntry(String key) {
+            return headMap(key, true).lastEntry();
+        }
+
+        @Override
+        public Entry<String, Device> ceilingEntry(String key) {
+            return tailMap(key, true).firstEntry();
+        }
+
+        @Override
+        public Entry<String, Device> higherEntry(String key) {
+            return tailMap(key, false).firstEntry();
+        }
+
+        @Override
+        public String lowerKey(String key) {
+            return keyOf(lowerEntry(key));
+        }
+
+        @Override
+        public String floorKey(String key) {
+            return keyOf(floorEntry(key));
+        }
+
+        @Override
+        public String ceilingKey(String key) {
+            return keyOf(ceilingEntry(key));
+        }
+
+        @Override
+        public String higherKey(String key) {
+            return keyOf(higherEntry(key));
+        }
+
+        @Override
+        public String firstKey() {
+            return existingKeyOf(firstEntry());
+        }
+
+        @Override
+        public String lastKey() {
+            return existingKeyOf(lastEntry());
+        }
+
+        private String keyOf(Entry<String, Device> entry) {
+            return entry == null ? null : entry.getKey();
+        }
+
+        private String existingKeyOf(Entry<String, Device> entry) {
+            if (entry == null) {
+                throw new NoSuchElementException();
+            }
+            return entry.getKey();
+        }
+
+        @Override
+        public Comparator<? super String> comparator() {
+            return null;
+        }
+
+        @Override
+        public Entry<String, Device> pollFirstEntry() {
+            throw new UnsupportedOperationException(UNMODIFIABLE);
+        }
+
+        @Override
+        public Entry<String, Device> pollLastEntry() {
+            throw new UnsupportedOperationException(UNMODIFIABLE);
+        }
+
+        @Override
+        public NavigableMap<String, Device> descendingMap() {
+            return new DescendingView(this);
+        }
+
+        @Override
+        public Set<String> keySet() {
+            return navigableKeySet();
+        }
+
+        @Override
+        public NavigableSet<String> navigableKeySet() {
+            return new KeySetView(this);
+        }
+
+        @Override
+        public NavigableSet<String> descendingKeySet() {
+            return descendingMap().navigableKeySet();
+        }
+
+        /**
+         * Iterator of the view skipping freed slots and reused slots out of order or bounds
+         */
+        private final class SortedIterator implements Iterator<Entry<String, Device>> {
+
+            private final boolean descending;
+            private int position;
+            private Device next;
+            private String last;
+
+            SortedIterator() {
+                this(false);
+            }
+
+            SortedIterator(boolean descending) {
+                this.descending = descending;
+                this.position = descending ? to - 1 : from;
+                advance();
+            }
+
+            private void advance() {
+                next = null;
+                while (next == null && position >= from && position < to) {
+                    final Device device = deviceAt(slots[position], mask, enabledOnly);
+                    position += descending ? -1 : 1;
+                    if (device != null && device != END && inRange(device.getLabel()) && inOrder(device.getLabel())) {
+                        next = device;
+                        last = device.getLabel();
+                    }
+                }
+            }
+
+            private boolean inOrder(String label) {
+                if (last == null) {
+                    return true;
+                }
+                final int compared = last.compareTo(label);
+                return descending ? compared > 0 : compared < 0;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Entry<String, Device> next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                final Device device = next;
+                advance();
+                return new AbstractMap.SimpleImmutableEntry<>(device.getLabel(), device);
+            }
+        }
+    }
+
+    /**
+     * Reverse-ordered view of a {@link SortedView}
+     */
+    private final class DescendingView extends AbstractMap<String, Device> implements NavigableMap<String, Device> {
+
+        private final SortedView ascending;
+
+        DescendingView(SortedView ascending) {
+            this.ascending = ascending;
+        }
+
+        @Override
+        public Device get(Object key) {
+            return ascending.get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return ascending.containsKey(key);
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return ascending.isEmpty();
+        }
+
+        @Override
+        public Set<Entry<String, Device>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, Device>> iterator() {
+                    return ascending.new SortedIterator(true);
+                }
+
+                @Override
+                public int size() {
+                    return ascending.size();
+                }
+            };
+        }
+
+        @Override
+        public NavigableMap<String, Device> subMap(String fromKey, boolean fromInclusive, String toKey,
+                                                   boolean toInclusive) {
+            return ascending.subMap(toKey, toInclusive, fromKey, fromInclusive).descendingMap();
+        }
+
+        @Override
+        public NavigableMap<String, Device> headMap(String toKey, boolean inclusive) {
+            return ascending.tailMap(toKey, inclusive).descendingMap();
+        }
+
+        @Override
+        public NavigableMap<String, Device> tailMap(String fromKey, boolean inclusive) {
+            return ascending.headMap(fromKey, inclusive).descendingMap();
+        }
+
+        @Override
+        public SortedMap<String, Device> subMap(String fromKey, String toKey) {
+            return subMap(fromKey, true, toKey, false);
+        }
+
+        @Override
+        public SortedMap<String, Device> headMap(String toKey) {
+            return headMap(toKey, false);
+        }
+
+        @Override
+        public SortedMap<String, Device> tailMap(String fromKey) {
+            return tailMap(fromKey, true);
+        }
+
+        @Override
+        public Entry<String, Device> firstEntry() {
+            return ascending.lastEntry();
+        }
+
+        @Override
+        public Entry<String, Device> lastEntry() {
+            return ascending.firstEntry();
+        }
+
+        @Override
+        public Entry<String, Device> lowerEntry(String key) {
+            return ascending.higherEntry(key);
+        }
+
+        @Override
+        public Entry<String, Device> floorEntry(String key) {
+            return ascending.ceilingEntry(key);
+        }
+
+        @Override
+        public Entry<String, Device> ceilingEntry(String key) {
+            return ascending.floorEntry(key);
+        }
+
+        @Override
+        public Entry<String, Device> higherEntry(String key) {
+            return ascending.lowerEntry(key);
+        }
+
+        @Override
+        public String lowerKey(String key) {
+            return ascending.higherKey(key);
+        }
+
+        @Override
+        public String floorKey(String key) {
+            return ascending.ceilingKey(key);
+        }
+
+        @Override
+        public String ceilingKey(String key) {
+            return ascending.floorKey(key);
+        }
+
+        @Override
+        public String higherKey(String key) {
+            return ascending.lowerKey(key);
+        }
+
+        @Override
+        public String firstKey() {
+            return ascending.lastKey();
+        }
+
+        @Override
+        public String lastKey() {
+            return ascending.firstKey();
+        }
+
+        @Override
+        public Comparator<? super String> comparator() {
+            return Collections.reverseOrder();
+        }
+
+        @Override
+        public Entry<String, Device> pollFirstEntry() {
+            throw new UnsupportedOperationException(UNMODIFIABLE);
+        }
+
+        @Override
+        public Entry<String, Device> pollLastEntry() {
+            throw new UnsupportedOperationException(UNMODIFIABLE);
+        }
+
+        @Override
+        public NavigableMap<String, Device> descendingMap() {
+            return ascending;
+        }
+
+        @Override
+        public Set<String> keySet() {
+            return navigableKeySet();
+        }
+
+        @Override
+        public NavigableSet<String> navigableKeySet() {
+            return new KeySetView(this);
+        }
+
+        @Override
+        public NavigableSet<String> descendingKeySet() {
+            return ascending.navigableKeySet();
+        }
+    }
+
+    /**
+     * Labels of a sorted or descending view, in the order of the view
+     */
+    private static final class KeySetView extends AbstractSet<String> implements NavigableSet<String> {
+
+        private final NavigableMap<String, Device> map;
+
+        KeySetView(NavigableMap<String, Device> map) {
+            this.map = map;
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            final Iterator<Map.Entry<String, Device>> entries = map.entrySet().iterator();
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return entries.hasNext();
+                }
+
+                @Override
+                public String next() {
+                    return entries.next().getKey();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return map.isEmpty();
+        }
+
+        @Override
+        public boolean contains(Object key) {
+            return map.containsKey(key);
+        }
+
+        @Override
+        public String lower(String key) {
+            return map.lowerKey(key);
+        }
+
+        @Override
+        public String floor(String key) {
+            return map.floorKey(key);
+        }
+
+        @Override
+        public String ceiling(String key) {
+            return map.ceilingKey(key);
+        }
+
+        @Override
+        public String higher(String key) {
+            return map.higherKey(key);
+        }
+
+        @Override
+        public String first() {
+            return map.firstKey();
+        }
+
+        @Override
+        public String last() {
+            return map.lastKey();
+        }
+
+        @Override
+        public String pollFirst() {
+            throw new UnsupportedOperationException(UNMODIFIABLE);
+        }
+
+        @Override
+        public String pollLast() {
+            throw new UnsupportedOperationException(UNMODIFIABLE);
+        }
+
+        @Override
+        public NavigableSet<String> descendingSet() {
+            return map.descendingKeySet();
+        }
+
+        @Override
+        public Iterator<String> descendingIterator() {
+            return descendingSet().iterator();
+        }
+
+        @Override
+        public NavigableSet<String> subSet(String fromElement, boolean fromInclusive, String toElement,
+                                           boolean toInclusive) {
+            return new KeySetView(map.subMap(fromElement, fromInclusive, toElement, toInclusive));
+        }
+
+        @Override
+        public NavigableSet<String> headSet(String toElement, boolean inclusive) {
+            return new KeySetView(map.headMap(toElement, inclusive));
+        }
+
+        @Override
+        public NavigableSet<String> tailSet(String fromElement, boolean inclusive) {
+            return new KeySetView(map.tailMap(fromElement, inclusive));
+        }
+
+        @Override
+        public SortedSet<String> subSet(String fromElement, String toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+
+        @Override
+        public SortedSet<String> headSet(String toElement) {
+            return headSet(toElement, false);
+        }
+
+        @Override
+        public SortedSet<String> tailSet(String fromElement) {
+            return tailSet(fromElement, true);
+        }
+
+        @Override
+        public Comparator<? super String> comparator() {
+            return map.comparator();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.house;
+
+import io.patriot_framework.virtual_smart_home.house.device.Device;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+
+/**
+ * Storage of devices behind {@code House}, see {@link HouseStorage}
+ *
+ * Reads are lock-free and may run concurrently with any mutation. Mutations of a label are
+ * only made while {@code House} holds the lock of the label, after it checked the preconditions.
+ */
+interface DeviceStore {
+
+    /**
+     * Looks up device with certain label
+     *
+     * @param label label of desired device
+     * @return device with given label, null if there is none
+     */
+    Device get(String label);
+
+    /**
+     * Looks up device with certain label and type
+     *
+     * @param label label of desired device
+     * @param type type of desired device, supertypes such as {@code Actuator} are accepted as well
+     * @return device with given label, null if there is no such device of given type
+     */
+    Device get(String label, Class<?> type);
+
+    /**
+     * Stores new state of a label
+     *
+     * @param label label of changed device
+     * @param origDevice device previously stored under the label, or null
+     * @param device device stored under the label from now on, or null if the device is removed
+     * @param version house version of the change
+     * @throws IllegalArgumentException if the device can't be stored, nothing is changed then
+     */
+    void update(String label, Device origDevice, Device device, long version) throws IllegalArgumentException;
+
+    /**
+     * Returns modification version of single device
+     *
+     * @param label label of the device
+     * @return house version of the last change of the device, 0 if the device isn't stored
+     */
+    long getVersion(String label);
+
+    /**
+     * Returns devices of certain type
+     *
+     * @param type type of desired devices, supertypes such as {@code Actuator} are accepted as well
+     * @return live view of devices of given type by label, not to be modified
+     */
+    Map<String, Device> getDevicesOfType(Class<?> type);
+
+    /**
+     * Returns devices of certain type ordered by their labels
+     *
+     * @param type type of desired devices, supertypes such as {@code Actuator} are accepted as well
+     * @return live view of devices of given type by label, not to be modified
+     */
+    NavigableMap<String, Device> getSortedDevicesOfType(Class<?> type);
+
+    /**
+     * Returns enabled actuators of certain type ordered by their labels, found by an index of the state
+     * without looking at any other device
+     *
+     * @param type type of desired devices, supertypes such as {@code Actuator} are accepted as well
+     * @return label-ordered snapshot of enabled devices of given type by label, not to be modified
+     */
+    NavigableMap<String, Device> getEnabledDevicesOfType(Class<?> type);
+
+    /**
+     * Returns number of devices of certain type without looking at the devices
+     *
+     * @param type type of counted devices, supertypes such as {@code Actuator} are accepted as well
+     * @return number of devices of given type
+     */
+    int countDevicesOfType(Class<?> type);
+
+    /**
+     * Returns number of enabled actuators of certain type without looking at the devices
+     *
+     * @param type type of counted devices, supertypes such as {@code Actuator} are accepted as well
+     * @return number of enabled devices of given type
+     */
+    int countEnabledDevicesOfType(Class<?> type);
+
+    /**
+     * Returns classes of stored devices with all their supertypes and possibly other types that were asked for
+     *
+     * @return view of stored types, not to be modified
+     */
+    Set<Class<?>> getDeviceTypes();
+
+    /**
+     * Tells whether devices are stored as the given instances, so that it's worth caching their serialized forms
+     *
+     * @return true if devices read from the store are the stored instances, false if they're created on every read
+     */
+    boolean storesInstances();
+}
@@ -16,31 +16,98 @@
 
 package io.patriot_framework.virtual_smart_home.house;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.patriot_framework.virtual_smart_home.house.device.Actuator;
 import io.patriot_framework.virtual_smart_home.house.device.Device;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 import javax.management.openmbean.KeyAlreadyExistsException;
 
 /**
  * House class is responsible for management of {@code Device} used in the Virtual Smart Home
+ *
+ * Reads are lock-free. Mutations of a label are serialized by one of a fixed set of lock
+ * stripes, which keeps all the indexes consistent with the primary map without allocating
+ * anything per mutation. Besides the throwing API there is an exception-free core API
+ * ({@code putDeviceIfAbsent}, {@code replaceDeviceIfPresent}, {@code removeDeviceIfPresent},
+ * {@code findDevice}) which reports the outcome by returning the previous device or null.
+ * Devices are kept by a {@link HouseStorage} engine, see {@link #House(String, HouseStorage)}.
  */
 public final class House {
 
     public static final Logger LOGGER = LogManager.getLogger();
+    private static final int LOCK_STRIPES = 64;
+    private static final HouseListener[] NO_LISTENERS = new HouseListener[0];
+    /**
+     * Expected version matching any device, device versions are never negative
+     */
+    private static final long ANY_VERSION = -1;
     private String houseName;
-    private Map<String, Device> devices = new ConcurrentHashMap<>();
+    private final DeviceStore store;
+    /**
+     * Versions handed to mutations before they write, devices are stamped with them.
+     */
+    private final AtomicLong changeVersion = new AtomicLong();
+    /**
+     * Modification version of the house, incremented after every mutation wrote its device.
+     * Types are stamped with it, so a version read before the data is never newer than the data,
+     * even when concurrent mutations of different labels finish in another order than they started.
+     * Both counters are incremented once per mutation, so they are equal while nothing is being written.
+     */
+    private final AtomicLong version = new AtomicLong();
+    private final Map<Class<?>, AtomicLong> typeVersions = new ConcurrentHashMap<>();
+    /**
+     * Serialized forms of devices, each tagged with the device version it was created from,
+     * so that a form created concurrently with a change is never used for the newer version.
+     */
+    private final Map<String, SerializedDevice> serializedDevices = new ConcurrentHashMap<>();
+    private volatile HouseListener[] listeners = NO_LISTENERS;
+    private volatile HouseMetrics metrics = HouseMetrics.NONE;
+    private final Object[] locks = new Object[LOCK_STRIPES];
 
     public House(String houseName) throws IllegalArgumentException {
+        this(houseName, HouseStorage.INDEXED);
+    }
+
+    /**
+     * Creates empty house keeping its devices in given storage
+     *
+     * @param houseName name of the house
+     * @param storage storage engine of devices, see {@link HouseStorage}
+     * @throws IllegalArgumentException if one of the parameters is null
+     */
+    public House(String houseName, HouseStorage storage) throws IllegalArgumentException {
+        this(houseName, storeOf(storage));
+    }
+
+    House(String houseName, DeviceStore store) throws IllegalArgumentException {
         if (houseName == null) {
             throw new IllegalArgumentException("houseName can't be null");
         }
         this.houseName = houseName;
-        LOGGER.debug(String.format("Created new house with name \"%s\"",this.houseName));
+        this.store = store;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        LOGGER.debug("Created new house with name \"{}\"", this.houseName);
+    }
+
+    private static DeviceStore storeOf(HouseStorage storage) throws IllegalArgumentException {
+        if (storage == null) {
+            throw new IllegalArgumentException("storage can't be null");
+        }
+        return storage == HouseStorage.COMPACT ? new CompactDeviceStore() : new IndexedDeviceStore();
     }
 
     /**
@@ -52,17 +119,35 @@ public final class House {
      * @throws KeyAlreadyExistsException if house already contains device with given label
      */
     public void addDevice(String label, Device device) throws IllegalArgumentException, KeyAlreadyExistsException {
-        if (label == null) {
-            throw new IllegalArgumentException("Label of the device can't be null");
+        if (putDeviceIfAbsent(label, device) != null) {
+            throw new KeyAlreadyExistsException(String.format("Device with label: %s is already exists", label));
         }
-        if (device == null) {
-            throw new IllegalArgumentException("Device parameter can't be null");
+    }
+
+    /**
+     * Adds device unless there already is a device with the same label
+     *
+     * @param label string representing device name
+     * @param device actual instance of device
+     * @return device already present under the label, null if the device was added
+     * @throws IllegalArgumentException if one of the parameters is null
+     */
+    public Device putDeviceIfAbsent(String label, Device device) throws IllegalArgumentException {
+        checkLabel(label);
+        checkDevice(device);
+        final long start = startTime();
+        final Device origDevice;
+        synchronized (lockOf(label)) {
+            origDevice = store.get(label);
+            if (origDevice == null) {
+                reindex(label, null, device);
+            }
         }
-        final Device origDevice = devices.putIfAbsent(label, device);
-        if (origDevice != null) {
-            throw new KeyAlreadyExistsException(String.format("Device with label: %s is already exists", label));
+        recordTime(HouseOperation.PUT_DEVICE_IF_ABSENT, start);
+        if (origDevice == null) {
+            LOGGER.debug("Device {} with label {} added to house {}", device, label, houseName);
         }
-        LOGGER.debug(String.format("Device %s with label %s added to house %s", device, label, this.houseName));
+        return origDevice;
     }
 
     /**
@@ -74,10 +159,7 @@ public final class House {
      * @throws NoSuchElementException if device with given label isn't in the House
      */
     public Device getDevice(String label) throws IllegalArgumentException, NoSuchElementException {
-        if (label == null) {
-            throw new IllegalArgumentException("Label of the device can't be null");
-        }
-        final Device device = devices.get(label);
+        final Device device = findDevice(label);
         if (device == null) {
             throw new NoSuchElementException(String.format("Device with label: %s is not present in the house", label));
         } else {
@@ -85,6 +167,89 @@ public final class House {
         }
     }
 
+    /**
+     * Method used to retrieve single device with certain label and type
+     *
+     * @param label label of desired device
+     * @param type type of desired device, supertypes such as {@code Actuator} are accepted as well
+     * @param <T> type of desired device
+     * @return instance of device with given label
+     * @throws IllegalArgumentException if one of the parameters is null
+     * @throws NoSuchElementException if device with given label and type isn't in the House
+     */
+    public <T extends Device> T getDevice(String label, Class<T> type)
+            throws IllegalArgumentException, NoSuchElementException {
+        final T device = findDevice(label, type);
+        if (device == null) {
+            throw new NoSuchElementException(String.format("Device with label: %s and type: %s is not present "
+                    + "in the house", label, type.getSimpleName()));
+        }
+        return device;
+    }
+
+    /**
+     * Looks up single device with certain label
+     *
+     * @param label label of desired device
+     * @return instance of device with given label, null if there is none
+     * @throws IllegalArgumentException if parameter is null
+     */
+    public Device findDevice(String label) throws IllegalArgumentException {
+        checkLabel(label);
+        final long start = startTime();
+        final Device device = store.get(label);
+        recordTime(HouseOperation.FIND_DEVICE, start);
+        return device;
+    }
+
+    /**
+     * Looks up single device with certain label and type
+     *
+     * @param label label of desired device
+     * @param type type of desired device, supertypes such as {@code Actuator} are accepted as well
+     * @param <T> type of desired device
+     * @return instance of device with given label, null if there is no such device of given type
+     * @throws IllegalArgumentException if one of the parameters is null
+     */
+    public <T extends Device> T findDevice(String label, Class<T> type) throws IllegalArgumentException {
+        checkLabel(label);
+        checkType(type);
+        final long start = startTime();
+        final T device = type.cast(store.get(label, type));
+        recordTime(HouseOperation.FIND_DEVICE, start);
+        return device;
+    }
+
+    /**
+     * Returns serialized form of a device, which is created once and reused until the device changes
+     *
+     * @param label label of desired device
+     * @param type type of desired device, supertypes such as {@code Actuator} are accepted as well
+     * @param serializer function creating the serialized form when there is none for the current device
+     * @return serialized form of the device, null if there is no such device of given type
+     * @throws IllegalArgumentException if one of the parameters is null
+     */
+    public byte[] serializeDevice(String label, Class<? extends Device> type,
+                                  Function<? super Device, byte[]> serializer) throws IllegalArgumentException {
+        checkLabel(label);
+        checkType(type);
+        final long deviceVersion = getDeviceVersion(label);
+        final SerializedDevice cached = serializedDevices.get(label);
+        if (cached != null && cached.version == deviceVersion) {
+            return type.isAssignableFrom(cached.type) ? cached.serialized : null;
+        }
+        final Device device = store.get(label, type);
+        if (device == null) {
+            return null;
+        }
+        final byte[] serialized = serializer.apply(device);
+        // The device may have changed meanwhile, the form is then left to the next reader.
+        if (store.storesInstances() && getDeviceVersion(label) == deviceVersion) {
+            serializedDevices.put(label, new SerializedDevice(deviceVersion, device.getClass(), serialized));
+        }
+        return serialized;
+    }
+
     /**
      * Method used to replace device with certain label
      *
@@ -94,18 +259,119 @@ public final class House {
      * @throws NoSuchElementException if house doesn't contains device with given label
      */
     public void updateDevice(String label, Device device) throws IllegalArgumentException, NoSuchElementException {
-        if (label == null) {
-            throw new IllegalArgumentException("Label of the device can't be null");
+        if (replaceDeviceIfPresent(label, device) == null) {
+            throw new NoSuchElementException(String.format("Device with label: %s is not present in the house", label));
         }
-        if (device == null) {
-            throw new IllegalArgumentException("Device parameter can't be null");
+    }
+
+    /**
+     * Replaces device with certain label if there is one
+     *
+     * @param label label of device to be replaced
+     * @param device instance of new device with given label
+     * @return replaced device, null if there was no device with given label and nothing changed
+     * @throws IllegalArgumentException if one of the parameters is null
+     */
+    public Device replaceDeviceIfPresent(String label, Device device) throws IllegalArgumentException {
+        return replaceDeviceIfPresent(label, Device.class, device);
+    }
+
+    /**
+     * Replaces device with certain label if there is one of given type
+     *
+     * @param label label of device to be replaced
+     * @param type type the replaced device must have, supertypes such as {@code Actuator} are accepted as well
+     * @param device instance of new device with given label
+     * @return replaced device, null if there was no device with given label and type and nothing changed
+     * @throws IllegalArgumentException if one of the parameters is null
+     */
+    public Device replaceDeviceIfPresent(String label, Class<? extends Device> type, Device device)
+            throws IllegalArgumentException {
+        return replaceDevice(label, type, ANY_VERSION, device, HouseOperation.REPLACE_DEVICE_IF_PRESENT);
+    }
+
+    /**
+     * Replaces device with certain label if there is one of given type which wasn't changed since given version
+     *
+     * The version is checked and the device replaced while the label is locked, so of concurrent
+     * writers expecting the same version only one succeeds.
+     *
+     * @param label label of device to be replaced
+     * @param type type the replaced device must have, supertypes such as {@code Actuator} are accepted as well
+     * @param expectedVersion version the replaced device must have, see {@link #getDeviceVersion}
+     * @param device instance of new device with given label
+     * @return replaced device, null if there was no device with given label, type and version and nothing changed
+     * @throws IllegalArgumentException if one of the parameters is null
+     */
+    public Device replaceDeviceIfVersion(String label, Class<? extends Device> type, long expectedVersion,
+                                         Device device) throws IllegalArgumentException {
+        return replaceDevice(label, type, expectedVersion, device, HouseOperation.REPLACE_DEVICE_IF_VERSION);
+    }
+
+    /**
+     * Replaces device like {@link #replaceDeviceIfPresent} or {@link #replaceDeviceIfVersion}, but returns
+     * the version the new device was stamped with. Unlike a version read after the call, it can't belong
+     * to a change made by a concurrent writer, so it can be handed to the writer as an entity tag.
+     *
+     * @param label label of device to be replaced
+     * @param type type the replaced device must have, supertypes such as {@code Actuator} are accepted as well
+     * @param expectedVersion version the replaced device must have, negative for any version
+     * @param device instance of new device with given label
+     * @return version of the new device, 0 if there was no device with given label, type and version
+     * @throws IllegalArgumentException if one of the parameters is null
+     */
+    public long replaceDeviceVersioned(String label, Class<? extends Device> type, long expectedVersion,
+                                       Device device) throws IllegalArgumentException {
+        checkLabel(label);
+        checkType(type);
+        checkDevice(device);
+        final long start = startTime();
+        long deviceVersion = 0;
+        synchronized (lockOf(label)) {
+            final Device origDevice = store.get(label);
+            if (type.isInstance(origDevice) && hasVersion(label, expectedVersion < 0 ? ANY_VERSION : expectedVersion)) {
+                deviceVersion = reindex(label, origDevice, device);
+            }
         }
-        if (!devices.containsKey(label)) {
-            throw new NoSuchElementException(String.format("Device with label: %s is not present in the house", label));
+        recordTime(HouseOperation.REPLACE_DEVICE_VERSIONED, start);
+        if (deviceVersion != 0) {
+            LOGGER.debug("At house:{} device with label:{} updated", houseName, label);
+        }
+        return deviceVersion;
+    }
+
+    /**
+     * Modifies device with certain label in place if there is one of given type
+     *
+     * The modification runs while the label is locked, so it can't interleave with replacing or removing
+     * the device, and it must be as quick as a listener. If it reports a change, the device is stamped
+     * with a new version and listeners are notified as if the device was replaced by itself.
+     *
+     * @param label label of device to be modified
+     * @param type type the modified device must have, supertypes such as {@code Actuator} are accepted as well
+     * @param modification modification of the device returning true if the device changed
+     * @param <T> type of the device
+     * @return device stored under the label, null if there was no device with given label and type
+     * @throws IllegalArgumentException if one of the parameters is null
+     */
+    public <T extends Device> T modifyDeviceIfPresent(String label, Class<T> type, Predicate<? super T> modification)
+            throws IllegalArgumentException {
+        checkLabel(label);
+        checkType(type);
+        if (modification == null) {
+            throw new IllegalArgumentException("Modification can't be null");
         }
-        final Device origDevice = devices.put(label, device);
-        LOGGER.debug(String.format("At house:%s device with label:%s updated. "
-                    + "(Device:%s replaced by:%s", houseName, label, origDevice, device));
+        final long start = startTime();
+        final T device;
+        synchronized (lockOf(label)) {
+            final Device stored = store.get(label);
+            device = type.isInstance(stored) ? type.cast(stored) : null;
+            if (device != null && modification.test(device)) {
+                reindex(label, device, device);
+            }
+        }
+        recordTime(HouseOperation.MODIFY_DEVICE_IF_PRESENT, start);
+        return device;
     }
 
     /**
@@ -116,27 +382,144 @@ public final class House {
      * @throws NoSuchElementException if house doesn't contains device with given label
      */
     public void removeDevice(String label) throws IllegalArgumentException, NoSuchElementException {
-        if (label == null) {
-            throw new IllegalArgumentException("Label of the device can't be null");
-        }
-        final Device origDevice = devices.remove(label);
-        if (origDevice == null) {
+        if (removeDeviceIfPresent(label) == null) {
             throw new NoSuchElementException(String.format("Device with label: %s is not present in the house", label));
-        } else {
-            LOGGER.debug(String.format("At house:%s device:%s with label:%s removed.", houseName, origDevice, label));
         }
     }
 
+    /**
+     * Removes device with certain label if there is one
+     *
+     * @param label label of device to be removed
+     * @return removed device, null if there was no device with given label
+     * @throws IllegalArgumentException if label is null
+     */
+    public Device removeDeviceIfPresent(String label) throws IllegalArgumentException {
+        return removeDeviceIfPresent(label, Device.class);
+    }
+
+    /**
+     * Removes device with certain label if there is one of given type
+     *
+     * @param label label of device to be removed
+     * @param type type the removed device must have, supertypes such as {@code Actuator} are accepted as well
+     * @return removed device, null if there was no device with given label and type
+     * @throws IllegalArgumentException if one of the parameters is null
+     */
+    public Device removeDeviceIfPresent(String label, Class<? extends Device> type) throws IllegalArgumentException {
+        return removeDevice(label, type, ANY_VERSION, HouseOperation.REMOVE_DEVICE_IF_PRESENT);
+    }
+
+    /**
+     * Removes device with certain label if there is one of given type which wasn't changed since given version
+     *
+     * @param label label of device to be removed
+     * @param type type the removed device must have, supertypes such as {@code Actuator} are accepted as well
+     * @param expectedVersion version the removed device must have, see {@link #getDeviceVersion}
+     * @return removed device, null if there was no device with given label, type and version
+     * @throws IllegalArgumentException if one of the parameters is null
+     */
+    public Device removeDeviceIfVersion(String label, Class<? extends Device> type, long expectedVersion)
+            throws IllegalArgumentException {
+        return removeDevice(label, type, expectedVersion, HouseOperation.REMOVE_DEVICE_IF_VERSION);
+    }
+
     /**
      * Method used to retrieve devices of certain type stored in house
      *
-     * @param type type of desired devices
+     * The returned map is a live, unmodifiable view backed by the type index,
+     * so lookups in it cost the same as lookups in the house itself. Devices of
+     * a {@link HouseStorage#COMPACT} house are created on every read of the view.
+     *
+     * @param type type of desired devices, supertypes such as {@code Actuator} are accepted as well
      * @return Map of devices of requested type with their labels
      */
     public Map<String, Device> getDevicesOfType(Class<? extends Device> type) {
-        return devices.entrySet().stream()
-                .filter(entry -> type.isInstance(entry.getValue()))
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        final long start = startTime();
+        final Map<String, Device> view = Collections.unmodifiableMap(store.getDevicesOfType(type));
+        recordTime(HouseOperation.GET_DEVICES_OF_TYPE, start);
+        return view;
+    }
+
+    /**
+     * Method used to retrieve devices of certain type ordered by their labels
+     *
+     * The returned map is a live, unmodifiable view, so a page of devices following
+     * a given label can be read in O(log n + page size) via {@code tailMap}. The view of
+     * a {@link HouseStorage#COMPACT} house contains the devices stored when it was created.
+     *
+     * @param type type of desired devices, supertypes such as {@code Actuator} are accepted as well
+     * @return NavigableMap of devices of requested type with their labels
+     */
+    public NavigableMap<String, Device> getSortedDevicesOfType(Class<? extends Device> type) {
+        final long start = startTime();
+        final NavigableMap<String, Device> view =
+                Collections.unmodifiableNavigableMap(store.getSortedDevicesOfType(type));
+        recordTime(HouseOperation.GET_SORTED_DEVICES_OF_TYPE, start);
+        return view;
+    }
+
+    /**
+     * Method used to retrieve enabled actuators of certain type ordered by their labels
+     *
+     * Enabled actuators are indexed by their state, so they are found without looking at
+     * disabled or other devices. The returned map is an unmodifiable snapshot, which is reused
+     * until enabled devices of the type change. The index follows changes made through the house,
+     * e.g. {@code modifyDeviceIfPresent}, not changes of stored instances behind its back.
+     *
+     * @param type type of desired devices, supertypes such as {@code Actuator} are accepted as well
+     * @return NavigableMap of enabled devices of requested type with their labels
+     */
+    public NavigableMap<String, Device> getEnabledDevicesOfType(Class<? extends Device> type) {
+        final long start = startTime();
+        final NavigableMap<String, Device> devices = store.getEnabledDevicesOfType(type);
+        recordTime(HouseOperation.GET_ENABLED_DEVICES_OF_TYPE, start);
+        return devices;
+    }
+
+    /**
+     * Returns number of devices of certain type in constant time
+     *
+     * @param type type of counted devices, supertypes such as {@code Actuator} are accepted as well
+     * @return number of devices of given type
+     */
+    public int countDevicesOfType(Class<? extends Device> type) {
+        final long start = startTime();
+        final int count = store.countDevicesOfType(type);
+        recordTime(HouseOperation.COUNT_DEVICES_OF_TYPE, start);
+        return count;
+    }
+
+    /**
+     * Returns number of actuators of certain type in given state in constant time
+     *
+     * @param type type of counted devices, supertypes such as {@code Actuator} are accepted as well
+     * @param enabled true to count enabled actuators, false to count disabled ones
+     * @return number of actuators of given type and state, 0 if devices of the type can't be actuators
+     */
+    public int countDevicesOfType(Class<? extends Device> type, boolean enabled) {
+        final long start = startTime();
+        final int enabledCount = store.countEnabledDevicesOfType(type);
+        int count = enabledCount;
+        if (!enabled) {
+            final Class<?> actuatorType = Actuator.class.isAssignableFrom(type) ? type
+                    : type.isAssignableFrom(Actuator.class) ? Actuator.class : null;
+            // Both counts are read without a lock, a concurrent change may be seen by one of them only.
+            count = actuatorType == null ? 0 : Math.max(0, store.countDevicesOfType(actuatorType) - enabledCount);
+        }
+        recordTime(HouseOperation.COUNT_DEVICES_OF_TYPE, start);
+        return count;
+    }
+
+    /**
+     * Returns types having an index in the house, i.e. classes of stored devices with all their supertypes
+     * and types that were asked for. Indexes of types without devices are empty.
+     *
+     * @return unmodifiable live view of indexed types
+     */
+    @JsonIgnore
+    public Set<Class<?>> getDeviceTypes() {
+        return store.getDeviceTypes();
     }
 
     /**
@@ -158,8 +541,118 @@ public final class House {
         if (houseName == null) {
             throw new IllegalArgumentException("houseName can't be null");
         }
+        LOGGER.debug("House with name:{} renamed to:{}", this.houseName, houseName);
         this.houseName = houseName;
-        LOGGER.debug(String.format("House with name:%s renamed to:%s", this.houseName, houseName));
+        changeVersion.incrementAndGet();
+        version.incrementAndGet();
+    }
+
+    /**
+     * Returns modification version of the house
+     *
+     * Version is incremented on every change of the house or of its devices, so it can be
+     * used to detect that nothing changed since it was read last time. Read it before
+     * reading the data it should describe.
+     *
+     * @return current version, 0 for a house which was never modified
+     */
+    @JsonIgnore
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Moves modification version of the house forward
+     *
+     * Used when the house state is restored, so that versions of new mutations follow
+     * the versions the restored state had been written with.
+     *
+     * @param minimumVersion version the house should have at least
+     */
+    public void advanceVersion(long minimumVersion) {
+        changeVersion.accumulateAndGet(minimumVersion, Math::max);
+        version.accumulateAndGet(minimumVersion, Math::max);
+    }
+
+    /**
+     * Returns modification version of devices of certain type
+     *
+     * @param type type of devices, supertypes such as {@code Actuator} are accepted as well
+     * @return house version of the last change of device of given type, 0 if there was none
+     */
+    public long getVersionOfType(Class<? extends Device> type) {
+        final AtomicLong typeVersion = typeVersions.get(type);
+        return typeVersion == null ? 0 : typeVersion.get();
+    }
+
+    /**
+     * Returns modification version of single device
+     *
+     * @param label label of the device
+     * @return version of the last change of the device, 0 if the device isn't in the house
+     */
+    public long getDeviceVersion(String label) {
+        return store.getVersion(label);
+    }
+
+    /**
+     * Reads device with certain label while the label is locked
+     *
+     * The reader can't interleave with a change of the device and its listeners, so a listener which starts
+     * tracking a label by reading it this way sees every later change after the read. The reader must be as
+     * quick as a listener.
+     *
+     * @param label label of the device
+     * @param reader reader of the device, which gets null if the device isn't in the house
+     * @throws IllegalArgumentException if one of the parameters is null
+     */
+    public void readDevice(String label, Consumer<Device> reader) throws IllegalArgumentException {
+        checkLabel(label);
+        if (reader == null) {
+            throw new IllegalArgumentException("Reader can't be null");
+        }
+        synchronized (lockOf(label)) {
+            reader.accept(store.get(label));
+        }
+    }
+
+    /**
+     * Registers listener of device mutations
+     *
+     * @param listener listener to be called on every added, replaced or removed device
+     * @throws IllegalArgumentException if listener is null
+     */
+    public synchronized void addListener(HouseListener listener) throws IllegalArgumentException {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener can't be null");
+        }
+        final HouseListener[] extended = Arrays.copyOf(listeners, listeners.length + 1);
+        extended[listeners.length] = listener;
+        listeners = extended;
+    }
+
+    /**
+     * Unregisters listener of device mutations
+     *
+     * @param listener previously registered listener
+     */
+    public synchronized void removeListener(HouseListener listener) {
+        listeners = Arrays.stream(listeners).filter(registered -> registered != listener)
+                .toArray(HouseListener[]::new);
+    }
+
+    /**
+     * Sets receiver of durations of house operations
+     *
+     * @param metrics metrics to be recorded, {@code HouseMetrics.NONE} to stop recording
+     * @throws IllegalArgumentException if metrics are null
+     */
+    @JsonIgnore
+    public void setMetrics(HouseMetrics metrics) throws IllegalArgumentException {
+        if (metrics == null) {
+            throw new IllegalArgumentException("Metrics can't be null");
+        }
+        this.metrics = metrics;
     }
 
     /**
@@ -168,7 +661,7 @@ public final class House {
      * @return Map of devices and their labels
      */
     public Map<String, Device> getDevices() {
-        return Collections.unmodifiableMap(devices);
+        return Collections.unmodifiableMap(store.getDevicesOfType(Device.class));
     }
 
     /**
@@ -181,8 +674,169 @@ public final class House {
         if (devices == null) {
             throw new IllegalArgumentException("Methd parameter devices can't be null");
         }
-        this.devices = devices;
-        LOGGER.debug(String.format("At house:%s devices:%s set instead of devices:%s",
-                houseName, devices, this.devices));
+        final long start = startTime();
+        for (String label : store.getDevicesOfType(Device.class).keySet()) {
+            if (!devices.containsKey(label)) {
+                removeDeviceIfPresent(label);
+            }
+        }
+        devices.forEach((label, device) -> {
+            checkDevice(device);
+            synchronized (lockOf(label)) {
+                reindex(label, store.get(label), device);
+            }
+        });
+        recordTime(HouseOperation.SET_DEVICES, start);
+        LOGGER.debug("At house:{} {} devices set", houseName, devices.size());
+    }
+
+    private static void checkLabel(String label) throws IllegalArgumentException {
+        if (label == null) {
+            throw new IllegalArgumentException("Label of the device can't be null");
+        }
+    }
+
+    private static void checkDevice(Device device) throws IllegalArgumentException {
+        if (device == null) {
+            throw new IllegalArgumentException("Device parameter can't be null");
+        }
+    }
+
+    private static void checkType(Class<?> type) throws IllegalArgumentException {
+        if (type == null) {
+            throw new IllegalArgumentException("Type of the device can't be null");
+        }
+    }
+
+    /**
+     * Reads the clock at the start of an operation, unless no metrics are recorded.
+     */
+    private long startTime() {
+        return metrics == HouseMetrics.NONE ? 0 : System.nanoTime();
+    }
+
+    private void recordTime(HouseOperation operation, long start) {
+        if (start != 0) {
+            metrics.record(operation, System.nanoTime() - start);
+        }
+    }
+
+    private Device replaceDevice(String label, Class<? extends Device> type, long expectedVersion, Device device,
+                                 HouseOperation operation) throws IllegalArgumentException {
+        checkLabel(label);
+        checkType(type);
+        checkDevice(device);
+        final long start = startTime();
+        Device origDevice;
+        synchronized (lockOf(label)) {
+            origDevice = store.get(label);
+            if (type.isInstance(origDevice) && hasVersion(label, expectedVersion)) {
+                reindex(label, origDevice, device);
+            } else {
+                origDevice = null;
+            }
+        }
+        recordTime(operation, start);
+        if (origDevice != null) {
+            LOGGER.debug("At house:{} device with label:{} updated. (Device:{} replaced by:{})",
+                    houseName, label, origDevice, device);
+        }
+        return origDevice;
+    }
+
+    private Device removeDevice(String label, Class<? extends Device> type, long expectedVersion,
+                                HouseOperation operation) throws IllegalArgumentException {
+        checkLabel(label);
+        checkType(type);
+        final long start = startTime();
+        Device origDevice;
+        synchronized (lockOf(label)) {
+            origDevice = store.get(label);
+            if (type.isInstance(origDevice) && hasVersion(label, expectedVersion)) {
+                reindex(label, origDevice, null);
+            } else {
+                origDevice = null;
+            }
+        }
+        recordTime(operation, start);
+        if (origDevice != null) {
+            LOGGER.debug("At house:{} device:{} with label:{} removed.", houseName, origDevice, label);
+        }
+        return origDevice;
+    }
+
+    /**
+     * Checks version of a stored device, must be called while holding the lock of the label.
+     */
+    private boolean hasVersion(String label, long expectedVersion) {
+        return expectedVersion == ANY_VERSION || getDeviceVersion(label) == expectedVersion;
+    }
+
+    /**
+     * Returns lock stripe guarding mutations of given label.
+     */
+    private Object lockOf(String label) {
+        final int hash = label.hashCode();
+        return locks[(hash ^ (hash >>> 16)) & (LOCK_STRIPES - 1)];
+    }
+
+    /**
+     * Changes the device stored under the label and stamps the label with a new change version.
+     * Once the device is written, the house version is incremented and all the affected types are
+     * stamped with it. Listeners are notified afterwards. Must be called while holding the lock of the label.
+     *
+     * @param label label of changed device
+     * @param origDevice device previously stored under the label, or null
+     * @param device device stored under the label from now on, or null
+     * @return version the label was stamped with
+     * @throws IllegalArgumentException if the storage can't store the device, no device is changed then
+     */
+    private long reindex(String label, Device origDevice, Device device) throws IllegalArgumentException {
+        final long deviceVersion = changeVersion.incrementAndGet();
+        try {
+            store.update(label, origDevice, device, deviceVersion);
+        } catch (IllegalArgumentException e) {
+            // Nothing was written, the counters are kept equal anyway
+            version.incrementAndGet();
+            throw e;
+        }
+        final long completedVersion = version.incrementAndGet();
+        if (origDevice != null) {
+            for (Class<?> type = origDevice.getClass(); Device.class.isAssignableFrom(type);
+                 type = type.getSuperclass()) {
+                stampType(type, completedVersion);
+            }
+        }
+        if (device != null) {
+            for (Class<?> type = device.getClass(); Device.class.isAssignableFrom(type); type = type.getSuperclass()) {
+                stampType(type, completedVersion);
+            }
+        }
+        serializedDevices.remove(label);
+        for (HouseListener listener : listeners) {
+            try {
+                listener.deviceChanged(label, origDevice, device, deviceVersion);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Listener {} failed on change of device with label:{}", listener, label, e);
+            }
+        }
+        return deviceVersion;
+    }
+
+    private void stampType(Class<?> type, long completedVersion) {
+        typeVersions.computeIfAbsent(type, key -> new AtomicLong()).accumulateAndGet(completedVersion, Math::max);
+    }
+
+    private static final class SerializedDevice {
+
+        private final long version;
+        private final Class<? extends Device> type;
+        private final byte[] serialized;
+
+        SerializedDevice(long version, Class<? extends Device> type, byte[] serialized) {
+            this.version = version;
+            this.type = type;
+            this.serialized = serialized;
+        }
     }
 }
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.house;
+
+import io.patriot_framework.virtual_smart_home.house.device.Device;
+
+/**
+ * Listener of device mutations in {@code House}
+ *
+ * Listeners are called while the label of the changed device is locked, so changes
+ * of a single label are delivered in order. Implementations must be quick, must not
+ * block and must not modify the house.
+ */
+@FunctionalInterface
+public interface HouseListener {
+
+    /**
+     * Called after a device was added, replaced or removed
+     *
+     * @param label label of the changed device
+     * @param origDevice device previously stored under the label, null if the device was added
+     * @param device device stored under the label from now on, null if the device was removed
+     * @param version version of the change, see {@code House#getDeviceVersion}
+     */
+    void deviceChanged(String label, Device origDevice, Device device, long version);
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.house;
+
+/**
+ * Receiver of durations of {@code House} operations
+ *
+ * Implementations are called on every operation, so they must be quick and shouldn't allocate.
+ */
+@FunctionalInterface
+public interface HouseMetrics {
+
+    /**
+     * Metrics which record nothing, the house doesn't even read the clock while they are set.
+     */
+    HouseMetrics NONE = (operation, nanos) -> { };
+
+    /**
+     * Called after an operation completed
+     *
+     * @param operation completed operation
+     * @param nanos duration of the operation in nanoseconds
+     */
+    void record(HouseOperation operation, long nanos);
+}
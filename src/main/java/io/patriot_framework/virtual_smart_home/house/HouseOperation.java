@@ -0,0 +1,54 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.house;
+
+/**
+ * Operations of {@code House} reported to {@link HouseMetrics}
+ *
+ * Throwing methods such as {@code addDevice} are reported as the operation they delegate to.
+ */
+public enum HouseOperation {
+
+    PUT_DEVICE_IF_ABSENT("putDeviceIfAbsent"),
+    FIND_DEVICE("findDevice"),
+    REPLACE_DEVICE_IF_PRESENT("replaceDeviceIfPresent"),
+    REPLACE_DEVICE_IF_VERSION("replaceDeviceIfVersion"),
+    REPLACE_DEVICE_VERSIONED("replaceDeviceVersioned"),
+    MODIFY_DEVICE_IF_PRESENT("modifyDeviceIfPresent"),
+    REMOVE_DEVICE_IF_PRESENT("removeDeviceIfPresent"),
+    REMOVE_DEVICE_IF_VERSION("removeDeviceIfVersion"),
+    GET_DEVICES_OF_TYPE("getDevicesOfType"),
+    GET_SORTED_DEVICES_OF_TYPE("getSortedDevicesOfType"),
+    GET_ENABLED_DEVICES_OF_TYPE("getEnabledDevicesOfType"),
+    COUNT_DEVICES_OF_TYPE("countDevicesOfType"),
+    SET_DEVICES("setDevices");
+
+    private final String methodName;
+
+    HouseOperation(String methodName) {
+        this.methodName = methodName;
+    }
+
+    /**
+     * Returns name of the {@code House} method implementing the operation
+     *
+     * @return name of the method
+     */
+    public String getMethodName() {
+        return methodName;
+    }
+}
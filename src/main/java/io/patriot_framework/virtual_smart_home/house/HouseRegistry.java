@@ -0,0 +1,178 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.house;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.management.openmbean.KeyAlreadyExistsException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of independent {@code House} instances living in one application
+ *
+ * Houses share no state and no locks, every house keeps its own lock stripes, indexes
+ * and versions. Lookups are a single read of a concurrent map. Created houses keep their
+ * devices in the {@link HouseStorage} of the registry.
+ */
+public final class HouseRegistry {
+
+    public static final Logger LOGGER = LogManager.getLogger();
+    private final Map<String, House> houses = new ConcurrentHashMap<>();
+    private final HouseStorage storage;
+
+    /**
+     * Creates registry of houses with {@link HouseStorage#INDEXED} storage
+     */
+    public HouseRegistry() {
+        this(HouseStorage.INDEXED);
+    }
+
+    /**
+     * Creates registry of houses with given storage
+     *
+     * @param storage storage engine of devices of created houses
+     * @throws IllegalArgumentException if parameter is null
+     */
+    public HouseRegistry(HouseStorage storage) throws IllegalArgumentException {
+        if (storage == null) {
+            throw new IllegalArgumentException("storage can't be null");
+        }
+        this.storage = storage;
+    }
+
+    /**
+     * Method used to create and register new empty house
+     *
+     * @param houseName name of the house
+     * @return created house
+     * @throws IllegalArgumentException if parameter is null
+     * @throws KeyAlreadyExistsException if there already is a house with given name
+     */
+    public House createHouse(String houseName) throws IllegalArgumentException, KeyAlreadyExistsException {
+        final House house = new House(houseName, storage);
+        if (putHouseIfAbsent(house) != null) {
+            throw new KeyAlreadyExistsException(String.format("House with name: %s already exists", houseName));
+        }
+        return house;
+    }
+
+    /**
+     * Returns storage engine of devices of created houses
+     *
+     * @return storage of created houses
+     */
+    public HouseStorage getStorage() {
+        return storage;
+    }
+
+    /**
+     * Registers house unless there already is a house with the same name
+     *
+     * @param house house to be registered
+     * @return house already registered under the name, null if the house was registered
+     * @throws IllegalArgumentException if parameter is null
+     */
+    public House putHouseIfAbsent(House house) throws IllegalArgumentException {
+        if (house == null) {
+            throw new IllegalArgumentException("house can't be null");
+        }
+        final House origHouse = houses.putIfAbsent(house.getHouseName(), house);
+        if (origHouse == null) {
+            LOGGER.debug("House {} registered", house.getHouseName());
+        }
+        return origHouse;
+    }
+
+    /**
+     * Method used to retrieve house with certain name
+     *
+     * @param houseName name of desired house
+     * @return house with given name
+     * @throws IllegalArgumentException if parameter is null
+     * @throws NoSuchElementException if there is no house with given name
+     */
+    public House getHouse(String houseName) throws IllegalArgumentException, NoSuchElementException {
+        final House house = findHouse(houseName);
+        if (house == null) {
+            throw new NoSuchElementException(String.format("House with name: %s is not registered", houseName));
+        }
+        return house;
+    }
+
+    /**
+     * Looks up house with certain name
+     *
+     * @param houseName name of desired house
+     * @return house with given name, null if there is none
+     * @throws IllegalArgumentException if parameter is null
+     */
+    public House findHouse(String houseName) throws IllegalArgumentException {
+        checkHouseName(houseName);
+        return houses.get(houseName);
+    }
+
+    /**
+     * Method used to drop house with certain name
+     *
+     * @param houseName name of house to be dropped
+     * @return dropped house
+     * @throws IllegalArgumentException if parameter is null
+     * @throws NoSuchElementException if there is no house with given name
+     */
+    public House removeHouse(String houseName) throws IllegalArgumentException, NoSuchElementException {
+        final House house = removeHouseIfPresent(houseName);
+        if (house == null) {
+            throw new NoSuchElementException(String.format("House with name: %s is not registered", houseName));
+        }
+        return house;
+    }
+
+    /**
+     * Drops house with certain name if there is one
+     *
+     * @param houseName name of house to be dropped
+     * @return dropped house, null if there was none
+     * @throws IllegalArgumentException if parameter is null
+     */
+    public House removeHouseIfPresent(String houseName) throws IllegalArgumentException {
+        checkHouseName(houseName);
+        final House house = houses.remove(houseName);
+        if (house != null) {
+            LOGGER.debug("House {} dropped", houseName);
+        }
+        return house;
+    }
+
+    /**
+     * Returns all registered houses
+     *
+     * @return unmodifiable live view of houses keyed by their name
+     */
+    public Map<String, House> getHouses() {
+        return Collections.unmodifiableMap(houses);
+    }
+
+    private void checkHouseName(String houseName) throws IllegalArgumentException {
+        if (houseName == null) {
+            throw new IllegalArgumentException("houseName can't be null");
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.house;
+
+/**
+ * Storage engines of {@code House}
+ */
+public enum HouseStorage {
+
+    /**
+     * Devices are stored as they are, indexed by their type and every supertype, and are read
+     * without any copying. Any device type can be stored.
+     */
+    INDEXED,
+    /**
+     * Only labels, types, versions and the enabled state of actuators are stored in a few
+     * primitive arrays, so very large houses take an order of magnitude less memory. Devices are
+     * created from this state on every read, so they must be changed through {@code House} only,
+     * and writes are serialized. Only device types whose whole state is their label (and enabled
+     * state) and which can be created from the label, like {@code Fireplace}, can be stored.
+     */
+    COMPACT
+}
@@ -0,0 +1,319 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.house;
+
+import io.patriot_framework.virtual_smart_home.house.device.Actuator;
+import io.patriot_framework.virtual_smart_home.house.device.Device;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Store of device instances, see {@link HouseStorage#INDEXED}
+ *
+ * Changes of a label don't allocate anything once the label and its types are known.
+ * Enabled actuators are indexed by bitmaps of label ids per type, so they are found
+ * and counted without looking at disabled devices.
+ */
+final class IndexedDeviceStore implements DeviceStore {
+
+    private final Map<String, Device> devices = new ConcurrentHashMap<>();
+    /**
+     * Secondary index of devices keyed by their class and every superclass up to {@code Device}.
+     * Entries are only changed while holding the lock of the label, so the index stays consistent
+     * with the primary map for every label.
+     */
+    private final Map<Class<?>, Map<String, Device>> devicesByType = new ConcurrentHashMap<>();
+    /**
+     * Label-ordered counterpart of {@code devicesByType}, used for paging through devices.
+     */
+    private final Map<Class<?>, NavigableMap<String, Device>> sortedDevicesByType = new ConcurrentHashMap<>();
+    private final Map<String, LabelState> labelStates = new ConcurrentHashMap<>();
+    /**
+     * Bitmaps of ids of enabled actuators keyed by their class and every superclass up to {@code Device}.
+     * Ids and the bitmaps are only changed while holding {@code enabledLock}, which is taken only when
+     * a label is added or removed or when an enabled actuator changes.
+     */
+    private final Map<Class<?>, EnabledIndex> enabledByType = new ConcurrentHashMap<>();
+    private final Object enabledLock = new Object();
+    private String[] labelsById = new String[Long.SIZE];
+    private int[] freeIds = new int[Long.SIZE];
+    private int freeIdCount;
+    private int idCount;
+
+    @Override
+    public Device get(String label) {
+        return devices.get(label);
+    }
+
+    @Override
+    public Device get(String label, Class<?> type) {
+        return typeIndex(type).get(label);
+    }
+
+    /**
+     * Changes the primary map first and then moves the label from type index entries of
+     * the original device to the entries of the new device, the enabled index last.
+     */
+    @Override
+    public void update(String label, Device origDevice, Device device, long version) {
+        if (device == null) {
+            devices.remove(label);
+        } else {
+            devices.put(label, device);
+        }
+        if (origDevice != null) {
+            for (Class<?> type = origDevice.getClass(); Device.class.isAssignableFrom(type);
+                 type = type.getSuperclass()) {
+                if (device == null || !type.isInstance(device)) {
+                    typeIndex(type).remove(label);
+                    sortedTypeIndex(type).remove(label);
+                }
+            }
+        }
+        if (device != null) {
+            for (Class<?> type = device.getClass(); Device.class.isAssignableFrom(type); type = type.getSuperclass()) {
+                typeIndex(type).put(label, device);
+                sortedTypeIndex(type).put(label, device);
+            }
+            LabelState state = labelStates.get(label);
+            if (state == null) {
+                state = new LabelState(allocateId(label));
+                labelStates.put(label, state);
+            }
+            state.version = version;
+            updateEnabled(state, origDevice, device);
+        } else {
+            final LabelState state = labelStates.remove(label);
+            if (state != null) {
+                synchronized (enabledLock) {
+                    if (state.enabled) {
+                        clearEnabled(state.id, origDevice);
+                    }
+                    freeIds = push(freeIds, freeIdCount++, state.id);
+                    labelsById[state.id] = null;
+                }
+            }
+        }
+    }
+
+    @Override
+    public long getVersion(String label) {
+        final LabelState state = labelStates.get(label);
+        return state == null ? 0 : state.version;
+    }
+
+    @Override
+    public Map<String, Device> getDevicesOfType(Class<?> type) {
+        return type == Device.class ? devices : typeIndex(type);
+    }
+
+    @Override
+    public NavigableMap<String, Device> getSortedDevicesOfType(Class<?> type) {
+        return sortedTypeIndex(type);
+    }
+
+    /**
+     * Collects labels of the enabled index and sorts them into a snapshot, which is reused
+     * until the enabled devices of the type change.
+     */
+    @Override
+    public NavigableMap<String, Device> getEnabledDevicesOfType(Class<?> type) {
+        final EnabledIndex index = enabledByType.get(type);
+        if (index == null) {
+            return Collections.emptyNavigableMap();
+        }
+        final EnabledSnapshot cached = index.snapshot;
+        if (cached != null && cached.changes == index.changes) {
+            return cached.devices;
+        }
+        final int changes;
+        final String[] labels;
+        synchronized (enabledLock) {
+            changes = index.changes;
+            labels = new String[index.count];
+            int count = 0;
+            for (int word = 0; word < index.bits.length; word++) {
+                for (long bits = index.bits[word]; bits != 0; bits &= bits - 1) {
+                    labels[count++] = labelsById[word * Long.SIZE + Long.numberOfTrailingZeros(bits)];
+                }
+            }
+        }
+        final Map<String, Device> typeIndex = typeIndex(type);
+        final NavigableMap<String, Device> devices = new TreeMap<>();
+        for (String label : labels) {
+            final Device device = typeIndex.get(label);
+            if (device != null) {
+                devices.put(label, device);
+            }
+        }
+        final EnabledSnapshot snapshot = new EnabledSnapshot(changes, Collections.unmodifiableNavigableMap(devices));
+        index.snapshot = snapshot;
+        return snapshot.devices;
+    }
+
+    @Override
+    public int countDevicesOfType(Class<?> type) {
+        final Map<String, Device> index = devicesByType.get(type);
+        return index == null ? 0 : index.size();
+    }
+
+    @Override
+    public int countEnabledDevicesOfType(Class<?> type) {
+        final EnabledIndex index = enabledByType.get(type);
+        return index == null ? 0 : index.count;
+    }
+
+    @Override
+    public Set<Class<?>> getDeviceTypes() {
+        return Collections.unmodifiableSet(devicesByType.keySet());
+    }
+
+    @Override
+    public boolean storesInstances() {
+        return true;
+    }
+
+    /**
+     * Moves the label between enabled indexes, unless it stays disabled or the same enabled instance
+     * stays stored. Must be called while holding the lock of the label.
+     */
+    private void updateEnabled(LabelState state, Device origDevice, Device device) {
+        final boolean enabled = device instanceof Actuator && ((Actuator) device).isEnabled();
+        if (!state.enabled && !enabled || state.enabled && enabled && origDevice == device) {
+            return;
+        }
+        synchronized (enabledLock) {
+            if (state.enabled) {
+                clearEnabled(state.id, origDevice);
+            }
+            if (enabled) {
+                for (Class<?> type = device.getClass(); Device.class.isAssignableFrom(type);
+                     type = type.getSuperclass()) {
+                    enabledByType.computeIfAbsent(type, key -> new EnabledIndex()).set(state.id);
+                }
+            }
+        }
+        state.enabled = enabled;
+    }
+
+    /**
+     * Removes id from enabled indexes of all types of the device. Must hold {@code enabledLock}.
+     */
+    private void clearEnabled(int id, Device device) {
+        for (Class<?> type = device.getClass(); Device.class.isAssignableFrom(type); type = type.getSuperclass()) {
+            enabledByType.get(type).clear(id);
+        }
+    }
+
+    private int allocateId(String label) {
+        synchronized (enabledLock) {
+            final int id = freeIdCount > 0 ? freeIds[--freeIdCount] : idCount++;
+            if (id == labelsById.length) {
+                labelsById = Arrays.copyOf(labelsById, id * 2);
+            }
+            labelsById[id] = label;
+            return id;
+        }
+    }
+
+    private static int[] push(int[] stack, int size, int value) {
+        final int[] extended = size == stack.length ? Arrays.copyOf(stack, size * 2) : stack;
+        extended[size] = value;
+        return extended;
+    }
+
+    /**
+     * Returns index of devices of given type, creating an empty one if no such device was stored yet.
+     */
+    private Map<String, Device> typeIndex(Class<?> type) {
+        return devicesByType.computeIfAbsent(type, key -> new ConcurrentHashMap<>());
+    }
+
+    /**
+     * Returns label-ordered index of devices of given type, creating an empty one if no such device was stored yet.
+     */
+    private NavigableMap<String, Device> sortedTypeIndex(Class<?> type) {
+        return sortedDevicesByType.computeIfAbsent(type, key -> new ConcurrentSkipListMap<>());
+    }
+
+    /**
+     * Stored label, written while holding the lock of the label
+     */
+    private static final class LabelState {
+
+        private final int id;
+        private volatile long version;
+        private boolean enabled;
+
+        LabelState(int id) {
+            this.id = id;
+        }
+    }
+
+    /**
+     * Bitmap of ids of enabled actuators of a type, changed while holding {@code enabledLock}
+     */
+    private static final class EnabledIndex {
+
+        private long[] bits = new long[1];
+        private volatile int count;
+        /**
+         * Incremented on every change of the enabled devices, including replacement by another instance
+         */
+        private volatile int changes;
+        private volatile EnabledSnapshot snapshot;
+
+        void set(int id) {
+            final int word = id / Long.SIZE;
+            if (word >= bits.length) {
+                bits = Arrays.copyOf(bits, Math.max(bits.length * 2, word + 1));
+            }
+            if ((bits[word] & 1L << id) == 0) {
+                bits[word] |= 1L << id;
+                count++;
+            }
+            changes++;
+        }
+
+        void clear(int id) {
+            final int word = id / Long.SIZE;
+            if (word < bits.length && (bits[word] & 1L << id) != 0) {
+                bits[word] &= ~(1L << id);
+                count--;
+                changes++;
+            }
+        }
+    }
+
+    private static final class EnabledSnapshot {
+
+        private final int changes;
+        private final NavigableMap<String, Device> devices;
+
+        EnabledSnapshot(int changes, NavigableMap<String, Device> devices) {
+            this.changes = changes;
+            this.devices = devices;
+        }
+    }
+}
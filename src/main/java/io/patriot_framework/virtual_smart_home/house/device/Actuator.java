@@ -18,13 +18,22 @@ package io.patriot_framework.virtual_smart_home.house.device;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
 /**
  * Simple Device type with ability to manipulate state (enabled/disabled) of {@code Device}
+ *
+ * The state can be changed in place from any thread and is visible to lock-free readers
+ * right away.
  */
 public class Actuator extends Device {
 
     public static final Logger LOGGER = LogManager.getLogger();
-    private boolean enabled = false;
+    private static final AtomicIntegerFieldUpdater<Actuator> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(Actuator.class, "state");
+    private static final int DISABLED = 0;
+    private static final int ENABLED = 1;
+    private volatile int state = DISABLED;
 
     public Actuator(String label) {
         super(label);
@@ -36,7 +45,7 @@ public class Actuator extends Device {
      * @return true if actuator is running, false if actuator is disabled
      */
     public boolean isEnabled() {
-        return enabled;
+        return state == ENABLED;
     }
 
     /**
@@ -45,8 +54,33 @@ public class Actuator extends Device {
      * @param enabled boolean parameter determining if actuator is running or if it's disabled
      */
     public void setEnabled(boolean enabled) {
-        LOGGER.debug(String.format("Actuator with label:%s set from state enabled:%s to state enabled:%s",
-                this.getLabel(), this.enabled, enabled));
-        this.enabled = enabled;
+        changeEnabled(enabled);
+    }
+
+    /**
+     * Sets state of the actuator atomically
+     *
+     * @param enabled boolean parameter determining if actuator is running or if it's disabled
+     * @return true if the state changed, false if the actuator already was in given state
+     */
+    public boolean changeEnabled(boolean enabled) {
+        final int previous = STATE.getAndSet(this, enabled ? ENABLED : DISABLED);
+        LOGGER.debug("Actuator with label:{} set from state enabled:{} to state enabled:{}",
+                this.getLabel(), previous == ENABLED, enabled);
+        return previous != (enabled ? ENABLED : DISABLED);
+    }
+
+    /**
+     * Switches state of the actuator atomically, so concurrent toggles are never lost
+     *
+     * @return new state, true if actuator is running now
+     */
+    public boolean toggle() {
+        int previous;
+        do {
+            previous = state;
+        } while (!STATE.compareAndSet(this, previous, previous ^ ENABLED));
+        LOGGER.debug("Actuator with label:{} toggled to state enabled:{}", this.getLabel(), previous == DISABLED);
+        return previous == DISABLED;
     }
 }
@@ -29,7 +29,7 @@ public abstract class Device {
 
     public Device(String label) {
         this.label = label;
-        LOGGER.debug(String.format("Created new device with label \"%s\"", label));
+        LOGGER.debug("Created new device with label \"{}\"", label);
     }
 
     /**
@@ -0,0 +1,420 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.house.persistence;
+
+import io.patriot_framework.virtual_smart_home.house.House;
+import io.patriot_framework.virtual_smart_home.house.HouseListener;
+import io.patriot_framework.virtual_smart_home.house.device.Device;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Durable storage of {@code House} state in a snapshot and an append-only journal
+ *
+ * Every mutation of the house is appended to the current journal segment by a single writer
+ * thread. The writer collects mutations for up to {@code groupCommitMillis} and syncs them to
+ * disk with a single fsync, so mutations never wait for the disk, and at most the last
+ * group commit window is lost on a crash. Periodically, and on close, the whole house is written
+ * to a compact binary snapshot, a new journal segment is started and older files are deleted.
+ *
+ * On {@link #start()} the latest snapshot is memory-mapped and loaded, and all records of the journal
+ * segments started by it are replayed on top of it. A mutation may have taken a version older than the
+ * snapshot and still be written after it was taken, so records aren't filtered by version. Records are
+ * idempotent - a put carries the whole device state - and changes of a label are journaled in order,
+ * so records already contained in the snapshot are safe to replay.
+ *
+ * Only mutations going through the house are journaled. State changed in place on a stored
+ * device is persisted by the next snapshot.
+ */
+public class HousePersistence implements HouseListener, Closeable {
+
+    public static final Logger LOGGER = LogManager.getLogger();
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+    private static final String JOURNAL_PREFIX = "journal-";
+    private static final String JOURNAL_SUFFIX = ".log";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final String LOCK_FILE = "house.lock";
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final House house;
+    private final Path directory;
+    private final long groupCommitNanos;
+    private final long snapshotIntervalNanos;
+    private final BlockingQueue<JournalEntry> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean running;
+    private volatile long written;
+    private final AtomicLong enqueued = new AtomicLong();
+    private long snapshotVersion = -1;
+    private FileChannel lock;
+    private FileChannel journal;
+    private RecordWriter journalWriter;
+
+    /**
+     * Creates persistence of the house, nothing is read or written before {@link #start()}
+     *
+     * @param house house to be persisted
+     * @param directory directory of snapshot and journal files, created if it doesn't exist
+     * @param groupCommitMillis time mutations are collected before they are synced to disk together,
+     *                          0 syncs every batch of mutations the writer finds waiting
+     * @param snapshotIntervalSeconds interval of periodic snapshots, 0 takes snapshots only on start and close
+     */
+    public HousePersistence(House house, Path directory, long groupCommitMillis, long snapshotIntervalSeconds) {
+        this.house = house;
+        this.directory = directory;
+        this.groupCommitNanos = TimeUnit.MILLISECONDS.toNanos(groupCommitMillis);
+        this.snapshotIntervalNanos = TimeUnit.SECONDS.toNanos(snapshotIntervalSeconds);
+        this.writer = new Thread(this::writeJournal, "house-journal");
+        this.writer.setDaemon(true);
+    }
+
+    /**
+     * Restores the house from the stored state and starts journaling its mutations
+     *
+     * @throws IOException if the stored state can't be read, the journal can't be created
+     *                     or the directory is used by another house
+     */
+    public void start() throws IOException {
+        Files.createDirectories(directory);
+        lock();
+        try {
+            restore();
+        } catch (IOException | RuntimeException e) {
+            lock.close();
+            throw e;
+        }
+        running = true;
+        house.addListener(this);
+        writer.start();
+    }
+
+    /**
+     * Writes remaining mutations, takes a final snapshot and stops journaling
+     *
+     * @throws IOException if the final snapshot can't be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (journal == null) {
+            return;
+        }
+        house.removeListener(this);
+        running = false;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            snapshot();
+        } finally {
+            journal.close();
+            lock.close();
+        }
+    }
+
+    @Override
+    public void deviceChanged(String label, Device origDevice, Device device, long version) {
+        enqueued.incrementAndGet();
+        queue.add(new JournalEntry(version, label, device));
+    }
+
+    /**
+     * Waits until all mutations reported so far are synced to disk
+     */
+    void sync() throws InterruptedException {
+        final long target = enqueued.get();
+        while (written < target && running) {
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * Locks the directory, so that two houses never write to the same files
+     */
+    private void lock() throws IOException {
+        lock = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        boolean locked;
+        try {
+            locked = lock.tryLock() != null;
+        } catch (OverlappingFileLockException e) {
+            locked = false;
+        }
+        if (!locked) {
+            lock.close();
+            throw new IOException(String.format("%s is already used by another house", directory));
+        }
+    }
+
+    private void restore() throws IOException {
+        final long start = System.nanoTime();
+        final Path snapshot = latestFile(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        long restoredVersion = 0;
+        if (snapshot != null) {
+            final RecordReader reader = new RecordReader(map(snapshot), snapshot.toString());
+            restoredVersion = reader.readHeader(RecordFormat.SNAPSHOT_MAGIC);
+            reader.read(new Replay(), false);
+        }
+        final Replay replay = new Replay();
+        final List<Path> segments = files(JOURNAL_PREFIX, JOURNAL_SUFFIX);
+        for (int i = 0; i < segments.size(); i++) {
+            final Path segment = segments.get(i);
+            if (versionOf(segment, JOURNAL_PREFIX, JOURNAL_SUFFIX) < restoredVersion) {
+                // Written before the snapshot was taken, left behind by a crash
+                continue;
+            }
+            final RecordReader reader = new RecordReader(map(segment), segment.toString());
+            reader.readHeader(RecordFormat.JOURNAL_MAGIC);
+            reader.read(replay, i == segments.size() - 1);
+        }
+        house.advanceVersion(Math.max(restoredVersion, replay.lastVersion));
+        LOGGER.info("House {} restored with {} devices from {} in {} ms, {} journal records replayed",
+                house.getHouseName(), house.getDevices().size(), directory,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), replay.applied);
+
+        if (snapshot == null || replay.applied > 0) {
+            snapshot();
+        } else {
+            snapshotVersion = restoredVersion;
+            openJournal(house.getVersion());
+            deleteObsolete(house.getVersion());
+        }
+    }
+
+    /**
+     * Writes the whole house to a new snapshot, starts a new journal segment and deletes files
+     * the snapshot supersedes. Must be called by the writer thread or while it doesn't run.
+     */
+    private void snapshot() throws IOException {
+        final long version = house.getVersion();
+        if (journal != null && version == snapshotVersion) {
+            return;
+        }
+        final long start = System.nanoTime();
+        final Path target = directory.resolve(fileName(SNAPSHOT_PREFIX, version, SNAPSHOT_SUFFIX));
+        final Path temporary = directory.resolve(target.getFileName() + TEMPORARY_SUFFIX);
+        long devices = 0;
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            final RecordWriter snapshotWriter = new RecordWriter(Channels.newOutputStream(channel));
+            snapshotWriter.writeHeader(RecordFormat.SNAPSHOT_MAGIC, version);
+            for (Map.Entry<String, Device> entry : house.getDevices().entrySet()) {
+                final Device device = entry.getValue();
+                snapshotWriter.put(version, entry.getKey(), device.getClass(), RecordFormat.stateOf(device));
+                devices++;
+            }
+            snapshotWriter.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        openJournal(version);
+        deleteObsolete(version);
+        snapshotVersion = version;
+        LOGGER.debug("Snapshot of house {} with {} devices at version {} written in {} ms", house.getHouseName(),
+                devices, version, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private void openJournal(long version) throws IOException {
+        if (journal != null) {
+            journal.close();
+        }
+        journal = FileChannel.open(directory.resolve(fileName(JOURNAL_PREFIX, version, JOURNAL_SUFFIX)),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        journalWriter = new RecordWriter(Channels.newOutputStream(journal));
+        journalWriter.writeHeader(RecordFormat.JOURNAL_MAGIC, version);
+        journalWriter.flush();
+        journal.force(true);
+    }
+
+    /**
+     * Deletes snapshots and journal segments older than the given version, and unfinished snapshots
+     */
+    private void deleteObsolete(long version) throws IOException {
+        final List<Path> obsolete = new ArrayList<>(files(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX + TEMPORARY_SUFFIX));
+        for (Path file : files(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+            if (versionOf(file, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX) < version) {
+                obsolete.add(file);
+            }
+        }
+        for (Path file : files(JOURNAL_PREFIX, JOURNAL_SUFFIX)) {
+            if (versionOf(file, JOURNAL_PREFIX, JOURNAL_SUFFIX) < version) {
+                obsolete.add(file);
+            }
+        }
+        for (Path file : obsolete) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private void writeJournal() {
+        final List<JournalEntry> batch = new ArrayList<>();
+        long nextSnapshot = System.nanoTime() + snapshotIntervalNanos;
+        try {
+            while (running || !queue.isEmpty()) {
+                final JournalEntry first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    collect(batch);
+                    for (JournalEntry entry : batch) {
+                        entry.writeTo(journalWriter);
+                    }
+                    journalWriter.flush();
+                    journal.force(false);
+                    written += batch.size();
+                    batch.clear();
+                }
+                if (snapshotIntervalNanos > 0 && System.nanoTime() - nextSnapshot >= 0) {
+                    snapshot();
+                    nextSnapshot = System.nanoTime() + snapshotIntervalNanos;
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("Journal of house {} can't be written, further mutations won't be persisted",
+                    house.getHouseName(), e);
+            house.removeListener(this);
+            queue.clear();
+            running = false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Adds mutations arriving within the group commit window to the batch
+     */
+    private void collect(List<JournalEntry> batch) throws InterruptedException {
+        final long deadline = System.nanoTime() + groupCommitNanos;
+        for (long remaining = groupCommitNanos; remaining > 0; remaining = deadline - System.nanoTime()) {
+            final JournalEntry entry = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (entry == null) {
+                break;
+            }
+            batch.add(entry);
+        }
+        queue.drainTo(batch);
+    }
+
+    private Path latestFile(String prefix, String suffix) throws IOException {
+        final List<Path> found = files(prefix, suffix);
+        return found.isEmpty() ? null : found.get(found.size() - 1);
+    }
+
+    /**
+     * Lists files with the given prefix and suffix ordered by the version in their name
+     */
+    private List<Path> files(String prefix, String suffix) throws IOException {
+        try (Stream<Path> list = Files.list(directory)) {
+            return list.filter(file -> {
+                final String name = file.getFileName().toString();
+                return name.startsWith(prefix) && name.endsWith(suffix);
+            }).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static String fileName(String prefix, long version, String suffix) {
+        return String.format("%s%020d%s", prefix, version, suffix);
+    }
+
+    private static long versionOf(Path file, String prefix, String suffix) {
+        final String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length()));
+    }
+
+    private static ByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(String.format("%s is too large to be mapped", file));
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * Applies records to the house
+     */
+    private final class Replay implements RecordReader.RecordHandler {
+
+        private long lastVersion;
+        private long applied;
+
+        @Override
+        public void put(long version, String label, Device device) {
+            accept(version);
+            if (house.replaceDeviceIfPresent(label, device) == null) {
+                house.putDeviceIfAbsent(label, device);
+            }
+        }
+
+        @Override
+        public void remove(long version, String label) {
+            accept(version);
+            house.removeDeviceIfPresent(label);
+        }
+
+        private void accept(long version) {
+            lastVersion = Math.max(lastVersion, version);
+            applied++;
+        }
+    }
+
+    /**
+     * Mutation waiting to be written to the journal, with device state captured at the time of the mutation
+     */
+    private static final class JournalEntry {
+
+        private final long version;
+        private final String label;
+        private final Class<? extends Device> type;
+        private final byte state;
+
+        private JournalEntry(long version, String label, Device device) {
+            this.version = version;
+            this.label = label;
+            this.type = device == null ? null : device.getClass();
+            this.state = device == null ? 0 : RecordFormat.stateOf(device);
+        }
+
+        private void writeTo(RecordWriter recordWriter) throws IOException {
+            if (type == null) {
+                recordWriter.remove(version, label);
+            } else {
+                recordWriter.put(version, label, type, state);
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.house.persistence;
+
+import io.patriot_framework.virtual_smart_home.house.device.Actuator;
+import io.patriot_framework.virtual_smart_home.house.device.Device;
+
+/**
+ * Constants of the binary format shared by journal segments and snapshots
+ *
+ * Every file starts with a magic number and a house version, followed by records. A record is
+ * framed by the int length of its body before it and the int CRC-32C checksum of the body after it.
+ * The body is a one byte kind followed by its fields, all written in the {@code DataOutput} byte order:
+ * <ul>
+ *     <li>{@code TYPE} - int type id, string class name of a device type used by later records</li>
+ *     <li>{@code PUT} - long version, string label, int type id, byte device state</li>
+ *     <li>{@code REMOVE} - long version, string label</li>
+ * </ul>
+ * Strings are written as int length followed by UTF-8 bytes. A record with an invalid length or checksum
+ * ends the last journal segment, as it was left by a crash during write, and is an error anywhere else.
+ */
+final class RecordFormat {
+
+    static final int JOURNAL_MAGIC = 0x56534a32;
+    static final int SNAPSHOT_MAGIC = 0x56535332;
+    /**
+     * Length of the record frame, i.e. of the body length and the checksum
+     */
+    static final int FRAME_BYTES = 2 * Integer.BYTES;
+    static final byte TYPE = 1;
+    static final byte PUT = 2;
+    static final byte REMOVE = 3;
+    private static final byte ENABLED = 1;
+
+    private RecordFormat() {
+    }
+
+    /**
+     * Encodes mutable state of the device, which is the only state not passed to the device constructor.
+     */
+    static byte stateOf(Device device) {
+        return device instanceof Actuator && ((Actuator) device).isEnabled() ? ENABLED : 0;
+    }
+
+    /**
+     * Applies state encoded by {@link #stateOf(Device)} to a freshly constructed device.
+     */
+    static void restoreState(Device device, byte state) {
+        if (device instanceof Actuator) {
+            ((Actuator) device).setEnabled((state & ENABLED) != 0);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.house.persistence;
+
+import io.patriot_framework.virtual_smart_home.house.device.Device;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Reads records of a single journal segment or snapshot, see {@link RecordFormat}
+ *
+ * Devices are restored through their constructor taking the label, which all device
+ * types provide for JSON binding, and their state is applied afterwards.
+ */
+final class RecordReader {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private final ByteBuffer buffer;
+    private final String source;
+    private final List<Constructor<? extends Device>> types = new ArrayList<>();
+    private final CRC32C checksum = new CRC32C();
+
+    RecordReader(ByteBuffer buffer, String source) {
+        this.buffer = buffer;
+        this.source = source;
+    }
+
+    /**
+     * Checks magic number of the file and returns the version stored in its header
+     */
+    long readHeader(int magic) throws IOException {
+        if (buffer.remaining() < Integer.BYTES + Long.BYTES || buffer.getInt() != magic) {
+            throw new IOException(String.format("%s is not a valid house persistence file", source));
+        }
+        return buffer.getLong();
+    }
+
+    /**
+     * Passes all records to the handler. In the last journal segment, the first record with an invalid
+     * length or checksum, left by a crash during write, ends the segment. Anywhere else it's an error.
+     *
+     * @param lastSegment whether the file is the last journal segment
+     * @return number of read records
+     */
+    long read(RecordHandler handler, boolean lastSegment) throws IOException {
+        long records = 0;
+        while (buffer.hasRemaining()) {
+            final ByteBuffer body = nextBody();
+            if (body == null) {
+                if (!lastSegment) {
+                    throw new IOException(String.format("Corrupted record at offset %d of %s",
+                            buffer.position(), source));
+                }
+                LOGGER.warn("Invalid record at offset {} of {} and all records after it are ignored",
+                        buffer.position(), source);
+                break;
+            }
+            try {
+                records += readRecord(body, handler);
+            } catch (BufferUnderflowException e) {
+                throw new IOException(String.format("Malformed record in %s", source), e);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Returns body of the next record and moves past it
+     *
+     * @return body of the record, null if its length or checksum is invalid
+     */
+    private ByteBuffer nextBody() {
+        final int position = buffer.position();
+        if (buffer.remaining() < RecordFormat.FRAME_BYTES) {
+            return null;
+        }
+        final int length = buffer.getInt(position);
+        if (length <= 0 || length > buffer.remaining() - RecordFormat.FRAME_BYTES) {
+            return null;
+        }
+        final ByteBuffer body = buffer.slice(position + Integer.BYTES, length);
+        checksum.reset();
+        checksum.update(body.duplicate());
+        if ((int) checksum.getValue() != buffer.getInt(position + Integer.BYTES + length)) {
+            return null;
+        }
+        buffer.position(position + length + RecordFormat.FRAME_BYTES);
+        return body;
+    }
+
+    private int readRecord(ByteBuffer body, RecordHandler handler) throws IOException {
+        final byte kind = body.get();
+        switch (kind) {
+            case RecordFormat.TYPE:
+                readType(body);
+                return 0;
+            case RecordFormat.PUT:
+                final long putVersion = body.getLong();
+                final String label = readString(body);
+                final Constructor<? extends Device> type = typeOf(body.getInt());
+                final byte state = body.get();
+                if (type == null) {
+                    return 0;
+                }
+                handler.put(putVersion, label, newDevice(type, label, state));
+                return 1;
+            case RecordFormat.REMOVE:
+                handler.remove(body.getLong(), readString(body));
+                return 1;
+            default:
+                throw new IOException(String.format("Unknown record kind %d in %s", kind, source));
+        }
+    }
+
+    private void readType(ByteBuffer body) throws IOException {
+        final int typeId = body.getInt();
+        final String name = readString(body);
+        Constructor<? extends Device> constructor = null;
+        try {
+            constructor = Class.forName(name).asSubclass(Device.class).getConstructor(String.class);
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            LOGGER.warn("Devices of type {} in {} can't be restored and are skipped", name, source);
+        }
+        while (types.size() <= typeId) {
+            types.add(null);
+        }
+        types.set(typeId, constructor);
+    }
+
+    private Constructor<? extends Device> typeOf(int typeId) throws IOException {
+        if (typeId < 0 || typeId >= types.size()) {
+            throw new IOException(String.format("Unknown device type %d in %s", typeId, source));
+        }
+        return types.get(typeId);
+    }
+
+    private static Device newDevice(Constructor<? extends Device> type, String label, byte state)
+            throws IOException {
+        final Device device;
+        try {
+            device = type.newInstance(label);
+        } catch (ReflectiveOperationException e) {
+            throw new IOException(String.format("Device %s of type %s can't be restored", label,
+                    type.getDeclaringClass().getName()), e);
+        }
+        RecordFormat.restoreState(device, state);
+        return device;
+    }
+
+    private String readString(ByteBuffer body) throws IOException {
+        final int length = body.getInt();
+        if (length < 0 || length > body.remaining()) {
+            throw new IOException(String.format("Invalid string length %d in %s", length, source));
+        }
+        final byte[] bytes = new byte[length];
+        body.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Receiver of records read from a file
+     */
+    interface RecordHandler {
+
+        void put(long version, String label, Device device);
+
+        void remove(long version, String label);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.house.persistence;
+
+import io.patriot_framework.virtual_smart_home.house.device.Device;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * Writes records of a single journal segment or snapshot, see {@link RecordFormat}
+ *
+ * Body of every record is collected in a reused buffer first, so it can be framed by its length
+ * and checksum.
+ */
+final class RecordWriter implements Flushable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final DataOutputStream output;
+    private final RecordBuffer body = new RecordBuffer();
+    private final DataOutputStream bodyOutput = new DataOutputStream(body);
+    private final CRC32C checksum = new CRC32C();
+    private final Map<Class<?>, Integer> typeIds = new HashMap<>();
+
+    RecordWriter(OutputStream output) {
+        this.output = new DataOutputStream(new BufferedOutputStream(output, BUFFER_SIZE));
+    }
+
+    void writeHeader(int magic, long version) throws IOException {
+        output.writeInt(magic);
+        output.writeLong(version);
+    }
+
+    void put(long version, String label, Class<? extends Device> type, byte state) throws IOException {
+        Integer typeId = typeIds.get(type);
+        if (typeId == null) {
+            typeId = typeIds.size();
+            typeIds.put(type, typeId);
+            bodyOutput.writeByte(RecordFormat.TYPE);
+            bodyOutput.writeInt(typeId);
+            writeString(type.getName());
+            writeRecord();
+        }
+        bodyOutput.writeByte(RecordFormat.PUT);
+        bodyOutput.writeLong(version);
+        writeString(label);
+        bodyOutput.writeInt(typeId);
+        bodyOutput.writeByte(state);
+        writeRecord();
+    }
+
+    void remove(long version, String label) throws IOException {
+        bodyOutput.writeByte(RecordFormat.REMOVE);
+        bodyOutput.writeLong(version);
+        writeString(label);
+        writeRecord();
+    }
+
+    private void writeString(String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        bodyOutput.writeInt(bytes.length);
+        bodyOutput.write(bytes);
+    }
+
+    private void writeRecord() throws IOException {
+        checksum.reset();
+        body.updateChecksum(checksum);
+        output.writeInt(body.size());
+        body.writeTo(output);
+        output.writeInt((int) checksum.getValue());
+        body.reset();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        output.flush();
+    }
+
+    /**
+     * Body of the record being written, exposing its bytes to the checksum without a copy
+     */
+    private static final class RecordBuffer extends ByteArrayOutputStream {
+
+        void updateChecksum(CRC32C crc) {
+            crc.update(buf, 0, count);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.layout;
+
+import io.patriot_framework.virtual_smart_home.house.House;
+import io.patriot_framework.virtual_smart_home.house.HouseListener;
+import io.patriot_framework.virtual_smart_home.house.device.Device;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Layout of {@code House}, i.e. its floors with rooms grouping the devices
+ *
+ * Every device is assigned to at most one {@link Room} by its label. Changes of the house are passed
+ * only to the room of the changed label, which updates its aggregates, so rooms and their summaries
+ * are kept up to date without ever scanning the devices.
+ *
+ * Changes of membership are serialized by the layout. A room reads the current device of an assigned
+ * label while the house holds the lock of the label, so a concurrent change of the device is either
+ * seen by the read or delivered to the room afterwards, never before it.
+ */
+public final class HouseLayout implements HouseListener, Closeable {
+
+    public static final Logger LOGGER = LogManager.getLogger();
+
+    private final House house;
+    private final Map<String, Room> rooms = new ConcurrentHashMap<>();
+    private final Map<String, Room> roomsByLabel = new ConcurrentHashMap<>();
+
+    /**
+     * Creates empty layout of a house
+     *
+     * @param house house whose devices are grouped
+     * @throws IllegalArgumentException if house is null
+     */
+    public HouseLayout(House house) throws IllegalArgumentException {
+        if (house == null) {
+            throw new IllegalArgumentException("House can't be null");
+        }
+        this.house = house;
+    }
+
+    /**
+     * Starts observing changes of the house
+     */
+    public void start() {
+        house.addListener(this);
+    }
+
+    @Override
+    public void close() {
+        house.removeListener(this);
+    }
+
+    /**
+     * Adds room with its devices, which are moved from the rooms they were assigned to
+     *
+     * @param room room to be added
+     * @return true if the room was added, false if there already is a room with the same name
+     * @throws IllegalArgumentException if room is null
+     */
+    public synchronized boolean addRoom(Room room) throws IllegalArgumentException {
+        if (room == null) {
+            throw new IllegalArgumentException("Room can't be null");
+        }
+        if (rooms.putIfAbsent(room.getName(), room) != null) {
+            return false;
+        }
+        room.getDevices().forEach(label -> index(label, room));
+        LOGGER.debug("At house:{} room:{} added to floor:{}", house.getHouseName(), room.getName(), room.getFloor());
+        return true;
+    }
+
+    /**
+     * Removes room, its devices stay in the house without a room
+     *
+     * @param name name of the room
+     * @return removed room, null if there was no room with the name
+     */
+    public synchronized Room removeRoom(String name) {
+        final Room room = rooms.remove(name);
+        if (room != null) {
+            room.getDevices().forEach(label -> roomsByLabel.remove(label, room));
+        }
+        return room;
+    }
+
+    /**
+     * Finds room by name
+     *
+     * @param name name of the room
+     * @return room with the name, null if there is none
+     */
+    public Room findRoom(String name) {
+        return rooms.get(name);
+    }
+
+    /**
+     * Finds room a device is assigned to
+     *
+     * @param label label of the device
+     * @return room of the device, null if it has none
+     */
+    public Room findRoomOfDevice(String label) {
+        return roomsByLabel.get(label);
+    }
+
+    /**
+     * Returns all rooms
+     *
+     * @return unmodifiable view of the rooms
+     */
+    public Collection<Room> getRooms() {
+        return Collections.unmodifiableCollection(rooms.values());
+    }
+
+    /**
+     * Returns rooms on a floor
+     *
+     * @param floor name of the floor
+     * @return rooms on the floor, empty if there are none
+     */
+    public List<Room> getRoomsOfFloor(String floor) {
+        return rooms.values().stream().filter(room -> room.getFloor().equals(floor)).collect(Collectors.toList());
+    }
+
+    /**
+     * Assigns device to a room, it's moved from the room it was assigned to
+     *
+     * @param name name of the room
+     * @param label label of the device, which doesn't have to be in the house yet
+     * @return room of the device, null if there is no room with the name
+     * @throws IllegalArgumentException if label is null
+     */
+    public synchronized Room assignDevice(String name, String label) throws IllegalArgumentException {
+        if (label == null) {
+            throw new IllegalArgumentException("Label can't be null");
+        }
+        final Room room = rooms.get(name);
+        if (room != null && room.add(label)) {
+            index(label, room);
+        }
+        return room;
+    }
+
+    /**
+     * Removes device from a room, the device stays in the house
+     *
+     * @param name name of the room
+     * @param label label of the device
+     * @return the room, null if the device wasn't assigned to it
+     */
+    public synchronized Room unassignDevice(String name, String label) {
+        final Room room = rooms.get(name);
+        if (room == null || !room.remove(label)) {
+            return null;
+        }
+        roomsByLabel.remove(label, room);
+        return room;
+    }
+
+    /**
+     * Updates the room of the label, if there is any.
+     */
+    @Override
+    public void deviceChanged(String label, Device origDevice, Device device, long version) {
+        final Room room = roomsByLabel.get(label);
+        if (room != null) {
+            room.update(label, device);
+        }
+    }
+
+    private void index(String label, Room room) {
+        final Room previous = roomsByLabel.put(label, room);
+        if (previous != null && previous != room) {
+            previous.remove(label);
+        }
+        house.readDevice(label, device -> room.update(label, device));
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.layout;
+
+import io.patriot_framework.virtual_smart_home.house.House;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Layout of the default house, its rooms are managed at {@code house/room}
+ */
+@Configuration
+public class LayoutConfig {
+
+    @Bean(destroyMethod = "close")
+    public HouseLayout houseLayout(House house) {
+        final HouseLayout layout = new HouseLayout(house);
+        layout.start();
+        return layout;
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.layout;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import io.patriot_framework.virtual_smart_home.house.device.Actuator;
+import io.patriot_framework.virtual_smart_home.house.device.Device;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Room on a floor of a house, a group of devices
+ *
+ * Devices are members by label, so they may be assigned before they are added to the house.
+ * The room remembers the type and state of every present member and keeps counts of devices
+ * by type and of enabled actuators, which are updated on every change of a member, so neither
+ * the room nor its summary ever look at other devices.
+ *
+ * <pre>
+ * {"name": "kitchen", "floor": "ground", "devices": ["fireplace"]}
+ * </pre>
+ */
+@JsonPropertyOrder({"name", "floor", "devices"})
+public final class Room {
+
+    private final String name;
+    private final String floor;
+    // Following fields are guarded by this
+    private final Map<String, Member> members = new TreeMap<>();
+    private final Map<Class<?>, int[]> typeCounts = new HashMap<>();
+    private int devices;
+    private int enabledActuators;
+    private List<String> labels;
+
+    /**
+     * Creates room
+     *
+     * @param name unique name of the room
+     * @param floor name of the floor the room is on
+     * @param devices labels of devices assigned to the room, may be null
+     * @throws IllegalArgumentException if name or floor is missing
+     */
+    @JsonCreator
+    public Room(@JsonProperty("name") String name, @JsonProperty("floor") String floor,
+                @JsonProperty("devices") List<String> devices) throws IllegalArgumentException {
+        if (name == null || name.isEmpty() || floor == null || floor.isEmpty()) {
+            throw new IllegalArgumentException("Room must have name and floor");
+        }
+        this.name = name;
+        this.floor = floor;
+        if (devices != null) {
+            devices.forEach(this::add);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getFloor() {
+        return floor;
+    }
+
+    /**
+     * Returns labels of devices assigned to the room, the list is created only after a change of membership
+     *
+     * @return unmodifiable sorted list of the labels
+     */
+    public synchronized List<String> getDevices() {
+        if (labels == null) {
+            labels = Collections.unmodifiableList(new ArrayList<>(members.keySet()));
+        }
+        return labels;
+    }
+
+    /**
+     * Returns aggregates of the devices present in the house, served separately from the room
+     *
+     * @return summary of the room
+     */
+    @JsonIgnore
+    public synchronized RoomSummary getSummary() {
+        final Map<String, Integer> types = new TreeMap<>();
+        typeCounts.forEach((type, count) -> types.put(type.getSimpleName().toLowerCase(), count[0]));
+        return new RoomSummary(name, floor, devices, enabledActuators, types);
+    }
+
+    /**
+     * Assigns device to the room, it's counted once its state is updated
+     *
+     * @param label label of the device
+     * @return true if the device wasn't assigned yet
+     */
+    synchronized boolean add(String label) {
+        if (label == null || members.containsKey(label)) {
+            return false;
+        }
+        members.put(label, new Member());
+        labels = null;
+        return true;
+    }
+
+    /**
+     * Removes device from the room
+     *
+     * @param label label of the device
+     * @return true if the device was assigned
+     */
+    synchronized boolean remove(String label) {
+        final Member member = members.remove(label);
+        if (member == null) {
+            return false;
+        }
+        count(member, -1);
+        labels = null;
+        return true;
+    }
+
+    /**
+     * Records device currently stored under the label, ignored unless the label is assigned to the room.
+     * Updates are idempotent, so a change already seen by the assignment may be applied again.
+     *
+     * @param label label of the device
+     * @param device device stored under the label, null if there is none
+     */
+    synchronized void update(String label, Device device) {
+        final Member member = members.get(label);
+        if (member == null) {
+            return;
+        }
+        count(member, -1);
+        member.type = device == null ? null : device.getClass();
+        member.enabled = device instanceof Actuator && ((Actuator) device).isEnabled();
+        count(member, 1);
+    }
+
+    private void count(Member member, int delta) {
+        if (member.type == null) {
+            return;
+        }
+        devices += delta;
+        if (member.enabled) {
+            enabledActuators += delta;
+        }
+        final int[] count = typeCounts.computeIfAbsent(member.type, type -> new int[1]);
+        count[0] += delta;
+        if (count[0] == 0) {
+            typeCounts.remove(member.type);
+        }
+    }
+
+    /**
+     * Type and state of an assigned device as last counted, type is null while the device isn't in the house
+     */
+    private static final class Member {
+
+        private Class<?> type;
+        private boolean enabled;
+    }
+}
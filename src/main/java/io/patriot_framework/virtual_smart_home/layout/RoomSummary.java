@@ -0,0 +1,72 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.layout;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Aggregates of devices of a {@link Room} present in the house
+ *
+ * <pre>
+ * {"room": "kitchen", "floor": "ground", "devices": 2, "enabledActuators": 1, "types": {"fireplace": 2}}
+ * </pre>
+ */
+@JsonPropertyOrder({"room", "floor", "devices", "enabledActuators", "types"})
+public final class RoomSummary {
+
+    private final String room;
+    private final String floor;
+    private final int devices;
+    private final int enabledActuators;
+    private final Map<String, Integer> types;
+
+    RoomSummary(String room, String floor, int devices, int enabledActuators, Map<String, Integer> types) {
+        this.room = room;
+        this.floor = floor;
+        this.devices = devices;
+        this.enabledActuators = enabledActuators;
+        this.types = Collections.unmodifiableMap(types);
+    }
+
+    public String getRoom() {
+        return room;
+    }
+
+    public String getFloor() {
+        return floor;
+    }
+
+    public int getDevices() {
+        return devices;
+    }
+
+    public int getEnabledActuators() {
+        return enabledActuators;
+    }
+
+    /**
+     * Returns numbers of devices by lower-case simple name of their class
+     *
+     * @return unmodifiable map of the numbers
+     */
+    public Map<String, Integer> getTypes() {
+        return types;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.patriot_framework.virtual_smart_home.house.House;
+import io.patriot_framework.virtual_smart_home.house.HouseListener;
+import io.patriot_framework.virtual_smart_home.house.HouseMetrics;
+import io.patriot_framework.virtual_smart_home.house.HouseOperation;
+import io.patriot_framework.virtual_smart_home.house.device.Device;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exposes {@code House} metrics
+ *
+ * Every {@link HouseOperation} gets a timer {@code house.operations} with percentile histogram
+ * and every device type, including supertypes such as {@code Actuator}, gets a gauge
+ * {@code house.devices} with count of devices of that type. Gauges are registered once
+ * the first device of a type enters the house.
+ */
+public class HouseMeterBinder implements MeterBinder, HouseMetrics, HouseListener {
+
+    public static final String OPERATIONS_METRIC = "house.operations";
+    public static final String DEVICES_METRIC = "house.devices";
+
+    private final House house;
+    private final Timer[] timers = new Timer[HouseOperation.values().length];
+    private final Set<Class<?>> gaugedTypes = ConcurrentHashMap.newKeySet();
+    private volatile MeterRegistry registry;
+
+    public HouseMeterBinder(House house) {
+        this.house = house;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry meterRegistry) {
+        for (HouseOperation operation : HouseOperation.values()) {
+            timers[operation.ordinal()] = Timer.builder(OPERATIONS_METRIC)
+                    .description("Duration of house operations")
+                    .tag("house", house.getHouseName())
+                    .tag("operation", operation.getMethodName())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+        }
+        registry = meterRegistry;
+        house.addListener(this);
+        house.getDevices().values().forEach(this::registerGauges);
+        house.setMetrics(this);
+    }
+
+    @Override
+    public void record(HouseOperation operation, long nanos) {
+        timers[operation.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void deviceChanged(String label, Device origDevice, Device device, long version) {
+        if (device != null) {
+            registerGauges(device);
+        }
+    }
+
+    private void registerGauges(Device device) {
+        for (Class<?> type = device.getClass(); Device.class.isAssignableFrom(type); type = type.getSuperclass()) {
+            if (!gaugedTypes.add(type)) {
+                return;
+            }
+            final Class<? extends Device> deviceType = type.asSubclass(Device.class);
+            Gauge.builder(DEVICES_METRIC, house, measured -> measured.getDevicesOfType(deviceType).size())
+                    .description("Number of devices of a type in house")
+                    .tag("house", house.getHouseName())
+                    .tag("type", deviceType.getSimpleName().toLowerCase())
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.patriot_framework.virtual_smart_home.house.House;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Metrics of the default house and of all routes, exposed through the actuator {@code prometheus} endpoint
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public HouseMeterBinder houseMeterBinder(House house) {
+        return new HouseMeterBinder(house);
+    }
+
+    @Bean
+    public RouteMetricsPolicyFactory routeMetricsPolicyFactory(MeterRegistry registry) {
+        return new RouteMetricsPolicyFactory(registry);
+    }
+}
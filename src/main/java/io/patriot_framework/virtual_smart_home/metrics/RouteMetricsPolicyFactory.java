@@ -0,0 +1,116 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.NamedNode;
+import org.apache.camel.Route;
+import org.apache.camel.spi.RoutePolicy;
+import org.apache.camel.spi.RoutePolicyFactory;
+import org.apache.camel.support.RoutePolicySupport;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Adds latency and response metrics to every Camel route
+ *
+ * Every route gets a timer {@code camel.route} with percentile histogram and a counter
+ * {@code camel.route.responses} per HTTP status the route responded with, both tagged
+ * by the route id. Camel applies the factory to all routes of the context it is registered in.
+ */
+public class RouteMetricsPolicyFactory implements RoutePolicyFactory {
+
+    public static final String ROUTE_METRIC = "camel.route";
+    public static final String RESPONSES_METRIC = "camel.route.responses";
+
+    private final MeterRegistry registry;
+
+    public RouteMetricsPolicyFactory(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public RoutePolicy createRoutePolicy(CamelContext camelContext, String routeId, NamedNode route) {
+        return new RouteMetricsPolicy(registry, routeId);
+    }
+
+    /**
+     * Metrics of a single route
+     */
+    static final class RouteMetricsPolicy extends RoutePolicySupport {
+
+        private static final int MAX_STATUS = 600;
+
+        private final MeterRegistry registry;
+        private final String routeId;
+        private final String startProperty;
+        private final Timer timer;
+        private final AtomicReferenceArray<Counter> responses = new AtomicReferenceArray<>(MAX_STATUS);
+
+        RouteMetricsPolicy(MeterRegistry registry, String routeId) {
+            this.registry = registry;
+            this.routeId = routeId;
+            // Routes call each other, so every route keeps its start time under its own property
+            this.startProperty = "metrics-start-" + routeId;
+            this.timer = Timer.builder(ROUTE_METRIC)
+                    .description("Duration of exchanges processed by route")
+                    .tag("routeId", routeId)
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+
+        @Override
+        public void onExchangeBegin(Route route, Exchange exchange) {
+            exchange.setProperty(startProperty, System.nanoTime());
+        }
+
+        @Override
+        public void onExchangeDone(Route route, Exchange exchange) {
+            final Long start = exchange.getProperty(startProperty, Long.class);
+            if (start != null) {
+                timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            response(statusOf(exchange)).increment();
+        }
+
+        private static int statusOf(Exchange exchange) {
+            if (exchange.isFailed()) {
+                return 500;
+            }
+            final Integer status = exchange.getMessage().getHeader(Exchange.HTTP_RESPONSE_CODE, Integer.class);
+            return status == null || status < 100 || status >= MAX_STATUS ? 200 : status;
+        }
+
+        private Counter response(int status) {
+            Counter counter = responses.get(status);
+            if (counter == null) {
+                counter = Counter.builder(RESPONSES_METRIC)
+                        .description("Responses of route by HTTP status")
+                        .tag("routeId", routeId)
+                        .tag("status", Integer.toString(status))
+                        .register(registry);
+                responses.set(status, counter);
+            }
+            return counter;
+        }
+    }
+}
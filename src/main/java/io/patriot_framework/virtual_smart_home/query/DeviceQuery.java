@@ -0,0 +1,238 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.query;
+
+import io.patriot_framework.virtual_smart_home.house.House;
+import io.patriot_framework.virtual_smart_home.house.device.Actuator;
+import io.patriot_framework.virtual_smart_home.house.device.Device;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiPredicate;
+import java.util.regex.Pattern;
+
+/**
+ * Compiled filter of devices in {@code House}
+ *
+ * A query is parsed once into an index selection and a residual predicate. The type selects
+ * the label-ordered type index, or the index of enabled actuators of the type, an exact label
+ * is looked up directly, and the literal prefix of a label pattern narrows the index to a label
+ * range. Only conditions which can't be answered by the indexes remain in the predicate, composed
+ * of specialized checks, so nothing is interpreted per device. Queries without a label condition
+ * are counted by the indexes alone. Compiled queries are cached by their parameters.
+ */
+public final class DeviceQuery {
+
+    /**
+     * Predicate accepting every device, the residual predicate of queries answered by indexes alone.
+     */
+    public static final BiPredicate<String, Device> ALL = (label, device) -> true;
+    private static final int CACHE_SIZE = 256;
+    private static final Map<String, DeviceQuery> CACHE = new ConcurrentHashMap<>();
+
+    private final String type;
+    private final Boolean enabled;
+    private final boolean byLabel;
+    private final String exactLabel;
+    private final String labelPrefix;
+    private final BiPredicate<String, Device> filter;
+
+    private DeviceQuery(String type, Boolean enabled, boolean byLabel, String exactLabel, String labelPrefix,
+                        BiPredicate<String, Device> filter) {
+        this.type = type;
+        this.enabled = enabled;
+        this.byLabel = byLabel;
+        this.exactLabel = exactLabel;
+        this.labelPrefix = labelPrefix;
+        this.filter = filter;
+    }
+
+    /**
+     * Returns compiled query of given parameters
+     *
+     * @param type case-insensitive simple name of device type, supertypes such as {@code actuator} are accepted
+     *             as well, null for all devices
+     * @param enabled {@code true} or {@code false} to select actuators in the state, null for any device
+     * @param label label, or label pattern where {@code *} matches any characters, null for any label
+     * @return compiled query, null if no parameter is given
+     * @throws IllegalArgumentException if enabled isn't a boolean
+     */
+    public static DeviceQuery compile(String type, String enabled, String label) throws IllegalArgumentException {
+        if (type == null && enabled == null && label == null) {
+            return null;
+        }
+        final String key = type + '\u0000' + enabled + '\u0000' + label;
+        final DeviceQuery cached = CACHE.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        final DeviceQuery query = parse(type, enabled, label);
+        if (CACHE.size() >= CACHE_SIZE) {
+            CACHE.clear();
+        }
+        CACHE.put(key, query);
+        return query;
+    }
+
+    private static DeviceQuery parse(String type, String enabled, String label) throws IllegalArgumentException {
+        BiPredicate<String, Device> filter = ALL;
+        Boolean state = null;
+        if (enabled != null) {
+            if (!enabled.equalsIgnoreCase("true") && !enabled.equalsIgnoreCase("false")) {
+                throw new IllegalArgumentException("Parameter enabled must be true or false");
+            }
+            state = Boolean.parseBoolean(enabled);
+            filter = state ? DeviceQuery::isEnabled : DeviceQuery::isDisabled;
+        }
+        if (label == null || label.equals("*")) {
+            return new DeviceQuery(type, state, false, null, null, filter);
+        }
+        final int wildcard = label.indexOf('*');
+        if (wildcard < 0) {
+            return new DeviceQuery(type, state, true, label, null, filter);
+        }
+        final String prefix = label.substring(0, wildcard);
+        final String rest = label.substring(wildcard);
+        final BiPredicate<String, Device> labelFilter = compileLabelPattern(prefix, rest);
+        return new DeviceQuery(type, state, true, null, prefix.isEmpty() ? null : prefix,
+                labelFilter == null ? filter : filter == ALL ? labelFilter : filter.and(labelFilter));
+    }
+
+    /**
+     * Compiles the part of a label pattern following its literal prefix, which is answered by the label index.
+     *
+     * @return predicate on labels, null if the prefix alone answers the pattern
+     */
+    private static BiPredicate<String, Device> compileLabelPattern(String prefix, String rest) {
+        if (rest.equals("*")) {
+            return null;
+        }
+        final int lastWildcard = rest.lastIndexOf('*');
+        if (lastWildcard == 0) {
+            final String suffix = rest.substring(1);
+            final int minLength = prefix.length() + suffix.length();
+            return (label, device) -> label.length() >= minLength && label.endsWith(suffix);
+        }
+        if (lastWildcard == rest.length() - 1 && rest.indexOf('*', 1) == lastWildcard) {
+            final String infix = rest.substring(1, lastWildcard);
+            final int from = prefix.length();
+            return (label, device) -> label.indexOf(infix, from) >= 0;
+        }
+        final StringJoiner regex = new StringJoiner(".*", Pattern.quote(prefix), "");
+        for (String part : rest.split("\\*", -1)) {
+            regex.add(part.isEmpty() ? "" : Pattern.quote(part));
+        }
+        final Pattern pattern = Pattern.compile(regex.toString(), Pattern.DOTALL);
+        return (label, device) -> pattern.matcher(label).matches();
+    }
+
+    private static boolean isEnabled(String label, Device device) {
+        return device instanceof Actuator && ((Actuator) device).isEnabled();
+    }
+
+    private static boolean isDisabled(String label, Device device) {
+        return device instanceof Actuator && !((Actuator) device).isEnabled();
+    }
+
+    /**
+     * Resolves the type of the query in a house
+     *
+     * @param house queried house
+     * @return type of queried devices, null if the house has no such type
+     */
+    public Class<? extends Device> resolveType(House house) {
+        if (type == null) {
+            return Device.class;
+        }
+        for (Class<?> candidate : house.getDeviceTypes()) {
+            if (candidate.getSimpleName().equalsIgnoreCase(type)) {
+                return candidate.asSubclass(Device.class);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Selects devices by indexes, the result still has to be filtered by {@link #getFilter()}
+     *
+     * @param house queried house
+     * @return label-ordered view of candidate devices, live unless only enabled devices are selected
+     */
+    public NavigableMap<String, Device> select(House house) {
+        final Class<? extends Device> deviceType = resolveType(house);
+        if (deviceType == null) {
+            return Collections.emptyNavigableMap();
+        }
+        final NavigableMap<String, Device> devices = Boolean.TRUE.equals(enabled)
+                ? house.getEnabledDevicesOfType(deviceType) : house.getSortedDevicesOfType(deviceType);
+        if (exactLabel != null) {
+            return devices.subMap(exactLabel, true, exactLabel, true);
+        }
+        if (labelPrefix != null) {
+            final String end = prefixEnd(labelPrefix);
+            return end == null ? devices.tailMap(labelPrefix, true) : devices.subMap(labelPrefix, true, end, false);
+        }
+        return devices;
+    }
+
+    /**
+     * Counts devices matching the query, in constant time unless the query has a label condition
+     *
+     * @param house queried house
+     * @return number of matching devices
+     */
+    public int count(House house) {
+        final Class<? extends Device> deviceType = resolveType(house);
+        if (deviceType == null) {
+            return 0;
+        }
+        if (!byLabel) {
+            return enabled == null ? house.countDevicesOfType(deviceType)
+                    : house.countDevicesOfType(deviceType, enabled);
+        }
+        int count = 0;
+        for (Map.Entry<String, Device> entry : select(house).entrySet()) {
+            if (filter.test(entry.getKey(), entry.getValue())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the least string greater than all strings with the prefix, null if there is none.
+     */
+    private static String prefixEnd(String prefix) {
+        int end = prefix.length();
+        while (end > 0 && prefix.charAt(end - 1) == Character.MAX_VALUE) {
+            end--;
+        }
+        return end == 0 ? null : prefix.substring(0, end - 1) + (char) (prefix.charAt(end - 1) + 1);
+    }
+
+    /**
+     * Returns residual predicate of devices selected by {@link #select(House)}
+     *
+     * @return predicate on label and device, {@link #ALL} if the selection needs no filtering
+     */
+    public BiPredicate<String, Device> getFilter() {
+        return filter;
+    }
+}
@@ -17,17 +17,38 @@
 package io.patriot_framework.virtual_smart_home.route;
 
 import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
 import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
+import io.patriot_framework.virtual_smart_home.history.HistorySample;
+import io.patriot_framework.virtual_smart_home.history.HistoryStore;
+import io.patriot_framework.virtual_smart_home.house.House;
+import io.patriot_framework.virtual_smart_home.house.device.Actuator;
 import io.patriot_framework.virtual_smart_home.house.device.Device;
+import io.patriot_framework.virtual_smart_home.query.DeviceQuery;
 import org.apache.camel.Exchange;
 import org.apache.catalina.connector.Response;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+
 /**
  * REST API base class for device routes.
  */
 public abstract class AbstractDeviceRoute extends HouseRoute {
 
+    public static final String DEVICE_PATH = "device/";
+    public static final String BULK_PATH = "_bulk";
+    private static final String HISTORY_PATH = "history";
+    @Autowired(required = false) HistoryStore historyStore;
+    private final ObjectMapper mapper = new ObjectMapper();
     private String endpoint;
     private Class<? extends Device> deviceType;
 
@@ -42,7 +63,42 @@ public abstract class AbstractDeviceRoute extends HouseRoute {
      */
     @Override
     public void configure() {
+        for (String route : Arrays.asList(getRoute(), getNamespacedRoute())) {
+            configureRest(route);
+        }
+        // History is recorded for the default house only
         rest(getRoute())
+                .get("{label}/" + HISTORY_PATH)
+                    .produces(MediaType.APPLICATION_JSON_VALUE)
+                    .to("direct:history" + endpoint);
+
+        onException(UnrecognizedPropertyException.class)
+                .setHeader(Exchange.HTTP_RESPONSE_CODE, constant(Response.SC_BAD_REQUEST))
+                .handled(true);
+
+        onException(JsonParseException.class)
+                .setHeader(Exchange.HTTP_RESPONSE_CODE, constant(Response.SC_BAD_REQUEST))
+                .handled(true);
+
+        // Also an empty document, e.g. a binary body without any value
+        onException(MismatchedInputException.class)
+                .setHeader(Exchange.HTTP_RESPONSE_CODE, constant(Response.SC_BAD_REQUEST))
+                .handled(true);
+
+        handleGet();
+        handleCount();
+        handlePost();
+        handlePut();
+        handleDelete();
+        handleBulk();
+        handleHistory();
+        if (Actuator.class.isAssignableFrom(deviceType)) {
+            handleCommand();
+        }
+    }
+
+    private void configureRest(String route) {
+        rest(route)
                 .get("{label}")
                     .produces(MediaType.APPLICATION_JSON_VALUE)
                     .to("direct:read" + endpoint)
@@ -51,6 +107,10 @@ public abstract class AbstractDeviceRoute extends HouseRoute {
                     .produces(MediaType.APPLICATION_JSON_VALUE)
                     .to("direct:read" + endpoint + "s")
 
+                .get(COUNT_PATH)
+                    .produces(MediaType.APPLICATION_JSON_VALUE)
+                    .to("direct:count" + endpoint)
+
                 .post()
                     .type(deviceType)
                     .consumes(MediaType.APPLICATION_JSON_VALUE)
@@ -67,20 +127,36 @@ public abstract class AbstractDeviceRoute extends HouseRoute {
                     .to("direct:update" + endpoint)
 
                 .delete()
-                    .to("direct:delete" + endpoint);
+                    .to("direct:delete" + endpoint)
 
-        onException(UnrecognizedPropertyException.class)
-                .setHeader(Exchange.HTTP_RESPONSE_CODE, constant(Response.SC_BAD_REQUEST))
-                .handled(true);
+                .post(BULK_PATH)
+                    .type(JsonNode.class)
+                    .consumes(MediaType.APPLICATION_JSON_VALUE)
+                    .produces(MediaType.APPLICATION_JSON_VALUE)
+                    .to("direct:bulkcreate" + endpoint)
 
-        onException(JsonParseException.class)
-                .setHeader(Exchange.HTTP_RESPONSE_CODE, constant(Response.SC_BAD_REQUEST))
-                .handled(true);
+                .put(BULK_PATH)
+                    .type(JsonNode.class)
+                    .consumes(MediaType.APPLICATION_JSON_VALUE)
+                    .produces(MediaType.APPLICATION_JSON_VALUE)
+                    .to("direct:bulkupdate" + endpoint)
 
-        handleGet();
-        handlePost();
-        handlePut();
-        handleDelete();
+                .delete(BULK_PATH)
+                    .type(JsonNode.class)
+                    .consumes(MediaType.APPLICATION_JSON_VALUE)
+                    .produces(MediaType.APPLICATION_JSON_VALUE)
+                    .to("direct:bulkdelete" + endpoint);
+
+        if (Actuator.class.isAssignableFrom(deviceType)) {
+            rest(route)
+                    .post(ALL_PATH + "/{" + COMMAND_HEADER + "}")
+                        .produces(MediaType.APPLICATION_JSON_VALUE)
+                        .to("direct:commandall" + endpoint)
+
+                    .post("{label}/{" + COMMAND_HEADER + "}")
+                        .produces(MediaType.APPLICATION_JSON_VALUE)
+                        .to("direct:command" + endpoint);
+        }
     }
 
     /**
@@ -88,28 +164,99 @@ public abstract class AbstractDeviceRoute extends HouseRoute {
      *
      * Successful request returns JSON for a specific device or JSON array
      * of all devices of certain type. Otherwise, a 404 status code (Not Found)
-     * is returned.
+     * is returned. Responses carry an {@code ETag} of the device or type version,
+     * see {@link #notModified}. The JSON array can be paged, see {@link #pageDevices}, or
+     * streamed, see {@link #streamDevices}. Unchanged devices and listings are answered
+     * from cached JSON, see {@link #deviceBody} and {@link #bindDevices}. The array can be
+     * filtered by the {@code enabled} and {@code label} query parameters, see {@link #queryDevices},
+     * and the same filters count devices at {@code _count}, see {@link #countDevices}.
      */
     private void handleGet() {
         from("direct:read" + endpoint)
                 .routeId("read-" + endpoint + "-route")
                 .process(exchange -> {
+                    final House targetHouse = houseOf(exchange);
+                    if (targetHouse == null) {
+                        houseNotFound(exchange);
+                        return;
+                    }
                     final String label = exchange.getMessage().getHeader("label").toString();
-                    final Device retrievedDevice = house.getDevicesOfType(deviceType).get(label);
-                    exchange.getMessage().setBody(retrievedDevice);
+                    final long version = targetHouse.getDeviceVersion(label);
+                    final Device retrievedDevice = targetHouse.findDevice(label, deviceType);
 
                     if (retrievedDevice == null) {
+                        exchange.getMessage().setBody(null);
                         exchange.getMessage().setHeader(Exchange.HTTP_RESPONSE_CODE, Response.SC_NOT_FOUND); // 404
+                    } else if (!notModified(exchange, version)) {
+                        exchange.getMessage().setBody(deviceBody(exchange, targetHouse, label, retrievedDevice));
                     }
                 })
                 .endRest();
 
         from("direct:read" + endpoint + "s")
                 .routeId("read-" + endpoint + "s-route")
-                .process(exchange -> exchange.getMessage().setBody(house.getDevicesOfType(deviceType).values()))
+                .process(exchange -> {
+                    final House targetHouse = houseOf(exchange);
+                    if (targetHouse == null) {
+                        houseNotFound(exchange);
+                        return;
+                    }
+                    if (exchange.getMessage().getHeader("enabled") != null
+                            || exchange.getMessage().getHeader("label") != null) {
+                        final DeviceQuery query = typeQuery(exchange);
+                        if (query != null) {
+                            queryDevices(exchange, targetHouse, query, false);
+                        }
+                        return;
+                    }
+                    final long version = targetHouse.getVersionOfType(deviceType);
+                    final Map<String, Device> devices = targetHouse.getDevicesOfType(deviceType);
+                    if (!notModified(exchange, version)
+                            && !pageDevices(exchange, targetHouse.getSortedDevicesOfType(deviceType), false)
+                            && !streamDevices(exchange, devices, false)) {
+                        bindDevices(exchange, targetHouse, deviceType, version, devices, false);
+                    }
+                })
                 .endRest();
     }
 
+    /**
+     * HTTP GET request of device count handling.
+     *
+     * Responds with number of devices of the type as {@code {"count":n}}, optionally
+     * only of those selected by the {@code enabled} and {@code label} query parameters.
+     * Counts by type and state are answered by the indexes without looking at any device.
+     */
+    private void handleCount() {
+        from("direct:count" + endpoint)
+                .routeId("count-" + endpoint + "-route")
+                .process(exchange -> {
+                    final House targetHouse = houseOf(exchange);
+                    if (targetHouse == null) {
+                        houseNotFound(exchange);
+                        return;
+                    }
+                    final DeviceQuery query = typeQuery(exchange);
+                    if (query != null) {
+                        countDevices(exchange, targetHouse, query);
+                    }
+                });
+    }
+
+    /**
+     * Returns query of devices of the type selected by the {@code enabled} and {@code label}
+     * parameters, null if they're invalid and status code 400 (Bad Request) was set.
+     */
+    private DeviceQuery typeQuery(Exchange exchange) {
+        try {
+            return queryOf(exchange, deviceType.getSimpleName());
+        } catch (IllegalArgumentException e) {
+            exchange.getMessage().setHeader(Exchange.HTTP_RESPONSE_CODE, Response.SC_BAD_REQUEST); // 400
+            exchange.getMessage().setBody(null);
+            return null;
+        }
+    }
+
     /**
      * HTTP POST request handling.
      *
@@ -122,12 +269,16 @@ public abstract class AbstractDeviceRoute extends HouseRoute {
         from("direct:create" + endpoint)
                 .routeId("create-" + endpoint + "-route")
                 .choice()
-                    .when(body().isNotNull())
+                    .when(body().isInstanceOf(deviceType))
                         .process(exchange -> {
+                            final House targetHouse = houseOf(exchange);
+                            if (targetHouse == null) {
+                                houseNotFound(exchange);
+                                return;
+                            }
                             final Device deviceToAdd = exchange.getMessage().getBody(deviceType);
-                            final Device checkForConflict = house
-                                    .getDevicesOfType(deviceType)
-                                    .get(deviceToAdd.getLabel());
+                            final Device checkForConflict = targetHouse
+                                    .putDeviceIfAbsent(deviceToAdd.getLabel(), deviceToAdd);
 
                             if (checkForConflict != null) {
                                 exchange.getMessage().setHeader(Exchange.HTTP_RESPONSE_CODE, Response.SC_CONFLICT);
@@ -135,12 +286,11 @@ public abstract class AbstractDeviceRoute extends HouseRoute {
                                 return;
                             }
                             exchange.getMessage().setHeader(Exchange.HTTP_RESPONSE_CODE, Response.SC_CREATED); // 201
-                            house.addDevice(deviceToAdd.getLabel(), deviceToAdd);
                             exchange.getMessage().setHeader("label", deviceToAdd.getLabel());
                         })
                         .setBody(body()) // Respond with request body.
                         .choice()
-                            .when(simple("${header.CamelHttpResponseCode} != 409"))
+                            .when(simple("${header.CamelHttpResponseCode} == 201"))
                                 .log("Created route path for \"${header.label}\" device")
                         .endChoice()
                     .otherwise()
@@ -155,30 +305,38 @@ public abstract class AbstractDeviceRoute extends HouseRoute {
      * Successful request updates an object of a certain type. If an object is
      * not found, status code 404 (Not Found) is returned. Otherwise,
      * the request is considered invalid and status code 400 (Bad Request) is
-     * returned.
+     * returned. With {@code If-Match}, the object is updated only if it still
+     * has the version of the given {@code ETag}, otherwise status code 412
+     * (Precondition Failed) is returned, see {@link #expectedVersion}. Updated
+     * object is returned with the {@code ETag} of its new version.
      */
     private void handlePut() {
         from("direct:update" + endpoint)
                 .routeId("update-" + endpoint + "-route")
                 .choice()
-                    .when(body().isNotNull())
+                    .when(body().isInstanceOf(deviceType))
                         .process(exchange -> {
+                            final House targetHouse = houseOf(exchange);
+                            if (targetHouse == null) {
+                                houseNotFound(exchange);
+                                return;
+                            }
                             final Device deviceToUpdate = exchange.getMessage().getBody(deviceType);
-                            final Device checkIfExists = house
-                                    .getDevicesOfType(deviceType)
-                                    .get(deviceToUpdate.getLabel());
+                            final String label = deviceToUpdate.getLabel();
+                            final Long expectedVersion = expectedVersion(exchange);
+                            final long version = targetHouse.replaceDeviceVersioned(label, deviceType,
+                                    expectedVersion == null ? -1 : expectedVersion, deviceToUpdate);
 
-                            if (checkIfExists == null) {
-                                exchange.getMessage().setHeader(Exchange.HTTP_RESPONSE_CODE, Response.SC_NOT_FOUND);
-                                // 404
+                            if (version == 0) {
+                                notChanged(exchange);
                                 return;
                             }
-                            house.updateDevice(deviceToUpdate.getLabel(), deviceToUpdate);
-                            exchange.getMessage().setHeader("label", deviceToUpdate.getLabel());
+                            exchange.getMessage().setHeader("label", label);
+                            exchange.getMessage().setHeader(ETAG_HEADER, etagOf(version));
                         })
                         .setBody(body()) // Respond with request body.
                         .choice()
-                            .when(simple("${header.CamelHttpResponseCode} != 404"))
+                            .when(simple("${header.CamelHttpResponseCode} not in '404,412'"))
                                 .log("Updated fireplace \"${header.label}\"")
                         .endChoice()
                     .otherwise()
@@ -193,7 +351,7 @@ public abstract class AbstractDeviceRoute extends HouseRoute {
      * Successful request deletes an object of a certain type. If an object is
      * not found, status code 404 (Not Found) is returned. Otherwise,
      * the request is considered invalid and status code 400 (Bad Request) is
-     * returned.
+     * returned. {@code If-Match} is handled the same way as by updates.
      */
     private void handleDelete() {
         from("direct:delete" + endpoint)
@@ -201,18 +359,24 @@ public abstract class AbstractDeviceRoute extends HouseRoute {
                 .choice()
                     .when(header("label").isNotNull())
                         .process(exchange -> {
+                            final House targetHouse = houseOf(exchange);
+                            if (targetHouse == null) {
+                                houseNotFound(exchange);
+                                return;
+                            }
                             final String label = exchange.getMessage().getHeader("label").toString();
-                            final Device deviceToDelete = house.getDevicesOfType(deviceType).get(label);
+                            final Long expectedVersion = expectedVersion(exchange);
+                            final Device deviceToDelete = expectedVersion == null
+                                    ? targetHouse.removeDeviceIfPresent(label, deviceType)
+                                    : targetHouse.removeDeviceIfVersion(label, deviceType, expectedVersion);
 
                             if (deviceToDelete == null) {
-                                exchange.getMessage().setHeader(Exchange.HTTP_RESPONSE_CODE, Response.SC_NOT_FOUND);
-                                // 404
+                                notChanged(exchange);
                                 return;
                             }
-                            house.removeDevice(exchange.getMessage().getHeader("label").toString());
                         })
                         .choice()
-                            .when(simple("${header.CamelHttpResponseCode} != 404"))
+                            .when(simple("${header.CamelHttpResponseCode} not in '404,412'"))
                                 .log("Removed device \"${header.label}\"")
                         .endChoice()
                     .otherwise()
@@ -221,8 +385,215 @@ public abstract class AbstractDeviceRoute extends HouseRoute {
                 .endRest();
     }
 
+    /**
+     * Sets status code of a request which didn't change the device, 412 (Precondition Failed)
+     * if the request had {@code If-Match}, as the device either has another version or doesn't exist,
+     * 404 (Not Found) otherwise.
+     */
+    private static void notChanged(Exchange exchange) {
+        if (exchange.getMessage().getHeader(IF_MATCH_HEADER) != null) {
+            exchange.getMessage().setHeader(Exchange.HTTP_RESPONSE_CODE, Response.SC_PRECONDITION_FAILED); // 412
+        } else {
+            exchange.getMessage().setHeader(Exchange.HTTP_RESPONSE_CODE, Response.SC_NOT_FOUND); // 404
+        }
+    }
+
+    /**
+     * HTTP POST command request handling.
+     *
+     * Request without body, such as {@code POST fireplace/{label}/enable}, changes
+     * state of an actuator in place, see {@link ActuatorCommand}, and returns JSON
+     * of the device. If the device or the command is not found, status code 404
+     * (Not Found) is returned. {@code POST fireplace/_all/disable} changes all
+     * devices of the type, see {@link #commandDevices}.
+     */
+    private void handleCommand() {
+        final Class<? extends Actuator> actuatorType = deviceType.asSubclass(Actuator.class);
+        from("direct:command" + endpoint)
+                .routeId("command-" + endpoint + "-route")
+                .process(exchange -> {
+                    final House targetHouse = houseOf(exchange);
+                    if (targetHouse == null) {
+                        houseNotFound(exchange);
+                        return;
+                    }
+                    final String label = exchange.getMessage().getHeader("label", String.class);
+                    final ActuatorCommand command = ActuatorCommand.of(exchange.getMessage()
+                            .getHeader(COMMAND_HEADER, String.class));
+                    final Actuator device = command == null ? null
+                            : targetHouse.modifyDeviceIfPresent(label, actuatorType, command::apply);
+
+                    if (device == null) {
+                        exchange.getMessage().setHeader(Exchange.HTTP_RESPONSE_CODE, Response.SC_NOT_FOUND); // 404
+                        exchange.getMessage().setBody(null);
+                        return;
+                    }
+                    commandResponse(exchange);
+                    exchange.getMessage().setBody(deviceBody(exchange, targetHouse, label, device));
+                });
+
+        from("direct:commandall" + endpoint)
+                .routeId("command-all-" + endpoint + "-route")
+                .process(exchange -> {
+                    final House targetHouse = houseOf(exchange);
+                    if (targetHouse == null) {
+                        houseNotFound(exchange);
+                        return;
+                    }
+                    commandDevices(exchange, targetHouse, deviceType);
+                });
+    }
+
+    /**
+     * HTTP GET request of device history handling.
+     *
+     * Returns JSON array of state transitions of the device, optionally limited by query
+     * parameters {@code from} and {@code to} in milliseconds since the epoch. If the device
+     * has no history, status code 404 (Not Found) is returned. If the range isn't a number,
+     * status code 400 (Bad Request) is returned.
+     */
+    private void handleHistory() {
+        from("direct:history" + endpoint)
+                .routeId("history-" + endpoint + "-route")
+                .process(exchange -> {
+                    final String label = exchange.getMessage().getHeader("label", String.class);
+                    final long from;
+                    final long to;
+                    try {
+                        from = parseTime(exchange.getMessage().getHeader("from", String.class), Long.MIN_VALUE);
+                        to = parseTime(exchange.getMessage().getHeader("to", String.class), Long.MAX_VALUE);
+                    } catch (NumberFormatException e) {
+                        exchange.getMessage().setHeader(Exchange.HTTP_RESPONSE_CODE, Response.SC_BAD_REQUEST); // 400
+                        exchange.getMessage().setBody(null);
+                        return;
+                    }
+                    final List<HistorySample> samples = historyStore == null ? null
+                            : historyStore.getHistory(label, deviceType, from, to);
+                    if (samples == null) {
+                        exchange.getMessage().setHeader(Exchange.HTTP_RESPONSE_CODE, Response.SC_NOT_FOUND); // 404
+                    }
+                    exchange.getMessage().setBody(samples);
+                });
+    }
+
+    private static long parseTime(String param, long defaultTime) {
+        return param == null ? defaultTime : Long.parseLong(param);
+    }
+
+    /**
+     * HTTP POST/PUT/DELETE bulk request handling.
+     *
+     * Request body is a JSON array of devices (or of labels for DELETE) which
+     * is applied to the house in one pass. Response is a JSON array with
+     * status code of every item, the same one a single request would get:
+     * 201/200 on success, 409 on conflict, 404 if device is not found and
+     * 400 for invalid items. If the body isn't a JSON array, status code 400
+     * (Bad Request) is returned for the whole request.
+     */
+    private void handleBulk() {
+        from("direct:bulkcreate" + endpoint)
+                .routeId("bulk-create-" + endpoint + "-route")
+                .process(exchange -> applyBulk(exchange, this::createDevice))
+                .log("Bulk created \"${header.bulkSize}\" " + endpoint + " items")
+                .endRest();
+
+        from("direct:bulkupdate" + endpoint)
+                .routeId("bulk-update-" + endpoint + "-route")
+                .process(exchange -> applyBulk(exchange, this::updateDevice))
+                .log("Bulk updated \"${header.bulkSize}\" " + endpoint + " items")
+                .endRest();
+
+        from("direct:bulkdelete" + endpoint)
+                .routeId("bulk-delete-" + endpoint + "-route")
+                .process(exchange -> applyBulk(exchange, this::deleteDevice))
+                .log("Bulk deleted \"${header.bulkSize}\" " + endpoint + " items")
+                .endRest();
+    }
+
+    private void applyBulk(Exchange exchange, BiFunction<House, JsonNode, BulkItemStatus> operation) {
+        final House targetHouse = houseOf(exchange);
+        if (targetHouse == null) {
+            houseNotFound(exchange);
+            return;
+        }
+        final JsonNode items = exchange.getMessage().getBody(JsonNode.class);
+        if (items == null || !items.isArray()) {
+            exchange.getMessage().setHeader(Exchange.HTTP_RESPONSE_CODE, Response.SC_BAD_REQUEST); // 400
+            exchange.getMessage().setBody(null);
+            return;
+        }
+        final List<BulkItemStatus> statuses = new ArrayList<>(items.size());
+        for (JsonNode item : items) {
+            statuses.add(operation.apply(targetHouse, item));
+        }
+        exchange.getMessage().setHeader("bulkSize", statuses.size());
+        exchange.getMessage().setBody(statuses);
+    }
+
+    private BulkItemStatus createDevice(House targetHouse, JsonNode item) {
+        final Device device = readDevice(item);
+        if (device == null || device.getLabel() == null) {
+            return new BulkItemStatus(null, Response.SC_BAD_REQUEST);
+        }
+        if (targetHouse.putDeviceIfAbsent(device.getLabel(), device) != null) {
+            return new BulkItemStatus(device.getLabel(), Response.SC_CONFLICT);
+        }
+        return new BulkItemStatus(device.getLabel(), Response.SC_CREATED);
+    }
+
+    private BulkItemStatus updateDevice(House targetHouse, JsonNode item) {
+        final Device device = readDevice(item);
+        if (device == null || device.getLabel() == null) {
+            return new BulkItemStatus(null, Response.SC_BAD_REQUEST);
+        }
+        if (targetHouse.replaceDeviceIfPresent(device.getLabel(), deviceType, device) == null) {
+            return new BulkItemStatus(device.getLabel(), Response.SC_NOT_FOUND);
+        }
+        return new BulkItemStatus(device.getLabel(), Response.SC_OK);
+    }
+
+    private BulkItemStatus deleteDevice(House targetHouse, JsonNode item) {
+        final JsonNode labelNode = item.isObject() ? item.get("label") : item;
+        if (labelNode == null || !labelNode.isTextual()) {
+            return new BulkItemStatus(null, Response.SC_BAD_REQUEST);
+        }
+        final String label = labelNode.asText();
+        if (targetHouse.removeDeviceIfPresent(label, deviceType) == null) {
+            return new BulkItemStatus(label, Response.SC_NOT_FOUND);
+        }
+        return new BulkItemStatus(label, Response.SC_OK);
+    }
+
+    /**
+     * Binds single JSON item to the device type of this route.
+     *
+     * @return device or null if the item isn't a valid device
+     */
+    private Device readDevice(JsonNode item) {
+        try {
+            return mapper.treeToValue(item, deviceType);
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
     @Override
     protected String getRoute() {
-        return super.getRoute() + "device/" + endpoint;
+        return super.getRoute() + DEVICE_PATH + endpoint;
+    }
+
+    @Override
+    protected String getNamespacedRoute() {
+        return super.getNamespacedRoute() + DEVICE_PATH + endpoint;
+    }
+
+    /**
+     * Path of the routes of a device type in the default house, e.g. for REST clients
+     *
+     * @param endpoint endpoint of the device type, such as {@link FireplaceRoute#ENDPOINT}
+     * @return path relative to the server root, single devices are at {@code {path}/{label}}
+     */
+    public static String pathOf(String endpoint) {
+        return HOUSE_PATH + DEVICE_PATH + endpoint;
     }
 }
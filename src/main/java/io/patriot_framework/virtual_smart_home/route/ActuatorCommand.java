@@ -0,0 +1,62 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.route;
+
+import io.patriot_framework.virtual_smart_home.house.device.Actuator;
+
+/**
+ * Commands changing state of actuators in place, see {@code POST .../{label}/{command}}
+ */
+enum ActuatorCommand {
+
+    ENABLE,
+    DISABLE,
+    TOGGLE;
+
+    /**
+     * Returns command of given name
+     *
+     * @param name name of the command as used in the path, e.g. {@code enable}
+     * @return command, null if there is no command of given name
+     */
+    static ActuatorCommand of(String name) {
+        for (ActuatorCommand command : values()) {
+            if (command.name().equalsIgnoreCase(name)) {
+                return command;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Applies the command to given actuator
+     *
+     * @param actuator actuator to be changed
+     * @return true if state of the actuator changed
+     */
+    boolean apply(Actuator actuator) {
+        switch (this) {
+            case ENABLE:
+                return actuator.changeEnabled(true);
+            case DISABLE:
+                return actuator.changeEnabled(false);
+            default:
+                actuator.toggle();
+                return true;
+        }
+    }
+}
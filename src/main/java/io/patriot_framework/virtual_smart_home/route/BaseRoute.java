@@ -17,6 +17,8 @@
 package io.patriot_framework.virtual_smart_home.route;
 
 import io.patriot_framework.virtual_smart_home.AppConfig;
+import io.patriot_framework.virtual_smart_home.format.NegotiatedJacksonDataFormat;
+import io.patriot_framework.virtual_smart_home.server.RestTransport;
 import org.apache.camel.builder.RouteBuilder;
 import org.apache.camel.model.rest.RestBindingMode;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
@@ -25,6 +27,10 @@ import org.springframework.beans.factory.annotation.Value;
 
 /**
  * Routing configuration for localhost:8080.
+ *
+ * Routes are served by the servlet container unless {@code house.rest.transport}
+ * selects another {@link RestTransport}. Bodies are JSON unless a client negotiates
+ * CBOR or Smile, see {@link NegotiatedJacksonDataFormat}.
  */
 @Component
 public class BaseRoute extends RouteBuilder {
@@ -34,12 +40,23 @@ public class BaseRoute extends RouteBuilder {
     private String port;
     @Value("${server.host}")
     private String host;
+    @Value("${house.rest.transport:SERVLET}")
+    private RestTransport transport;
+    @Value("${house.rest.port:8081}")
+    private String restPort;
 
     @Override
     public void configure() throws Exception {
+        if (transport == RestTransport.NETTY && restPort.equals(port)) {
+            throw new IllegalStateException(String.format("house.rest.port and server.port are both %s, "
+                    + "the Netty transport needs a port of its own", port));
+        }
         restConfiguration()
-                .component("servlet")
-                .host(host).port(port)
-                .bindingMode(RestBindingMode.json);
+                .component(transport.getComponent())
+                .host(host).port(transport == RestTransport.SERVLET ? port : restPort)
+                .bindingMode(RestBindingMode.json)
+                .jsonDataFormat(NegotiatedJacksonDataFormat.NAME)
+                // Content type is set by the binding unless a route chose one, e.g. for NDJSON.
+                .dataFormatProperty("contentTypeHeader", "false");
     }
 }
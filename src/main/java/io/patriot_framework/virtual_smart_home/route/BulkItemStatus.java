@@ -0,0 +1,49 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.route;
+
+/**
+ * Outcome of a single item of a bulk request, reported as HTTP status code.
+ */
+public final class BulkItemStatus {
+
+    private final String label;
+    private final int status;
+
+    public BulkItemStatus(String label, int status) {
+        this.label = label;
+        this.status = status;
+    }
+
+    /**
+     * Getter for label of the device the item refers to
+     *
+     * @return device label, null if the item didn't contain any
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Getter for status of the item
+     *
+     * @return HTTP status code the item would get as a single request
+     */
+    public int getStatus() {
+        return status;
+    }
+}
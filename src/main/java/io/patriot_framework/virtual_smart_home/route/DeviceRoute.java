@@ -16,28 +16,124 @@
 
 package io.patriot_framework.virtual_smart_home.route;
 
+import io.patriot_framework.virtual_smart_home.house.House;
+import io.patriot_framework.virtual_smart_home.house.device.Device;
+import io.patriot_framework.virtual_smart_home.query.DeviceQuery;
+import org.apache.camel.Exchange;
+import org.apache.catalina.connector.Response;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.util.Arrays;
+
 /**
- * Device endpoint which allows HTTP GET request only and returns information
- * about all devices.
+ * Device endpoint which returns information about all devices on HTTP GET
+ * request. The listing can be paged, see {@link #pageDevices},
+ * or streamed, see {@link #streamDevices}.
+ *
+ * Devices can be filtered by query parameters {@code type}, {@code enabled} and
+ * {@code label} (where {@code *} matches any characters), see {@link DeviceQuery}.
+ * The same parameters select devices counted at {@code _count}, see {@link #countDevices}.
+ * Commands can be applied to all actuators of a type, see {@link #commandDevices}.
  */
 @Component
 public class DeviceRoute extends HouseRoute {
 
     @Override
     public void configure() throws Exception {
-        rest(getRoute())
-                .get()
-                    .produces(MediaType.APPLICATION_JSON_VALUE)
-                    .route()
-                    .process(exchange -> exchange.getMessage().setBody(house.getDevices()))
-                    .endRest();
+        for (String route : Arrays.asList(getRoute(), getNamespacedRoute())) {
+            rest(route)
+                    .get()
+                        .produces(MediaType.APPLICATION_JSON_VALUE)
+                        .route()
+                        .process(this::readDevices)
+                        .endRest()
+
+                    .get(COUNT_PATH)
+                        .produces(MediaType.APPLICATION_JSON_VALUE)
+                        .route()
+                        .process(this::countDevices)
+                        .endRest()
+
+                    .post("{type}/" + ALL_PATH + "/{" + COMMAND_HEADER + "}")
+                        .produces(MediaType.APPLICATION_JSON_VALUE)
+                        .route()
+                        .process(this::commandDevicesOfType)
+                        .endRest();
+        }
+    }
+
+    /**
+     * Applies a command to all devices of a type given by its name, which may be a superclass
+     * such as {@code actuator}, e.g. {@code POST device/actuator/_all/disable}.
+     */
+    private void commandDevicesOfType(Exchange exchange) {
+        final House targetHouse = houseOf(exchange);
+        if (targetHouse == null) {
+            houseNotFound(exchange);
+            return;
+        }
+        final Class<? extends Device> type = DeviceQuery.compile(exchange.getMessage().getHeader("type", String.class),
+                null, null).resolveType(targetHouse);
+        if (type == null) {
+            exchange.getMessage().setHeader(Exchange.HTTP_RESPONSE_CODE, Response.SC_NOT_FOUND); // 404
+            exchange.getMessage().setBody(null);
+            return;
+        }
+        commandDevices(exchange, targetHouse, type);
+    }
+
+    private void countDevices(Exchange exchange) {
+        final House targetHouse = houseOf(exchange);
+        if (targetHouse == null) {
+            houseNotFound(exchange);
+            return;
+        }
+        final DeviceQuery query;
+        try {
+            query = queryOf(exchange, exchange.getMessage().getHeader("type", String.class));
+        } catch (IllegalArgumentException e) {
+            exchange.getMessage().setHeader(Exchange.HTTP_RESPONSE_CODE, Response.SC_BAD_REQUEST); // 400
+            exchange.getMessage().setBody(null);
+            return;
+        }
+        countDevices(exchange, targetHouse, query);
+    }
+
+    private void readDevices(Exchange exchange) throws IOException {
+        final House targetHouse = houseOf(exchange);
+        if (targetHouse == null) {
+            houseNotFound(exchange);
+            return;
+        }
+        final DeviceQuery query;
+        try {
+            query = queryOf(exchange, exchange.getMessage().getHeader("type", String.class));
+        } catch (IllegalArgumentException e) {
+            exchange.getMessage().setHeader(Exchange.HTTP_RESPONSE_CODE, Response.SC_BAD_REQUEST); // 400
+            exchange.getMessage().setBody(null);
+            return;
+        }
+        if (query != null) {
+            queryDevices(exchange, targetHouse, query, true);
+            return;
+        }
+        final long version = targetHouse.getVersionOfType(Device.class);
+        if (!notModified(exchange, version)
+                && !pageDevices(exchange, targetHouse.getSortedDevicesOfType(Device.class), true)
+                && !streamDevices(exchange, targetHouse.getDevices(), true)) {
+            bindDevices(exchange, targetHouse, Device.class, version, targetHouse.getDevices(), true);
+        }
     }
 
     @Override
     protected String getRoute() {
         return super.getRoute() + "device/";
     }
+
+    @Override
+    protected String getNamespacedRoute() {
+        return super.getNamespacedRoute() + "device/";
+    }
 }
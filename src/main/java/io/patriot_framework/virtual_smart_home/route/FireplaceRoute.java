@@ -22,7 +22,9 @@ import org.springframework.stereotype.Component;
 @Component
 public class FireplaceRoute extends AbstractDeviceRoute {
 
+    public static final String ENDPOINT = "fireplace";
+
     public FireplaceRoute() {
-        super.setupRoute("fireplace", Fireplace.class);
+        super.setupRoute(ENDPOINT, Fireplace.class);
     }
 }
@@ -16,19 +16,88 @@
 
 package io.patriot_framework.virtual_smart_home.route;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
+import io.patriot_framework.virtual_smart_home.format.MediaFormat;
+import io.patriot_framework.virtual_smart_home.format.SerializedJson;
 import io.patriot_framework.virtual_smart_home.house.House;
+import io.patriot_framework.virtual_smart_home.house.HouseRegistry;
+import io.patriot_framework.virtual_smart_home.house.device.Actuator;
+import io.patriot_framework.virtual_smart_home.house.device.Device;
+import io.patriot_framework.virtual_smart_home.query.DeviceQuery;
+import org.apache.camel.Exchange;
+import org.apache.catalina.connector.Response;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.WeakHashMap;
+import java.util.function.BiPredicate;
+import java.util.zip.GZIPOutputStream;
+
 /**
  * House endpoint which allows HTTP GET request only and returns information
  * about the whole {@code House} object.
+ *
+ * Besides the default house at {@code house/}, houses of {@code HouseRegistry}
+ * are listed at {@code houses/}, and can be created, retrieved and dropped at
+ * {@code houses/{houseName}}. Device routes are available under both paths.
  */
 @Component
 public class HouseRoute extends BaseRoute {
 
+    /**
+     * Path of the default house relative to the server root
+     */
+    public static final String HOUSE_PATH = "house/";
+    protected static final String NDJSON_VALUE = "application/x-ndjson";
+    protected static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    protected static final String ETAG_HEADER = "ETag";
+    protected static final String IF_NONE_MATCH_HEADER = "If-None-Match";
+    protected static final String IF_MATCH_HEADER = "If-Match";
+    protected static final String HOUSE_NAME_HEADER = "houseName";
+    protected static final String CONTENT_ENCODING_HEADER = "Content-Encoding";
+    protected static final String ACCEPT_ENCODING_HEADER = "Accept-Encoding";
+    protected static final String VARY_HEADER = "Vary";
+    protected static final String COMMAND_HEADER = "command";
+    /**
+     * Path segment addressing all devices of a type by commands
+     */
+    protected static final String ALL_PATH = "_all";
+    /**
+     * Path segment of device counts
+     */
+    protected static final String COUNT_PATH = "_count";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    /**
+     * Listings at least this large are sent gzip-compressed to clients accepting it
+     */
+    private static final int GZIP_MIN_BYTES = 8 * 1024;
+    /**
+     * Suffix of entity tags of gzip-compressed listings, which differ from the tags of the uncompressed ones
+     */
+    private static final String GZIP_ETAG_SUFFIX = "-gzip";
     @Autowired House house;
+    @Autowired HouseRegistry registry;
+    private final ObjectMapper streamMapper = new ObjectMapper().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    /**
+     * Last listing bound by this route for every house, valid as long as the type version doesn't change
+     */
+    private final Map<House, SerializedListing> listings = Collections.synchronizedMap(new WeakHashMap<>());
 
     @Override
     public void configure() throws Exception {
@@ -36,11 +105,648 @@ public class HouseRoute extends BaseRoute {
                 .get()
                     .produces(MediaType.APPLICATION_JSON_VALUE)
                     .route()
-                    .process(exchange -> exchange.getMessage().setBody(house))
+                    .process(this::readHouse)
+                    .endRest();
+
+        rest("houses/")
+                .get()
+                    .produces(MediaType.APPLICATION_JSON_VALUE)
+                    .route()
+                    .process(exchange -> exchange.getMessage().setBody(registry.getHouses().keySet()))
+                    .endRest()
+
+                .get("{" + HOUSE_NAME_HEADER + "}")
+                    .produces(MediaType.APPLICATION_JSON_VALUE)
+                    .route()
+                    .process(this::readHouse)
+                    .endRest()
+
+                .post("{" + HOUSE_NAME_HEADER + "}")
+                    .route()
+                    .process(exchange -> {
+                        final String houseName = exchange.getMessage().getHeader(HOUSE_NAME_HEADER, String.class);
+                        if (registry.putHouseIfAbsent(new House(houseName, registry.getStorage())) != null) {
+                            exchange.getMessage().setHeader(Exchange.HTTP_RESPONSE_CODE, Response.SC_CONFLICT); // 409
+                        } else {
+                            exchange.getMessage().setHeader(Exchange.HTTP_RESPONSE_CODE, Response.SC_CREATED); // 201
+                        }
+                        exchange.getMessage().setBody(null);
+                    })
+                    .endRest()
+
+                .delete("{" + HOUSE_NAME_HEADER + "}")
+                    .route()
+                    .process(exchange -> {
+                        final House targetHouse = houseOf(exchange);
+                        if (targetHouse == null) {
+                            houseNotFound(exchange);
+                            return;
+                        }
+                        if (targetHouse == house) {
+                            // The default house is wired to house/ routes, events and persistence.
+                            exchange.getMessage().setHeader(Exchange.HTTP_RESPONSE_CODE, Response.SC_CONFLICT); // 409
+                        } else {
+                            registry.removeHouseIfPresent(targetHouse.getHouseName());
+                        }
+                        exchange.getMessage().setBody(null);
+                    })
                     .endRest();
     }
 
     protected String getRoute() {
-        return "house/";
+        return HOUSE_PATH;
+    }
+
+    /**
+     * Route of the same resource in a house selected by name from {@code HouseRegistry}
+     */
+    protected String getNamespacedRoute() {
+        return "houses/{" + HOUSE_NAME_HEADER + "}/";
+    }
+
+    private void readHouse(Exchange exchange) {
+        final House targetHouse = houseOf(exchange);
+        if (targetHouse == null) {
+            houseNotFound(exchange);
+        } else if (!notModified(exchange, targetHouse.getVersion())) {
+            exchange.getMessage().setBody(targetHouse);
+        }
+    }
+
+    /**
+     * Resolves the house the request is addressed to, which is the default house
+     * unless the request path names a house of {@code HouseRegistry}.
+     *
+     * @param exchange exchange of the current request
+     * @return house of the request, null if the named house isn't registered
+     */
+    protected House houseOf(Exchange exchange) {
+        final String houseName = exchange.getMessage().getHeader(HOUSE_NAME_HEADER, String.class);
+        return houseName == null ? house : registry.findHouse(houseName);
+    }
+
+    /**
+     * Responds with status code 404 (Not Found) to a request addressed to an unknown house.
+     *
+     * @param exchange exchange of the current request
+     */
+    protected void houseNotFound(Exchange exchange) {
+        exchange.getMessage().setHeader(Exchange.HTTP_RESPONSE_CODE, Response.SC_NOT_FOUND); // 404
+        exchange.getMessage().setBody(null);
+    }
+
+    /**
+     * Applies the command named by the {@code command} path parameter, see {@link ActuatorCommand},
+     * to all devices of given type in place and responds with the number of devices which changed.
+     * If there is no such command, status code 404 (Not Found) is returned, and if devices of
+     * the type aren't actuators, status code 400 (Bad Request) is returned.
+     *
+     * @param exchange exchange of the current request
+     * @param targetHouse house of the request
+     * @param type type of the devices
+     */
+    protected void commandDevices(Exchange exchange, House targetHouse, Class<? extends Device> type) {
+        final ActuatorCommand command = ActuatorCommand.of(exchange.getMessage().getHeader(COMMAND_HEADER,
+                String.class));
+        if (command == null || !Actuator.class.isAssignableFrom(type)) {
+            exchange.getMessage().setHeader(Exchange.HTTP_RESPONSE_CODE,
+                    command == null ? Response.SC_NOT_FOUND : Response.SC_BAD_REQUEST); // 404 or 400
+            exchange.getMessage().setBody(null);
+            return;
+        }
+        commandResponse(exchange);
+        final int[] changed = new int[1];
+        for (String label : targetHouse.getDevicesOfType(type).keySet()) {
+            targetHouse.modifyDeviceIfPresent(label, Actuator.class, actuator -> {
+                if (!command.apply(actuator)) {
+                    return false;
+                }
+                changed[0]++;
+                return true;
+            });
+        }
+        exchange.getMessage().setBody(Collections.singletonMap("changed", changed[0]));
+    }
+
+    /**
+     * Prepares response of a command request. Commands have no body, so whatever
+     * {@code Content-Type} the client sent must not be echoed as type of the response.
+     *
+     * @param exchange exchange of the current request
+     */
+    protected void commandResponse(Exchange exchange) {
+        exchange.getMessage().setHeader(Exchange.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+    }
+
+    /**
+     * Compiles query of devices of a type selected by the {@code enabled} and {@code label}
+     * query parameters of the request, see {@link DeviceQuery#compile}
+     *
+     * @param exchange exchange of the current request
+     * @param type name of the type of queried devices, null for all devices
+     * @return compiled query, null if neither type nor parameters are given
+     * @throws IllegalArgumentException if a parameter is invalid
+     */
+    protected static DeviceQuery queryOf(Exchange exchange, String type) throws IllegalArgumentException {
+        return DeviceQuery.compile(type, exchange.getMessage().getHeader("enabled", String.class),
+                exchange.getMessage().getHeader("label", String.class));
+    }
+
+    /**
+     * Responds with devices matching a query, see {@link DeviceQuery}. Candidates are selected
+     * by the indexes and the listing is paged, streamed or bound like any other listing.
+     *
+     * @param exchange exchange of the current request
+     * @param targetHouse house of the request
+     * @param query compiled query of the request
+     * @param byLabel whether the listing is an object keyed by label instead of an array
+     * @throws IOException if a streamed response can't be written
+     */
+    protected void queryDevices(Exchange exchange, House targetHouse, DeviceQuery query, boolean byLabel)
+            throws IOException {
+        final Class<? extends Device> type = query.resolveType(targetHouse);
+        final long version = targetHouse.getVersionOfType(type == null ? Device.class : type);
+        final NavigableMap<String, Device> selected = query.select(targetHouse);
+        final BiPredicate<String, Device> filter = query.getFilter();
+        if (notModified(exchange, version) || pageDevices(exchange, selected, byLabel, filter)
+                || streamDevices(exchange, selected, byLabel, filter)) {
+            return;
+        }
+        if (!MediaFormat.responseFormat(exchange).isBinary()) {
+            exchange.getMessage().setBody(new SerializedJson(serializeDevices(targetHouse,
+                    type == null ? Device.class : type, selected, filter, byLabel)));
+            return;
+        }
+        final Map<String, Device> devices = new LinkedHashMap<>();
+        selected.forEach((label, device) -> {
+            if (filter.test(label, device)) {
+                devices.put(label, device);
+            }
+        });
+        exchange.getMessage().setBody(byLabel ? devices : devices.values());
+    }
+
+    /**
+     * Responds with number of devices matching a query as {@code {"count":n}}, counted by
+     * the indexes alone unless the query has a label condition. Responses carry an {@code ETag}
+     * of the type version, see {@link #notModified}.
+     *
+     * @param exchange exchange of the current request
+     * @param targetHouse house of the request
+     * @param query compiled query of the request, null to count all devices
+     */
+    protected void countDevices(Exchange exchange, House targetHouse, DeviceQuery query) {
+        final Class<? extends Device> type = query == null ? Device.class : query.resolveType(targetHouse);
+        if (notModified(exchange, targetHouse.getVersionOfType(type == null ? Device.class : type))) {
+            return;
+        }
+        exchange.getMessage().setHeader(Exchange.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+        exchange.getMessage().setBody(Collections.singletonMap("count",
+                query == null ? targetHouse.countDevicesOfType(Device.class) : query.count(targetHouse)));
+    }
+
+    /**
+     * Sets {@code ETag} of the response to the given version and checks it
+     * against the {@code If-None-Match} header of the request. If the client
+     * already has this version, status code 304 (Not Modified) is returned
+     * without any body, so nothing has to be serialized. The tag of a compressed
+     * listing of the version matches as well, see {@link #bindDevices}.
+     *
+     * The version has to be read before the data it describes.
+     *
+     * @param exchange exchange of the current request
+     * @param version house, type or device version the response is built from
+     * @return true if the response is 304 and no body should be bound
+     */
+    protected boolean notModified(Exchange exchange, long version) {
+        final String etag = etagOf(version);
+        exchange.getMessage().setHeader(ETAG_HEADER, etag);
+        final String ifNoneMatch = exchange.getMessage().getHeader(IF_NONE_MATCH_HEADER, String.class);
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        final String gzipEtag = gzipEtagOf(version);
+        for (String candidate : ifNoneMatch.split(",")) {
+            final String tag = candidate.trim();
+            final boolean gzipped = tag.equals(gzipEtag) || tag.equals("W/" + gzipEtag);
+            if (gzipped) {
+                exchange.getMessage().setHeader(ETAG_HEADER, gzipEtag);
+                exchange.getMessage().setHeader(VARY_HEADER, ACCEPT_ENCODING_HEADER);
+            }
+            if (gzipped || tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag)) {
+                exchange.getMessage().setHeader(Exchange.HTTP_RESPONSE_CODE, Response.SC_NOT_MODIFIED); // 304
+                exchange.getMessage().setBody(null);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Formats version as a strong entity tag
+     *
+     * @param version house, type or device version
+     * @return quoted version
+     */
+    protected static String etagOf(long version) {
+        return "\"" + version + "\"";
+    }
+
+    private static String gzipEtagOf(long version) {
+        return "\"" + version + GZIP_ETAG_SUFFIX + "\"";
+    }
+
+    /**
+     * Checks whether {@code Accept-Encoding} of a request accepts gzip, i.e. whether it lists gzip,
+     * or the wildcard if gzip isn't listed, with a non-zero quality
+     *
+     * @param acceptEncoding value of the header, may be null
+     * @return true if the response may be gzip-compressed
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        double gzip = -1;
+        double wildcard = -1;
+        for (String element : acceptEncoding.split(",")) {
+            final String[] parameters = element.split(";");
+            final String coding = parameters[0].trim();
+            double quality = 1;
+            for (int i = 1; i < parameters.length; i++) {
+                final String parameter = parameters[i].trim();
+                if (parameter.startsWith("q=") || parameter.startsWith("Q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (coding.equalsIgnoreCase("gzip") || coding.equalsIgnoreCase("x-gzip")) {
+                gzip = Math.max(gzip, quality);
+            } else if (coding.equals("*")) {
+                wildcard = Math.max(wildcard, quality);
+            }
+        }
+        return (gzip >= 0 ? gzip : wildcard) > 0;
+    }
+
+    /**
+     * Returns device version the {@code If-Match} header of a conditional request expects,
+     * i.e. the version of an {@code ETag} the client got before. Weak and malformed entity
+     * tags never match, so they are returned as version 0, which no stored device has.
+     *
+     * @param exchange exchange of the current request
+     * @return expected version, null if the request isn't conditional or matches any version
+     */
+    protected static Long expectedVersion(Exchange exchange) {
+        final String ifMatch = exchange.getMessage().getHeader(IF_MATCH_HEADER, String.class);
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        final String tag = ifMatch.trim();
+        if (tag.length() < 3 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+
+    /**
+     * Writes devices straight to the servlet output stream when the client
+     * asked for a streamed listing, either by {@code Accept: application/x-ndjson}
+     * (one device per line) or by the {@code stream=true} query parameter
+     * (chunked JSON of the same shape as the regular response).
+     *
+     * Devices are serialized one by one while iterating the given map, so
+     * memory use doesn't depend on the number of devices. On transports
+     * without servlet response the same content is sent as a single body.
+     * Streaming is JSON only, clients which negotiated a binary format get
+     * the regular response.
+     *
+     * @param exchange exchange of the current request
+     * @param devices live view of devices to be written
+     * @param byLabel whether chunked JSON is an object keyed by label instead of an array
+     * @return true if the response was streamed, false if it should be bound as usual
+     * @throws IOException if writing to the client fails
+     */
+    protected boolean streamDevices(Exchange exchange, Map<String, Device> devices, boolean byLabel)
+            throws IOException {
+        return streamDevices(exchange, devices, byLabel, DeviceQuery.ALL);
+    }
+
+    /**
+     * Streams devices accepted by a filter, see {@link #streamDevices(Exchange, Map, boolean)}
+     *
+     * @param exchange exchange of the current request
+     * @param devices live view of devices to be written
+     * @param byLabel whether chunked JSON is an object keyed by label instead of an array
+     * @param filter predicate on label and device selecting written devices
+     * @return true if the response was streamed, false if it should be bound as usual
+     * @throws IOException if writing to the client fails
+     */
+    protected boolean streamDevices(Exchange exchange, Map<String, Device> devices, boolean byLabel,
+                                    BiPredicate<String, Device> filter) throws IOException {
+        final String accept = exchange.getMessage().getHeader("Accept", String.class);
+        final boolean ndjson = accept != null && accept.contains(NDJSON_VALUE);
+        if (!ndjson && !Boolean.TRUE.equals(exchange.getMessage().getHeader("stream", Boolean.class))
+                || MediaFormat.responseFormat(exchange).isBinary()) {
+            return false;
+        }
+
+        final String contentType = ndjson ? NDJSON_VALUE : MediaType.APPLICATION_JSON_VALUE;
+        exchange.getMessage().setHeader(Exchange.CONTENT_TYPE, contentType);
+        final HttpServletResponse response = exchange.getMessage()
+                .getHeader(Exchange.HTTP_SERVLET_RESPONSE, HttpServletResponse.class);
+        if (response == null) {
+            // Transports without a servlet response, such as Netty, get the listing in one
+            // pre-serialized body, which the JSON binding writes as it is.
+            final StringWriter writer = new StringWriter();
+            try (JsonGenerator generator = streamMapper.getFactory().createGenerator(writer)) {
+                writeDevices(generator, devices, ndjson, byLabel, filter);
+            }
+            exchange.getMessage().setBody(new RawValue(writer.toString()));
+            return true;
+        }
+
+        startResponse(exchange, response, contentType);
+        try (JsonGenerator generator = streamMapper.getFactory().createGenerator(response.getOutputStream())) {
+            writeDevices(generator, devices, ndjson, byLabel, filter);
+        }
+        // Commit the response so that Camel can't change status or headers afterwards.
+        response.flushBuffer();
+        exchange.getMessage().setBody(null);
+        return true;
+    }
+
+    private void startResponse(Exchange exchange, HttpServletResponse response, String contentType) {
+        response.setStatus(Response.SC_OK);
+        response.setContentType(contentType);
+        final String etag = exchange.getMessage().getHeader(ETAG_HEADER, String.class);
+        if (etag != null) {
+            response.setHeader(ETAG_HEADER, etag);
+        }
+    }
+
+    private void writeDevices(JsonGenerator generator, Map<String, Device> devices, boolean ndjson, boolean byLabel,
+                              BiPredicate<String, Device> filter) throws IOException {
+        if (ndjson) {
+            generator.setRootValueSeparator(null);
+        } else if (byLabel) {
+            generator.writeStartObject();
+        } else {
+            generator.writeStartArray();
+        }
+        for (Map.Entry<String, Device> entry : devices.entrySet()) {
+            if (!filter.test(entry.getKey(), entry.getValue())) {
+                continue;
+            }
+            if (byLabel && !ndjson) {
+                generator.writeFieldName(entry.getKey());
+            }
+            generator.writeObject(entry.getValue());
+            if (ndjson) {
+                generator.writeRaw('\n');
+            }
+        }
+        if (ndjson) {
+            return;
+        }
+        if (byLabel) {
+            generator.writeEndObject();
+        } else {
+            generator.writeEndArray();
+        }
+    }
+
+    /**
+     * Body of a single device, which is its JSON form cached by the house unless the client
+     * negotiated a binary format. Unchanged devices are thus serialized only once.
+     *
+     * @param exchange exchange of the current request
+     * @param targetHouse house of the device
+     * @param label label of the device
+     * @param device device to be returned
+     * @return response body of the device
+     */
+    protected Object deviceBody(Exchange exchange, House targetHouse, String label, Device device) {
+        if (MediaFormat.responseFormat(exchange).isBinary()) {
+            return device;
+        }
+        final byte[] serialized = targetHouse.serializeDevice(label, device.getClass(), this::serialize);
+        return serialized == null ? device : new SerializedJson(serialized);
+    }
+
+    /**
+     * Binds all devices of a type as response body
+     *
+     * JSON listings are concatenated from the cached forms of devices and kept until the type
+     * version changes. Large listings are also compressed once and sent with
+     * {@code Content-Encoding: gzip} to clients which accept it. The compressed listing has an
+     * entity tag of its own and every JSON listing varies by {@code Accept-Encoding}, so caches
+     * never mix up both encodings.
+     *
+     * @param exchange exchange of the current request
+     * @param targetHouse house of the devices
+     * @param type type of listed devices, always the same for one route
+     * @param version version of the type read before the devices
+     * @param devices live view of devices of the type
+     * @param byLabel whether the listing is an object keyed by label instead of an array
+     * @throws IOException if writing to the client fails
+     */
+    protected void bindDevices(Exchange exchange, House targetHouse, Class<? extends Device> type, long version,
+                               Map<String, Device> devices, boolean byLabel) throws IOException {
+        if (MediaFormat.responseFormat(exchange).isBinary()) {
+            exchange.getMessage().setBody(byLabel ? devices : devices.values());
+            return;
+        }
+        SerializedListing listing = listings.get(targetHouse);
+        if (listing == null || listing.version != version) {
+            listing = new SerializedListing(version,
+                    serializeDevices(targetHouse, type, devices, DeviceQuery.ALL, byLabel));
+            if (targetHouse.getVersionOfType(type) == version) {
+                listings.put(targetHouse, listing);
+            }
+        }
+
+        exchange.getMessage().setHeader(VARY_HEADER, ACCEPT_ENCODING_HEADER);
+        if (listing.json.length < GZIP_MIN_BYTES
+                || !acceptsGzip(exchange.getMessage().getHeader(ACCEPT_ENCODING_HEADER, String.class))) {
+            exchange.getMessage().setBody(new SerializedJson(listing.json));
+            return;
+        }
+        exchange.getMessage().setHeader(ETAG_HEADER, gzipEtagOf(version));
+        final HttpServletResponse response = exchange.getMessage()
+                .getHeader(Exchange.HTTP_SERVLET_RESPONSE, HttpServletResponse.class);
+        if (response == null) {
+            exchange.getMessage().setHeader(CONTENT_ENCODING_HEADER, "gzip");
+            exchange.getMessage().setBody(new SerializedJson(listing.gzip()));
+            return;
+        }
+        // The servlet binding would compress the body once more, so it is written directly.
+        startResponse(exchange, response, MediaType.APPLICATION_JSON_VALUE);
+        response.setHeader(VARY_HEADER, ACCEPT_ENCODING_HEADER);
+        response.setHeader(CONTENT_ENCODING_HEADER, "gzip");
+        response.getOutputStream().write(listing.gzip());
+        response.flushBuffer();
+        exchange.getMessage().setBody(null);
+    }
+
+    /**
+     * Concatenates cached JSON forms of devices accepted by a filter
+     *
+     * @param targetHouse house of the devices
+     * @param type type of the devices
+     * @param devices live view of devices to be serialized
+     * @param filter predicate on label and device selecting serialized devices
+     * @param byLabel whether the result is an object keyed by label instead of an array
+     * @return JSON array or object of the devices
+     */
+    protected byte[] serializeDevices(House targetHouse, Class<? extends Device> type, Map<String, Device> devices,
+                                      BiPredicate<String, Device> filter, boolean byLabel) {
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        stream.write(byLabel ? '{' : '[');
+        boolean first = true;
+        for (Map.Entry<String, Device> entry : devices.entrySet()) {
+            if (!filter.test(entry.getKey(), entry.getValue())) {
+                continue;
+            }
+            final byte[] serialized = targetHouse.serializeDevice(entry.getKey(), type, this::serialize);
+            if (serialized == null) {
+                // Removed meanwhile
+                continue;
+            }
+            if (!first) {
+                stream.write(',');
+            }
+            first = false;
+            if (byLabel) {
+                stream.write('"');
+                stream.writeBytes(JsonStringEncoder.getInstance().quoteAsUTF8(entry.getKey()));
+                stream.write('"');
+                stream.write(':');
+            }
+            stream.writeBytes(serialized);
+        }
+        stream.write(byLabel ? '}' : ']');
+        return stream.toByteArray();
+    }
+
+    private byte[] serialize(Device device) {
+        try {
+            return streamMapper.writeValueAsBytes(device);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Binds a single page of devices as response body when the client asked
+     * for one by the {@code limit} and/or {@code cursor} query parameters.
+     *
+     * Pages are label-ordered, the cursor is an opaque token of the last label
+     * of the previous page which is returned in {@code X-Next-Cursor} header as
+     * long as there are more devices. Devices added concurrently never shift
+     * the following pages. Invalid parameters result in status code 400
+     * (Bad Request).
+     *
+     * @param exchange exchange of the current request
+     * @param devices live label-ordered view of devices
+     * @param byLabel whether the page is an object keyed by label instead of an array
+     * @return true if a page was requested, false if the whole listing should be returned
+     */
+    protected boolean pageDevices(Exchange exchange, NavigableMap<String, Device> devices, boolean byLabel) {
+        return pageDevices(exchange, devices, byLabel, DeviceQuery.ALL);
+    }
+
+    /**
+     * Binds a page of devices accepted by a filter, see {@link #pageDevices(Exchange, NavigableMap, boolean)}
+     *
+     * @param exchange exchange of the current request
+     * @param devices live label-ordered view of devices
+     * @param byLabel whether the page is an object keyed by label instead of an array
+     * @param filter predicate on label and device selecting devices of the page
+     * @return true if a page was requested, false if the whole listing should be returned
+     */
+    protected boolean pageDevices(Exchange exchange, NavigableMap<String, Device> devices, boolean byLabel,
+                                  BiPredicate<String, Device> filter) {
+        final String limitParam = exchange.getMessage().getHeader("limit", String.class);
+        final String cursorParam = exchange.getMessage().getHeader("cursor", String.class);
+        if (limitParam == null && cursorParam == null) {
+            return false;
+        }
+
+        final int limit;
+        final String after;
+        try {
+            limit = limitParam == null ? DEFAULT_PAGE_SIZE : Integer.parseInt(limitParam);
+            after = cursorParam == null ? null
+                    : new String(Base64.getUrlDecoder().decode(cursorParam), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            pageRequestInvalid(exchange);
+            return true;
+        }
+        if (limit < 1) {
+            pageRequestInvalid(exchange);
+            return true;
+        }
+
+        final Map<String, Device> page = new LinkedHashMap<>();
+        final NavigableMap<String, Device> remaining = after == null ? devices : devices.tailMap(after, false);
+        String last = null;
+        for (Map.Entry<String, Device> entry : remaining.entrySet()) {
+            if (!filter.test(entry.getKey(), entry.getValue())) {
+                continue;
+            }
+            if (page.size() == limit) {
+                exchange.getMessage().setHeader(NEXT_CURSOR_HEADER,
+                        Base64.getUrlEncoder().withoutPadding().encodeToString(last.getBytes(StandardCharsets.UTF_8)));
+                break;
+            }
+            page.put(entry.getKey(), entry.getValue());
+            last = entry.getKey();
+        }
+        exchange.getMessage().setBody(byLabel ? page : page.values());
+        return true;
+    }
+
+    private void pageRequestInvalid(Exchange exchange) {
+        exchange.getMessage().setHeader(Exchange.HTTP_RESPONSE_CODE, Response.SC_BAD_REQUEST); // 400
+        exchange.getMessage().setBody(null);
+    }
+
+    /**
+     * JSON listing of devices of a type with its lazily compressed variant
+     */
+    private static final class SerializedListing {
+
+        private final long version;
+        private final byte[] json;
+        private volatile byte[] gzip;
+
+        SerializedListing(long version, byte[] json) {
+            this.version = version;
+            this.json = json;
+        }
+
+        byte[] gzip() {
+            byte[] compressed = gzip;
+            if (compressed == null) {
+                // Concurrent requests may compress it twice, which is cheaper than locking.
+                final ByteArrayOutputStream stream = new ByteArrayOutputStream(json.length / 4);
+                try (GZIPOutputStream gzipStream = new GZIPOutputStream(stream)) {
+                    gzipStream.write(json);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                compressed = stream.toByteArray();
+                gzip = compressed;
+            }
+            return compressed;
+        }
     }
 }
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.route;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import io.patriot_framework.virtual_smart_home.layout.HouseLayout;
+import io.patriot_framework.virtual_smart_home.layout.Room;
+import org.apache.camel.Exchange;
+import org.apache.catalina.connector.Response;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+/**
+ * Rooms of the default house
+ *
+ * Rooms are listed at {@code house/room/}, optionally only those on the {@code floor}, and added
+ * by HTTP POST of a room there. A room is retrieved and removed at {@code house/room/{room}} and
+ * the aggregates of its devices are at {@code house/room/{room}/summary}. Devices are assigned and
+ * removed by HTTP PUT and DELETE at {@code house/room/{room}/device/{label}}.
+ */
+@Component
+public class RoomRoute extends BaseRoute {
+
+    private static final String ROOM_HEADER = "room";
+    private static final String LABEL_HEADER = "label";
+    private static final String FLOOR_HEADER = "floor";
+    @Autowired HouseLayout layout;
+
+    @Override
+    public void configure() {
+        onException(JsonProcessingException.class)
+                .setHeader(Exchange.HTTP_RESPONSE_CODE, constant(Response.SC_BAD_REQUEST)) // 400
+                .setBody(constant(null))
+                .handled(true);
+
+        rest("house/room/")
+                .get()
+                    .produces(MediaType.APPLICATION_JSON_VALUE)
+                    .route()
+                    .routeId("read-rooms-route")
+                    .process(this::readRooms)
+                    .endRest()
+
+                .get("{" + ROOM_HEADER + "}")
+                    .produces(MediaType.APPLICATION_JSON_VALUE)
+                    .route()
+                    .routeId("read-room-route")
+                    .process(exchange -> found(exchange, findRoom(exchange)))
+                    .endRest()
+
+                .get("{" + ROOM_HEADER + "}/summary")
+                    .produces(MediaType.APPLICATION_JSON_VALUE)
+                    .route()
+                    .routeId("read-room-summary-route")
+                    .process(this::readSummary)
+                    .endRest()
+
+                .post()
+                    .type(Room.class)
+                    .consumes(MediaType.APPLICATION_JSON_VALUE)
+                    .produces(MediaType.APPLICATION_JSON_VALUE)
+                    .route()
+                    .routeId("create-room-route")
+                    .process(this::createRoom)
+                    .endRest()
+
+                .delete("{" + ROOM_HEADER + "}")
+                    .route()
+                    .routeId("delete-room-route")
+                    .process(exchange -> found(exchange, layout.removeRoom(roomName(exchange))))
+                    .endRest()
+
+                .put("{" + ROOM_HEADER + "}/device/{" + LABEL_HEADER + "}")
+                    .produces(MediaType.APPLICATION_JSON_VALUE)
+                    .route()
+                    .routeId("assign-room-device-route")
+                    .process(exchange -> found(exchange, layout.assignDevice(roomName(exchange), label(exchange))))
+                    .endRest()
+
+                .delete("{" + ROOM_HEADER + "}/device/{" + LABEL_HEADER + "}")
+                    .route()
+                    .routeId("unassign-room-device-route")
+                    .process(exchange -> found(exchange, layout.unassignDevice(roomName(exchange), label(exchange))))
+                    .endRest();
+    }
+
+    private void readRooms(Exchange exchange) {
+        final String floor = exchange.getMessage().getHeader(FLOOR_HEADER, String.class);
+        exchange.getMessage().setBody(floor == null ? layout.getRooms() : layout.getRoomsOfFloor(floor));
+    }
+
+    private void readSummary(Exchange exchange) {
+        final Room room = findRoom(exchange);
+        found(exchange, room == null ? null : room.getSummary());
+    }
+
+    private void createRoom(Exchange exchange) {
+        final Object body = exchange.getMessage().getBody();
+        if (!(body instanceof Room)) {
+            exchange.getMessage().setHeader(Exchange.HTTP_RESPONSE_CODE, Response.SC_BAD_REQUEST); // 400
+            exchange.getMessage().setBody(null);
+        } else if (!layout.addRoom((Room) body)) {
+            exchange.getMessage().setHeader(Exchange.HTTP_RESPONSE_CODE, Response.SC_CONFLICT); // 409
+            exchange.getMessage().setBody(null);
+        } else {
+            exchange.getMessage().setHeader(Exchange.HTTP_RESPONSE_CODE, Response.SC_CREATED); // 201
+        }
+    }
+
+    private Room findRoom(Exchange exchange) {
+        return layout.findRoom(roomName(exchange));
+    }
+
+    private static String roomName(Exchange exchange) {
+        return exchange.getMessage().getHeader(ROOM_HEADER, String.class);
+    }
+
+    private static String label(Exchange exchange) {
+        return exchange.getMessage().getHeader(LABEL_HEADER, String.class);
+    }
+
+    /**
+     * Responds with the body, or with status 404 if there is none
+     */
+    private static void found(Exchange exchange, Object body) {
+        if (body == null) {
+            exchange.getMessage().setHeader(Exchange.HTTP_RESPONSE_CODE, Response.SC_NOT_FOUND); // 404
+        }
+        exchange.getMessage().setBody(body);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.route;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import io.patriot_framework.virtual_smart_home.rules.Rule;
+import io.patriot_framework.virtual_smart_home.rules.RuleEngine;
+import org.apache.camel.Exchange;
+import org.apache.catalina.connector.Response;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+/**
+ * Automation rules of the default house
+ *
+ * Rules are listed at {@code house/rules/}, registered by HTTP POST of a rule there,
+ * and retrieved and removed at {@code house/rules/{name}}.
+ */
+@Component
+public class RuleRoute extends BaseRoute {
+
+    private static final String NAME_HEADER = "name";
+    @Autowired RuleEngine engine;
+
+    @Override
+    public void configure() {
+        onException(JsonProcessingException.class)
+                .setHeader(Exchange.HTTP_RESPONSE_CODE, constant(Response.SC_BAD_REQUEST)) // 400
+                .setBody(constant(null))
+                .handled(true);
+
+        rest("house/rules/")
+                .get()
+                    .produces(MediaType.APPLICATION_JSON_VALUE)
+                    .route()
+                    .routeId("read-rules-route")
+                    .process(exchange -> exchange.getMessage().setBody(engine.getRules()))
+                    .endRest()
+
+                .get("{" + NAME_HEADER + "}")
+                    .produces(MediaType.APPLICATION_JSON_VALUE)
+                    .route()
+                    .routeId("read-rule-route")
+                    .process(this::readRule)
+                    .endRest()
+
+                .post()
+                    .type(Rule.class)
+                    .consumes(MediaType.APPLICATION_JSON_VALUE)
+                    .produces(MediaType.APPLICATION_JSON_VALUE)
+                    .route()
+                    .routeId("create-rule-route")
+                    .process(this::createRule)
+                    .endRest()
+
+                .delete("{" + NAME_HEADER + "}")
+                    .route()
+                    .routeId("delete-rule-route")
+                    .process(this::deleteRule)
+                    .endRest();
+    }
+
+    private void readRule(Exchange exchange) {
+        final Rule rule = engine.findRule(exchange.getMessage().getHeader(NAME_HEADER, String.class));
+        if (rule == null) {
+            exchange.getMessage().setHeader(Exchange.HTTP_RESPONSE_CODE, Response.SC_NOT_FOUND); // 404
+        }
+        exchange.getMessage().setBody(rule);
+    }
+
+    private void createRule(Exchange exchange) {
+        final Object body = exchange.getMessage().getBody();
+        if (!(body instanceof Rule)) {
+            exchange.getMessage().setHeader(Exchange.HTTP_RESPONSE_CODE, Response.SC_BAD_REQUEST); // 400
+            exchange.getMessage().setBody(null);
+        } else if (!engine.addRule((Rule) body)) {
+            exchange.getMessage().setHeader(Exchange.HTTP_RESPONSE_CODE, Response.SC_CONFLICT); // 409
+            exchange.getMessage().setBody(null);
+        } else {
+            exchange.getMessage().setHeader(Exchange.HTTP_RESPONSE_CODE, Response.SC_CREATED); // 201
+        }
+    }
+
+    private void deleteRule(Exchange exchange) {
+        final Rule rule = engine.removeRule(exchange.getMessage().getHeader(NAME_HEADER, String.class));
+        if (rule == null) {
+            exchange.getMessage().setHeader(Exchange.HTTP_RESPONSE_CODE, Response.SC_NOT_FOUND); // 404
+        }
+        exchange.getMessage().setBody(rule);
+    }
+}
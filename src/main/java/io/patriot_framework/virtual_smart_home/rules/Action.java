@@ -0,0 +1,63 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.rules;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Action of a {@link Rule}, switches actuators of a type, optionally limited to a single label
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public final class Action {
+
+    private final String type;
+    private final String label;
+    private final boolean enabled;
+
+    /**
+     * Creates action of a rule
+     *
+     * @param type simple name of the actuator type, e.g. {@code fireplace} or {@code actuator}
+     * @param label label of the actuator, null for all actuators of the type
+     * @param enabled state the actuators are switched to
+     * @throws IllegalArgumentException if type is missing
+     */
+    @JsonCreator
+    public Action(@JsonProperty("type") String type, @JsonProperty("label") String label,
+                  @JsonProperty("enabled") boolean enabled) throws IllegalArgumentException {
+        if (type == null || type.isEmpty()) {
+            throw new IllegalArgumentException("Type of action can't be empty");
+        }
+        this.type = type.toLowerCase();
+        this.label = label;
+        this.enabled = enabled;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.rules;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.patriot_framework.virtual_smart_home.house.device.Actuator;
+import io.patriot_framework.virtual_smart_home.house.device.Device;
+
+/**
+ * Condition of a {@link Rule}
+ *
+ * Candidates of the condition are devices of the type, optionally limited to a single label.
+ * A candidate matches if it has the requested state, the condition holds if the quantifier
+ * is satisfied by the matching candidates.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public final class Condition {
+
+    private final String type;
+    private final String label;
+    private final Boolean enabled;
+    private final Quantifier quantifier;
+
+    /**
+     * Creates condition of a rule
+     *
+     * @param type simple name of the device type, supertypes such as {@code actuator} are accepted as well
+     * @param label label of the device, null for all devices of the type
+     * @param enabled state of matching actuators, null for any device
+     * @param quantifier how many candidates must match, null for {@code ANY}
+     * @throws IllegalArgumentException if type is missing
+     */
+    @JsonCreator
+    public Condition(@JsonProperty("type") String type, @JsonProperty("label") String label,
+                     @JsonProperty("enabled") Boolean enabled, @JsonProperty("quantifier") Quantifier quantifier)
+            throws IllegalArgumentException {
+        if (type == null || type.isEmpty()) {
+            throw new IllegalArgumentException("Type of condition can't be empty");
+        }
+        this.type = type.toLowerCase();
+        this.label = label;
+        this.enabled = enabled;
+        this.quantifier = quantifier == null ? Quantifier.ANY : quantifier;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public Boolean getEnabled() {
+        return enabled;
+    }
+
+    public Quantifier getQuantifier() {
+        return quantifier;
+    }
+
+    /**
+     * Checks whether device stored under a label is a candidate of the condition
+     *
+     * @param deviceLabel label of the device
+     * @param device device stored under the label
+     * @return true if the device is a candidate
+     */
+    boolean isCandidate(String deviceLabel, Device device) {
+        return (label == null || label.equals(deviceLabel)) && DeviceTypes.isInstance(device, type);
+    }
+
+    /**
+     * Checks whether a candidate has the requested state
+     *
+     * @param device candidate of the condition
+     * @return true if the candidate matches
+     */
+    boolean matches(Device device) {
+        return enabled == null || device instanceof Actuator && ((Actuator) device).isEnabled() == enabled;
+    }
+
+    /**
+     * Evaluates the quantifier
+     *
+     * @param candidates number of candidates
+     * @param matching number of matching candidates
+     * @return true if the condition holds
+     */
+    boolean holds(int candidates, int matching) {
+        switch (quantifier) {
+            case ALL:
+                return candidates > 0 && matching == candidates;
+            case NONE:
+                return matching == 0;
+            default:
+                return matching > 0;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.rules;
+
+import io.patriot_framework.virtual_smart_home.house.House;
+import io.patriot_framework.virtual_smart_home.house.device.Device;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Names of device types as used by rules, i.e. lower-case simple names of the class and its supertypes
+ */
+final class DeviceTypes {
+
+    private static final ClassValue<String[]> NAMES = new ClassValue<String[]>() {
+        @Override
+        protected String[] computeValue(Class<?> deviceClass) {
+            final List<String> names = new ArrayList<>();
+            for (Class<?> type = deviceClass; Device.class.isAssignableFrom(type); type = type.getSuperclass()) {
+                names.add(type.getSimpleName().toLowerCase());
+            }
+            return names.toArray(new String[0]);
+        }
+    };
+    private static final String[] NO_NAMES = new String[0];
+
+    private DeviceTypes() {
+    }
+
+    /**
+     * Returns names of all types of a device, cached per device class
+     *
+     * @param device device, may be null
+     * @return names of the device class and its supertypes, empty if device is null
+     */
+    static String[] namesOf(Device device) {
+        return device == null ? NO_NAMES : NAMES.get(device.getClass());
+    }
+
+    /**
+     * Checks whether device is of named type
+     *
+     * @param device device, may be null
+     * @param type lower-case simple name of the type
+     * @return true if the device class or any of its supertypes has the name
+     */
+    static boolean isInstance(Device device, String type) {
+        for (String name : namesOf(device)) {
+            if (name.equals(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Resolves named type among types indexed by a house
+     *
+     * @param house house of the devices
+     * @param type lower-case simple name of the type
+     * @return class of the type, null if the house has no such type
+     */
+    static Class<? extends Device> resolve(House house, String type) {
+        for (Class<?> candidate : house.getDeviceTypes()) {
+            if (Device.class.isAssignableFrom(candidate) && candidate.getSimpleName().equalsIgnoreCase(type)) {
+                return candidate.asSubclass(Device.class);
+            }
+        }
+        return null;
+    }
+}
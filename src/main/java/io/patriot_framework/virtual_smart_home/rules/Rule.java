@@ -0,0 +1,66 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.rules;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Automation rule, performs its action once its condition starts to hold
+ *
+ * <pre>
+ * {"name": "heating", "when": {"type": "fireplace", "enabled": true},
+ *  "then": {"type": "fireplace", "label": "kitchen", "enabled": true}}
+ * </pre>
+ */
+public final class Rule {
+
+    private final String name;
+    private final Condition when;
+    private final Action then;
+
+    /**
+     * Creates rule
+     *
+     * @param name unique name of the rule
+     * @param when condition of the rule
+     * @param then action performed once the condition starts to hold
+     * @throws IllegalArgumentException if any of the parameters is missing
+     */
+    @JsonCreator
+    public Rule(@JsonProperty("name") String name, @JsonProperty("when") Condition when,
+                @JsonProperty("then") Action then) throws IllegalArgumentException {
+        if (name == null || name.isEmpty() || when == null || then == null) {
+            throw new IllegalArgumentException("Rule must have name, condition and action");
+        }
+        this.name = name;
+        this.when = when;
+        this.then = then;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Condition getWhen() {
+        return when;
+    }
+
+    public Action getThen() {
+        return then;
+    }
+}
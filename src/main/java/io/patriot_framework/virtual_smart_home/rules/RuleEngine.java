@@ -0,0 +1,338 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.rules;
+
+import io.patriot_framework.virtual_smart_home.house.House;
+import io.patriot_framework.virtual_smart_home.house.HouseListener;
+import io.patriot_framework.virtual_smart_home.house.device.Actuator;
+import io.patriot_framework.virtual_smart_home.house.device.Device;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Incremental engine of automation {@link Rule}s fed by changes of {@code House}
+ *
+ * Every rule keeps its own memory of candidate devices and whether they match, so a change of a device
+ * only updates rules indexed by the label or by any type of the original and the new device. Rules
+ * touched during a tick are evaluated once at its end and those whose condition started to hold fire
+ * their actions. Actions change the house, so rules depending on them are evaluated in the next tick.
+ *
+ * Changes are only queued by the house listener, all the rule memories are maintained by the single
+ * thread advancing the engine.
+ */
+public final class RuleEngine implements HouseListener, Closeable {
+
+    public static final Logger LOGGER = LogManager.getLogger();
+
+    private final House house;
+    private final long tickMillis;
+    /**
+     * Registered rules by name, accessed by any thread.
+     */
+    private final Map<String, Rule> rules = new ConcurrentHashMap<>();
+    private final Queue<Runnable> commands = new ConcurrentLinkedQueue<>();
+    private final Queue<Change> changes = new ConcurrentLinkedQueue<>();
+    // Following fields are accessed only by the engine thread
+    private final Map<String, RuleMemory> memories = new HashMap<>();
+    private final Map<String, List<RuleMemory>> rulesByType = new HashMap<>();
+    private final Map<String, List<RuleMemory>> rulesByLabel = new HashMap<>();
+    private final List<RuleMemory> touched = new ArrayList<>();
+    private ScheduledExecutorService ticker;
+
+    /**
+     * Creates rule engine of a house
+     *
+     * @param house house the rules observe and change
+     * @param tickMillis length of a tick in milliseconds
+     * @throws IllegalArgumentException if house is null or tick isn't positive
+     */
+    public RuleEngine(House house, long tickMillis) throws IllegalArgumentException {
+        if (house == null) {
+            throw new IllegalArgumentException("House can't be null");
+        }
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick of rule engine must be positive");
+        }
+        this.house = house;
+        this.tickMillis = tickMillis;
+    }
+
+    /**
+     * Starts observing the house and the thread advancing the engine every tick
+     */
+    public synchronized void start() {
+        house.addListener(this);
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "house-rules");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        house.removeListener(this);
+        if (ticker != null) {
+            ticker.shutdownNow();
+            ticker = null;
+        }
+    }
+
+    /**
+     * Registers rule, which is evaluated against the current state of the house in the next tick
+     *
+     * @param rule rule to be registered
+     * @return true if the rule was registered, false if there already is a rule with the same name
+     * @throws IllegalArgumentException if rule is null
+     */
+    public boolean addRule(Rule rule) throws IllegalArgumentException {
+        if (rule == null) {
+            throw new IllegalArgumentException("Rule can't be null");
+        }
+        if (rules.putIfAbsent(rule.getName(), rule) != null) {
+            return false;
+        }
+        commands.add(() -> index(rule));
+        LOGGER.debug("At house:{} rule:{} added", house.getHouseName(), rule.getName());
+        return true;
+    }
+
+    /**
+     * Unregisters rule
+     *
+     * @param name name of the rule
+     * @return removed rule, null if there was no rule with the name
+     */
+    public Rule removeRule(String name) {
+        final Rule rule = rules.remove(name);
+        if (rule != null) {
+            commands.add(() -> unindex(rule));
+        }
+        return rule;
+    }
+
+    /**
+     * Finds rule by name
+     *
+     * @param name name of the rule
+     * @return rule with the name, null if there is none
+     */
+    public Rule findRule(String name) {
+        return rules.get(name);
+    }
+
+    /**
+     * Returns all registered rules
+     *
+     * @return unmodifiable view of the rules
+     */
+    public Collection<Rule> getRules() {
+        return Collections.unmodifiableCollection(rules.values());
+    }
+
+    /**
+     * Queues the change, unless there are no rules to be affected by it.
+     */
+    @Override
+    public void deviceChanged(String label, Device origDevice, Device device, long version) {
+        if (!rules.isEmpty()) {
+            changes.add(new Change(label, origDevice, device));
+        }
+    }
+
+    /**
+     * Advances the engine by a single tick, called by the engine thread.
+     * If the engine wasn't started, it may be advanced by calling this method directly.
+     */
+    public void tick() {
+        for (Runnable command = commands.poll(); command != null; command = commands.poll()) {
+            command.run();
+        }
+        for (Change change = changes.poll(); change != null; change = changes.poll()) {
+            apply(change);
+        }
+        final List<Rule> fired = new ArrayList<>();
+        for (RuleMemory memory : touched) {
+            if (memory.evaluate()) {
+                fired.add(memory.rule);
+            }
+        }
+        touched.clear();
+        fired.forEach(this::fire);
+    }
+
+    private void index(Rule rule) {
+        final RuleMemory memory = new RuleMemory(rule);
+        memories.put(rule.getName(), memory);
+        final Condition condition = rule.getWhen();
+        if (condition.getLabel() != null) {
+            rulesByLabel.computeIfAbsent(condition.getLabel(), key -> new ArrayList<>()).add(memory);
+            memory.update(condition.getLabel(), house.findDevice(condition.getLabel()));
+        } else {
+            rulesByType.computeIfAbsent(condition.getType(), key -> new ArrayList<>()).add(memory);
+            house.getDevices().forEach(memory::update);
+        }
+        touch(memory);
+    }
+
+    private void unindex(Rule rule) {
+        final RuleMemory memory = memories.remove(rule.getName());
+        final Condition condition = rule.getWhen();
+        if (condition.getLabel() != null) {
+            rulesByLabel.computeIfPresent(condition.getLabel(), (key, dependent) -> remove(dependent, memory));
+        } else {
+            rulesByType.computeIfPresent(condition.getType(), (key, dependent) -> remove(dependent, memory));
+        }
+        touched.remove(memory);
+    }
+
+    private static List<RuleMemory> remove(List<RuleMemory> dependent, RuleMemory memory) {
+        dependent.remove(memory);
+        return dependent.isEmpty() ? null : dependent;
+    }
+
+    /**
+     * Updates memories of rules indexed by the label or by any type of the original or the new device.
+     */
+    private void apply(Change change) {
+        updateDependent(rulesByLabel.get(change.label), change);
+        for (String type : DeviceTypes.namesOf(change.origDevice)) {
+            updateDependent(rulesByType.get(type), change);
+        }
+        for (String type : DeviceTypes.namesOf(change.device)) {
+            updateDependent(rulesByType.get(type), change);
+        }
+    }
+
+    private void updateDependent(List<RuleMemory> dependent, Change change) {
+        if (dependent == null) {
+            return;
+        }
+        for (RuleMemory memory : dependent) {
+            memory.update(change.label, change.device);
+            touch(memory);
+        }
+    }
+
+    private void touch(RuleMemory memory) {
+        if (!memory.touched) {
+            memory.touched = true;
+            touched.add(memory);
+        }
+    }
+
+    private void fire(Rule rule) {
+        final Action action = rule.getThen();
+        LOGGER.debug("At house:{} rule:{} fired", house.getHouseName(), rule.getName());
+        if (action.getLabel() != null) {
+            switchActuator(action.getLabel(), action);
+            return;
+        }
+        // Only the index of the action type is walked, so other devices aren't locked
+        final Class<? extends Device> type = DeviceTypes.resolve(house, action.getType());
+        if (type != null) {
+            house.getDevicesOfType(type).keySet().forEach(label -> switchActuator(label, action));
+        }
+    }
+
+    private void switchActuator(String label, Action action) {
+        house.modifyDeviceIfPresent(label, Actuator.class, actuator -> {
+            if (!DeviceTypes.isInstance(actuator, action.getType()) || actuator.isEnabled() == action.isEnabled()) {
+                return false;
+            }
+            actuator.setEnabled(action.isEnabled());
+            return true;
+        });
+    }
+
+    /**
+     * Change of a device queued for the engine thread
+     */
+    private static final class Change {
+
+        private final String label;
+        private final Device origDevice;
+        private final Device device;
+
+        Change(String label, Device origDevice, Device device) {
+            this.label = label;
+            this.origDevice = origDevice;
+            this.device = device;
+        }
+    }
+
+    /**
+     * Memory of a rule, i.e. its candidates with their match and whether the condition held at the last evaluation
+     */
+    private static final class RuleMemory {
+
+        private final Rule rule;
+        private final Map<String, Boolean> candidates = new HashMap<>();
+        private int matching;
+        private boolean satisfied;
+        private boolean touched;
+
+        RuleMemory(Rule rule) {
+            this.rule = rule;
+        }
+
+        /**
+         * Records device currently stored under the label, null if the label was removed.
+         * Updates are idempotent, so a change already seen by the initial scan of the house may be applied again.
+         */
+        void update(String label, Device device) {
+            final Condition condition = rule.getWhen();
+            final Boolean previous = device != null && condition.isCandidate(label, device)
+                    ? candidates.put(label, condition.matches(device))
+                    : candidates.remove(label);
+            if (Boolean.TRUE.equals(previous)) {
+                matching--;
+            }
+            if (Boolean.TRUE.equals(candidates.get(label))) {
+                matching++;
+            }
+        }
+
+        /**
+         * Evaluates the condition
+         *
+         * @return true if the condition started to hold and the rule fires
+         */
+        boolean evaluate() {
+            touched = false;
+            final boolean holds = rule.getWhen().holds(candidates.size(), matching);
+            final boolean fires = holds && !satisfied;
+            satisfied = holds;
+            return fires;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.server;
+
+/**
+ * Threads REST requests are handled on
+ */
+public enum ExecutionMode {
+
+    /**
+     * Requests are handled by the bounded pool of platform threads of the servlet container.
+     */
+    PLATFORM,
+
+    /**
+     * Every request is handled by a new virtual thread, so requests waiting on a blocking
+     * call don't limit concurrency. Requires Java 21 or newer at runtime.
+     */
+    VIRTUAL
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.server;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Applies {@link ExecutionMode} to the embedded Tomcat
+ *
+ * In {@code VIRTUAL} mode the connector hands every request to a new virtual thread instead
+ * of its worker pool. Camel {@code direct:} endpoints run in the thread of the caller, so the
+ * route processors run on the virtual thread as well. The application is built for Java 17,
+ * so virtual threads are looked up reflectively, and platform threads are used when the runtime
+ * doesn't provide them.
+ */
+public class ExecutionModeCustomizer implements WebServerFactoryCustomizer<TomcatServletWebServerFactory> {
+
+    public static final Logger LOGGER = LogManager.getLogger();
+    private static final String THREAD_NAME_PREFIX = "http-virtual-";
+
+    private final ExecutionMode executionMode;
+
+    public ExecutionModeCustomizer(ExecutionMode executionMode) {
+        this.executionMode = executionMode;
+    }
+
+    @Override
+    public void customize(TomcatServletWebServerFactory factory) {
+        if (executionMode != ExecutionMode.VIRTUAL) {
+            return;
+        }
+        final ThreadFactory threadFactory = virtualThreadFactory(THREAD_NAME_PREFIX);
+        if (threadFactory == null) {
+            LOGGER.warn("Virtual threads require Java 21 or newer, requests are handled on platform threads");
+            return;
+        }
+        final Executor executor = runnable -> threadFactory.newThread(runnable).start();
+        factory.addProtocolHandlerCustomizers(protocolHandler -> protocolHandler.setExecutor(executor));
+        LOGGER.info("Requests are handled on virtual threads");
+    }
+
+    /**
+     * Creates factory of named virtual threads
+     *
+     * @param namePrefix prefix of thread names, followed by a sequence number
+     * @return factory of virtual threads, null if the runtime doesn't support them
+     */
+    public static ThreadFactory virtualThreadFactory(String namePrefix) {
+        try {
+            final Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.server;
+
+/**
+ * HTTP transport the Camel REST routes are served by
+ */
+public enum RestTransport {
+
+    /**
+     * Routes are served by the servlet container, on {@code server.port}.
+     */
+    SERVLET("servlet"),
+
+    /**
+     * Routes are served by a Netty event loop, on {@code house.rest.port}. The servlet container
+     * keeps serving the device event feed and actuator on {@code server.port}, so the ports must differ.
+     */
+    NETTY("netty-http");
+
+    private final String component;
+
+    RestTransport(String component) {
+        this.component = component;
+    }
+
+    /**
+     * Returns name of the Camel component implementing the transport
+     *
+     * @return name of the Camel component
+     */
+    public String getComponent() {
+        return component;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.simulation;
+
+import io.patriot_framework.virtual_smart_home.house.device.Actuator;
+
+/**
+ * Switches actuators on and off periodically
+ */
+public final class ActuatorSchedule implements Behavior<Actuator> {
+
+    private final long onTicks;
+    private final long offTicks;
+
+    /**
+     * Creates schedule of actuators
+     *
+     * @param onTicks number of ticks the actuator stays enabled
+     * @param offTicks number of ticks the actuator stays disabled
+     * @throws IllegalArgumentException if any of the periods isn't positive
+     */
+    public ActuatorSchedule(long onTicks, long offTicks) throws IllegalArgumentException {
+        if (onTicks <= 0 || offTicks <= 0) {
+            throw new IllegalArgumentException("Periods of actuator schedule must be positive");
+        }
+        this.onTicks = onTicks;
+        this.offTicks = offTicks;
+    }
+
+    @Override
+    public boolean step(Actuator device, long tick) {
+        device.setEnabled(!device.isEnabled());
+        return true;
+    }
+
+    @Override
+    public long nextDelay(Actuator device, long tick) {
+        return device.isEnabled() ? onTicks : offTicks;
+    }
+}
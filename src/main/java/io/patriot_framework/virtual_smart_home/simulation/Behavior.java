@@ -0,0 +1,50 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.simulation;
+
+import io.patriot_framework.virtual_smart_home.house.device.Device;
+
+/**
+ * Evolution of devices of a type over simulated time
+ *
+ * A behavior declared for a supertype, e.g. {@code Behavior<Actuator>}, can drive any of its subtypes.
+ * Both methods are called by {@link Simulation} while the label of the device is locked in the house,
+ * so they must be quick and must not access the house. A single behavior instance usually drives
+ * many devices, so any per-device state belongs to the device itself.
+ *
+ * @param <T> type of driven devices
+ */
+public interface Behavior<T extends Device> {
+
+    /**
+     * Advances state of the device in place
+     *
+     * @param device driven device
+     * @param tick current simulation tick
+     * @return true if state of the device changed
+     */
+    boolean step(T device, long tick);
+
+    /**
+     * Returns number of ticks until the next step of the device
+     *
+     * @param device driven device, already advanced by {@link #step(Device, long)}
+     * @param tick current simulation tick
+     * @return number of ticks until the next step, zero or less to stop driving the device
+     */
+    long nextDelay(T device, long tick);
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.simulation;
+
+import io.patriot_framework.virtual_smart_home.house.House;
+import io.patriot_framework.virtual_smart_home.house.HouseListener;
+import io.patriot_framework.virtual_smart_home.house.device.Device;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Discrete-time simulation of devices in {@code House}
+ *
+ * Devices are driven by {@link Behavior}s, every driven device has a single timeout in a {@link TimingWheel},
+ * so a tick costs time proportional to the number of devices stepped in it, no matter how many devices
+ * are driven. Behaviors modify devices in place through {@code House.modifyDeviceIfPresent}, so changes
+ * get versions and reach listeners like any other mutation. A device is no longer driven once it is removed
+ * or replaced by a device of another type.
+ *
+ * The simulation is advanced by a single thread, behaviors are attached and detached from any thread
+ * by commands executed at the start of the next tick.
+ */
+public final class Simulation implements HouseListener, Closeable {
+
+    public static final Logger LOGGER = LogManager.getLogger();
+
+    private final House house;
+    private final long tickMillis;
+    private final TimingWheel wheel = new TimingWheel();
+    /**
+     * Driven devices by label, accessed only by the simulation thread.
+     */
+    private final Map<String, Activity<?>> activities = new HashMap<>();
+    private final Queue<Runnable> commands = new ConcurrentLinkedQueue<>();
+    /**
+     * Copy-on-write array of behaviors of types, so that adding a device doesn't allocate an iterator.
+     */
+    private volatile TypeBehavior<?>[] typeBehaviors = new TypeBehavior<?>[0];
+    private volatile long tick;
+    private ScheduledExecutorService ticker;
+
+    /**
+     * Creates simulation of a house
+     *
+     * @param house simulated house
+     * @param tickMillis length of a tick in milliseconds
+     * @throws IllegalArgumentException if house is null or tick isn't positive
+     */
+    public Simulation(House house, long tickMillis) throws IllegalArgumentException {
+        if (house == null) {
+            throw new IllegalArgumentException("House can't be null");
+        }
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick of simulation must be positive");
+        }
+        this.house = house;
+        this.tickMillis = tickMillis;
+    }
+
+    /**
+     * Starts the thread advancing the simulation every tick
+     */
+    public synchronized void start() {
+        house.addListener(this);
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "house-simulation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        LOGGER.info("Simulation of house:{} started with tick of {} ms", house.getHouseName(), tickMillis);
+    }
+
+    /**
+     * Stops the simulation, devices keep their current state
+     */
+    @Override
+    public synchronized void close() {
+        house.removeListener(this);
+        if (ticker != null) {
+            ticker.shutdownNow();
+            ticker = null;
+        }
+    }
+
+    /**
+     * Advances the simulation by a single tick, called by the simulation thread.
+     * If the simulation wasn't started, it may be advanced by calling this method directly.
+     */
+    public void tick() {
+        for (Runnable command = commands.poll(); command != null; command = commands.poll()) {
+            command.run();
+        }
+        wheel.advance();
+        tick = wheel.getTick();
+    }
+
+    /**
+     * Returns the current tick
+     *
+     * @return number of ticks since the simulation started
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Drives device with given label by a behavior, replacing any behavior the device had
+     *
+     * @param label label of the driven device
+     * @param type type the driven device must have, the device is no longer driven once it has another type
+     * @param behavior behavior of the device
+     * @param delay number of ticks until the first step
+     * @param <T> type of the driven device
+     * @throws IllegalArgumentException if any of the parameters is null
+     */
+    public <T extends Device> void attach(String label, Class<T> type, Behavior<? super T> behavior, long delay)
+            throws IllegalArgumentException {
+        if (label == null || type == null || behavior == null) {
+            throw new IllegalArgumentException("Label, type and behavior can't be null");
+        }
+        commands.add(() -> {
+            final Activity<T> activity = new Activity<>(label, type, behavior);
+            final Activity<?> replaced = activities.put(label, activity);
+            if (replaced != null) {
+                wheel.cancel(replaced);
+            }
+            wheel.schedule(activity, delay);
+        });
+    }
+
+    /**
+     * Stops driving device with given label
+     *
+     * @param label label of the device
+     */
+    public void detach(String label) {
+        commands.add(() -> {
+            final Activity<?> activity = activities.remove(label);
+            if (activity != null) {
+                wheel.cancel(activity);
+            }
+        });
+    }
+
+    /**
+     * Drives all present and future devices of given type by a behavior
+     *
+     * @param type type of driven devices, subtypes are driven as well
+     * @param behavior behavior of the devices
+     * @param delay number of ticks until the first step of each device
+     * @param <T> type of driven devices
+     * @throws IllegalArgumentException if any of the parameters is null
+     */
+    public synchronized <T extends Device> void attachToType(Class<T> type, Behavior<? super T> behavior, long delay)
+            throws IllegalArgumentException {
+        if (type == null || behavior == null) {
+            throw new IllegalArgumentException("Type and behavior can't be null");
+        }
+        final TypeBehavior<?>[] extended = Arrays.copyOf(typeBehaviors, typeBehaviors.length + 1);
+        extended[typeBehaviors.length] = new TypeBehavior<>(type, behavior, delay);
+        typeBehaviors = extended;
+        house.getDevicesOfType(type).keySet().forEach(label -> attach(label, type, behavior, delay));
+    }
+
+    /**
+     * Attaches behaviors of types to added devices.
+     */
+    @Override
+    public void deviceChanged(String label, Device origDevice, Device device, long version) {
+        if (device == null || origDevice == device) {
+            return;
+        }
+        for (TypeBehavior<?> typeBehavior : typeBehaviors) {
+            typeBehavior.attachIfInstance(label, device);
+        }
+    }
+
+    /**
+     * Behavior attached to all devices of a type
+     */
+    private final class TypeBehavior<T extends Device> {
+
+        private final Class<T> type;
+        private final Behavior<? super T> behavior;
+        private final long delay;
+
+        TypeBehavior(Class<T> type, Behavior<? super T> behavior, long delay) {
+            this.type = type;
+            this.behavior = behavior;
+            this.delay = delay;
+        }
+
+        void attachIfInstance(String label, Device device) {
+            if (type.isInstance(device)) {
+                attach(label, type, behavior, delay);
+            }
+        }
+    }
+
+    /**
+     * Driven device, steps the device once its timeout expires and reschedules itself
+     */
+    private final class Activity<T extends Device> extends TimingWheel.Timeout implements Predicate<T> {
+
+        private final String label;
+        private final Class<T> type;
+        private final Behavior<? super T> behavior;
+        private long now;
+        private long nextDelay;
+
+        Activity(String label, Class<T> type, Behavior<? super T> behavior) {
+            this.label = label;
+            this.type = type;
+            this.behavior = behavior;
+        }
+
+        @Override
+        protected void expire(long expiredTick) {
+            now = expiredTick;
+            try {
+                if (house.modifyDeviceIfPresent(label, type, this) != null && nextDelay > 0) {
+                    wheel.schedule(this, nextDelay);
+                    return;
+                }
+            } catch (RuntimeException e) {
+                LOGGER.warn("Behavior {} of device with label:{} failed and was detached", behavior, label, e);
+            }
+            activities.remove(label, this);
+        }
+
+        /**
+         * Steps the device while its label is locked.
+         */
+        @Override
+        public boolean test(T device) {
+            final boolean changed = behavior.step(device, now);
+            nextDelay = behavior.nextDelay(device, now);
+            return changed;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.simulation;
+
+/**
+ * Hierarchical timing wheel
+ *
+ * Each of the {@link #LEVELS} wheels has {@link #SLOTS} slots, a slot of a wheel spans all slots of the wheel
+ * below. Timeouts live in intrusive doubly linked lists of slots, so scheduling and cancelling is O(1) and
+ * doesn't allocate. Advancing by a tick expires the current slot of the lowest wheel, timeouts of upper wheels
+ * are moved one wheel down once the lower wheel wraps around, so every timeout is moved at most
+ * {@code LEVELS - 1} times. Delays longer than the span of all wheels are re-checked on every wrap of the top wheel.
+ *
+ * The wheel is not thread-safe, it is meant to be driven by a single thread.
+ */
+public final class TimingWheel {
+
+    public static final int LEVELS = 4;
+    public static final int SLOT_BITS = 6;
+    public static final int SLOTS = 1 << SLOT_BITS;
+    /**
+     * Longest delay placed precisely, longer delays are parked in the top wheel.
+     */
+    public static final long MAX_DELAY = (1L << (SLOT_BITS * LEVELS)) - 1;
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    private final Timeout[][] wheels = new Timeout[LEVELS][SLOTS];
+    private long tick;
+    private int size;
+
+    /**
+     * Returns the current tick, i.e. number of calls of {@link #advance()}
+     *
+     * @return current tick
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Returns number of scheduled timeouts
+     *
+     * @return number of scheduled timeouts
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Schedules timeout to expire after given number of ticks, rescheduling it if it was already scheduled
+     *
+     * @param timeout timeout to be scheduled
+     * @param delay number of ticks until the timeout expires, at least one tick is used
+     */
+    public void schedule(Timeout timeout, long delay) {
+        if (timeout.isScheduled()) {
+            unlink(timeout);
+            size--;
+        }
+        timeout.deadline = tick + Math.max(1, delay);
+        place(timeout);
+        size++;
+    }
+
+    /**
+     * Cancels timeout if it is scheduled
+     *
+     * @param timeout timeout to be cancelled
+     * @return true if the timeout was scheduled
+     */
+    public boolean cancel(Timeout timeout) {
+        if (!timeout.isScheduled()) {
+            return false;
+        }
+        unlink(timeout);
+        size--;
+        return true;
+    }
+
+    /**
+     * Advances the wheel by a single tick and expires all timeouts whose deadline is the new tick.
+     * Timeouts may be rescheduled or cancelled from {@link Timeout#expire(long)}.
+     */
+    public void advance() {
+        tick++;
+        for (int level = 1; level < LEVELS && (tick & ((1L << (SLOT_BITS * level)) - 1)) == 0; level++) {
+            cascade(level);
+        }
+        // Timeouts are taken one by one from the head, so that expire may cancel any other timeout.
+        // Rescheduling never lands in the current slot, as delays shorter than a wheel turn differ in the slot.
+        final Timeout[] lowest = wheels[0];
+        final int slot = (int) (tick & SLOT_MASK);
+        Timeout expired;
+        while ((expired = lowest[slot]) != null) {
+            unlink(expired);
+            size--;
+            expired.expire(tick);
+        }
+    }
+
+    /**
+     * Moves all timeouts of the current slot of given wheel to lower wheels.
+     */
+    private void cascade(int level) {
+        final Timeout[] wheel = wheels[level];
+        final int slot = (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK);
+        Timeout moved;
+        while ((moved = wheel[slot]) != null) {
+            unlink(moved);
+            place(moved);
+        }
+    }
+
+    private void place(Timeout timeout) {
+        final long delay = Math.min(timeout.deadline - tick, MAX_DELAY);
+        int level = 0;
+        while (level < LEVELS - 1 && delay >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        final int slot = (int) (((tick + delay) >>> (SLOT_BITS * level)) & SLOT_MASK);
+        final Timeout head = wheels[level][slot];
+        timeout.level = level;
+        timeout.slot = slot;
+        timeout.prev = null;
+        timeout.next = head;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        wheels[level][slot] = timeout;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.prev == null) {
+            wheels[timeout.level][timeout.slot] = timeout.next;
+        } else {
+            timeout.prev.next = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.level = -1;
+    }
+
+    /**
+     * Node of the timing wheel, subclasses are reused for any number of schedules
+     */
+    public abstract static class Timeout {
+
+        private Timeout prev;
+        private Timeout next;
+        private long deadline;
+        private int level = -1;
+        private int slot;
+
+        /**
+         * Called by the wheel when the deadline of the timeout was reached
+         *
+         * @param tick current tick of the wheel
+         */
+        protected abstract void expire(long tick);
+
+        /**
+         * Returns whether the timeout waits in a wheel
+         *
+         * @return true if the timeout is scheduled
+         */
+        public boolean isScheduled() {
+            return level >= 0;
+        }
+
+        /**
+         * Returns tick at which the timeout expires
+         *
+         * @return deadline of the timeout
+         */
+        public long getDeadline() {
+            return deadline;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.event;
+
+import io.patriot_framework.virtual_smart_home.house.House;
+import io.patriot_framework.virtual_smart_home.house.device.Fireplace;
+import io.restassured.http.ContentType;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.startsWith;
+
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.DEFINED_PORT)
+class DeviceEventServletTest {
+
+    @Autowired House house;
+
+    private final String eventsEndpoint = "http://localhost:8080/house/events";
+
+    private BufferedReader subscribe(String query) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) new URL(eventsEndpoint + query).openConnection();
+        connection.setReadTimeout(5000);
+        assertThat(connection.getContentType(), startsWith(DeviceEventServlet.EVENT_STREAM_VALUE));
+        return new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    private void postFireplace(String label) throws JSONException {
+        given()
+                .contentType(ContentType.JSON)
+                .body(new JSONObject().put("label", label).put("enabled", false).toString())
+                .post("house/device/fireplace");
+    }
+
+    @Test
+    void addedEvent() throws Exception {
+        BufferedReader events = subscribe("?type=actuator");
+        postFireplace("fireplace");
+
+        assertThat(events.readLine(), startsWith("id: "));
+        assertThat(events.readLine(), equalTo("event: added"));
+        JSONObject data = new JSONObject(events.readLine().substring("data: ".length()));
+        assertThat(data.getString("label"), equalTo("fireplace"));
+        assertThat(data.getString("type"), equalTo("Fireplace"));
+    }
+
+    @Test
+    void labelFilter() throws Exception {
+        BufferedReader events = subscribe("?label=second");
+        postFireplace("first");
+        postFireplace("second");
+
+        events.readLine();
+        events.readLine();
+        JSONObject data = new JSONObject(events.readLine().substring("data: ".length()));
+        assertThat(data.getString("label"), equalTo("second"));
+    }
+
+    @Test
+    void subscribeWhileChanging() throws Exception {
+        house.addDevice("fireplace", new Fireplace("fireplace"));
+        final AtomicBoolean changing = new AtomicBoolean(true);
+        final Thread writer = new Thread(() -> {
+            while (changing.get()) {
+                house.modifyDeviceIfPresent("fireplace", Fireplace.class,
+                        fireplace -> fireplace.changeEnabled(!fireplace.isEnabled()));
+            }
+        });
+        writer.start();
+        try {
+            for (int i = 0; i < 20; i++) {
+                BufferedReader events = subscribe("?label=fireplace");
+                String line = events.readLine();
+                while (line != null && !line.startsWith("event: ")) {
+                    line = events.readLine();
+                }
+                assertThat(line, equalTo("event: updated"));
+                events.close();
+            }
+        } finally {
+            changing.set(false);
+            writer.join();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.format;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class MediaFormatTest {
+
+    @Test
+    public void contentType() {
+        assertEquals(MediaFormat.JSON, MediaFormat.ofContentType("application/json; charset=UTF-8"));
+        assertEquals(MediaFormat.CBOR, MediaFormat.ofContentType("Application/CBOR"));
+        assertEquals(MediaFormat.SMILE, MediaFormat.ofContentType("application/x-jackson-smile"));
+        assertNull(MediaFormat.ofContentType("text/plain"));
+        assertNull(MediaFormat.ofContentType(null));
+    }
+
+    @Test
+    public void negotiate() {
+        assertEquals(MediaFormat.JSON, MediaFormat.negotiate(null));
+        assertEquals(MediaFormat.JSON, MediaFormat.negotiate("*/*"));
+        assertEquals(MediaFormat.JSON, MediaFormat.negotiate("text/html, application/json;q=0.9, */*;q=0.8"));
+        assertEquals(MediaFormat.CBOR, MediaFormat.negotiate("text/html, application/cbor, application/json"));
+        assertEquals(MediaFormat.SMILE, MediaFormat.negotiate("application/x-jackson-smile"));
+    }
+}
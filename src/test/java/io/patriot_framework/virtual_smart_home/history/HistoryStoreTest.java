@@ -0,0 +1,112 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.history;
+
+import io.patriot_framework.virtual_smart_home.house.House;
+import io.patriot_framework.virtual_smart_home.house.device.Actuator;
+import io.patriot_framework.virtual_smart_home.house.device.Device;
+import io.patriot_framework.virtual_smart_home.house.device.Fireplace;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class HistoryStoreTest {
+
+    House house = new House("house");
+    long now = 1_000_000;
+    HistoryStore store = new HistoryStore(house, 4, 10_000, () -> now);
+
+    @BeforeEach
+    public void observeHouse() {
+        house.addListener(store);
+    }
+
+    @Test
+    public void recordsTransitions() {
+        house.addDevice("fireplace", new Fireplace("fireplace"));
+        now += 100;
+        setEnabled(true);
+        now += 100;
+        setEnabled(true);
+        now += 250;
+        setEnabled(false);
+
+        assertThat(times(store.getHistory("fireplace", Fireplace.class, 0, Long.MAX_VALUE)),
+                equalTo(List.of(1_000_000L, 1_000_100L, 1_000_450L)));
+        assertThat(times(store.getHistory("fireplace", Actuator.class, 1_000_050, 1_000_450)),
+                equalTo(List.of(1_000_100L, 1_000_450L)));
+        assertNull(store.getHistory("fireplace", UnknownDevice.class, 0, Long.MAX_VALUE));
+        assertNull(store.getHistory("unknown", Fireplace.class, 0, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void retainsMaxSamples() {
+        house.addDevice("fireplace", new Fireplace("fireplace"));
+        for (int i = 1; i <= 6; i++) {
+            now += 10;
+            setEnabled(i % 2 == 1);
+        }
+
+        final List<HistorySample> samples = store.getHistory("fireplace", Fireplace.class, 0, Long.MAX_VALUE);
+        assertThat(times(samples), equalTo(List.of(1_000_030L, 1_000_040L, 1_000_050L, 1_000_060L)));
+        assertThat(samples.get(0).isEnabled(), equalTo(true));
+    }
+
+    @Test
+    public void retainsMaxAge() {
+        house.addDevice("fireplace", new Fireplace("fireplace"));
+        now += 5_000;
+        setEnabled(true);
+        now += 20_000;
+        setEnabled(false);
+
+        // The sample in effect at the start of retention is kept
+        assertThat(times(store.getHistory("fireplace", Fireplace.class, 0, Long.MAX_VALUE)),
+                equalTo(List.of(1_005_000L, 1_025_000L)));
+
+        house.removeDevice("fireplace");
+        store.sweep();
+        assertThat(store.getHistory("fireplace", Fireplace.class, 0, Long.MAX_VALUE).size(), equalTo(3));
+        now += 20_000;
+        store.sweep();
+        assertNull(store.getHistory("fireplace", Fireplace.class, 0, Long.MAX_VALUE));
+    }
+
+    private void setEnabled(boolean enabled) {
+        house.modifyDeviceIfPresent("fireplace", Actuator.class, actuator -> {
+            actuator.setEnabled(enabled);
+            return true;
+        });
+    }
+
+    private static List<Long> times(List<HistorySample> samples) {
+        return samples.stream().map(HistorySample::getTime).collect(Collectors.toList());
+    }
+
+    private static final class UnknownDevice extends Device {
+
+        UnknownDevice(String label) {
+            super(label);
+        }
+    }
+}
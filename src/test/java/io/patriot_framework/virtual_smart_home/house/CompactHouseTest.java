@@ -0,0 +1,181 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.house;
+
+import io.patriot_framework.virtual_smart_home.house.device.Actuator;
+import io.patriot_framework.virtual_smart_home.house.device.Device;
+import io.patriot_framework.virtual_smart_home.house.device.Fireplace;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CompactHouseTest {
+
+    House house = new House("house", HouseStorage.COMPACT);
+
+    @Test
+    public void storesStateOfDevices() {
+        final Fireplace fireplace = new Fireplace("fireplace");
+        fireplace.setEnabled(true);
+        house.addDevice("fireplace", fireplace);
+        house.addDevice("actuator", new Actuator("actuator"));
+
+        final Device stored = house.getDevice("fireplace");
+        assertThat(stored, instanceOf(Fireplace.class));
+        assertThat(stored.getLabel(), equalTo("fireplace"));
+        assertTrue(((Fireplace) stored).isEnabled());
+        assertFalse(house.findDevice("actuator", Actuator.class).isEnabled());
+        assertNull(house.findDevice("actuator", Fireplace.class));
+        assertThat(house.getDevicesOfType(Actuator.class).size(), equalTo(2));
+        assertThat(house.getDevicesOfType(Fireplace.class).keySet(), equalTo(Set.of("fireplace")));
+        assertTrue(house.getDeviceTypes().contains(Actuator.class));
+    }
+
+    @Test
+    public void changesAreVersioned() {
+        house.addDevice("fireplace", new Fireplace("fireplace"));
+        final long version = house.getDeviceVersion("fireplace");
+        assertTrue(version > 0);
+
+        house.modifyDeviceIfPresent("fireplace", Fireplace.class, fireplace -> fireplace.changeEnabled(true));
+        assertTrue(house.findDevice("fireplace", Fireplace.class).isEnabled());
+        assertTrue(house.getDeviceVersion("fireplace") > version);
+
+        assertNull(house.removeDeviceIfVersion("fireplace", Fireplace.class, version));
+        house.removeDevice("fireplace");
+        assertNull(house.findDevice("fireplace"));
+        assertThat(house.getDeviceVersion("fireplace"), equalTo(0L));
+    }
+
+    @Test
+    public void reusesSlotsOfRemovedDevices() {
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 5000; i++) {
+                final Fireplace fireplace = new Fireplace("fireplace" + round + "-" + i);
+                fireplace.setEnabled(i % 2 == 0);
+                house.addDevice(fireplace.getLabel(), fireplace);
+            }
+            for (int i = 0; i < 5000; i++) {
+                assertThat(house.findDevice("fireplace" + round + "-" + i, Fireplace.class).isEnabled(),
+                        equalTo(i % 2 == 0));
+                house.removeDevice("fireplace" + round + "-" + i);
+            }
+        }
+        house.addDevice("škrticí", new Fireplace("škrticí"));
+        assertThat(house.getDevices().keySet(), equalTo(Set.of("škrticí")));
+    }
+
+    @Test
+    public void pagesDevicesByLabel() {
+        final List<String> labels = new ArrayList<>();
+        for (int i = 999; i >= 0; i--) {
+            final String label = String.format("fireplace%03d", i);
+            house.addDevice(label, new Fireplace(label));
+            labels.add(0, label);
+        }
+        house.addDevice("actuator", new Actuator("actuator"));
+        house.removeDevice("fireplace500");
+        labels.remove("fireplace500");
+
+        final NavigableMap<String, Device> sorted = house.getSortedDevicesOfType(Fireplace.class);
+        assertThat(new ArrayList<>(sorted.keySet()), equalTo(labels));
+        assertThat(new ArrayList<>(sorted.tailMap("fireplace498", false).headMap("fireplace502").keySet()),
+                equalTo(List.of("fireplace499", "fireplace501")));
+        assertThat(sorted.ceilingKey("fireplace500"), equalTo("fireplace501"));
+        assertThat(sorted.floorKey("fireplace500"), equalTo("fireplace499"));
+        assertThat(sorted.lastKey(), equalTo("fireplace999"));
+        assertNull(sorted.get("actuator"));
+        assertThat(house.getSortedDevicesOfType(Device.class).firstKey(), equalTo("actuator"));
+    }
+
+    @Test
+    public void navigatesLikeIndexedHouse() {
+        final House indexed = new House("indexed");
+        for (int i = 0; i < 50; i++) {
+            final String label = String.format("fireplace%02d", i);
+            house.addDevice(label, new Fireplace(label));
+            indexed.addDevice(label, new Fireplace(label));
+        }
+        for (int i = 0; i < 50; i += 7) {
+            final String label = String.format("fireplace%02d", i);
+            house.removeDevice(label);
+            indexed.removeDevice(label);
+        }
+        final NavigableMap<String, Device> compact = house.getSortedDevicesOfType(Fireplace.class);
+        final NavigableMap<String, Device> expected = indexed.getSortedDevicesOfType(Fireplace.class);
+
+        assertThat(new ArrayList<>(compact.descendingMap().keySet()),
+                equalTo(new ArrayList<>(expected.descendingMap().keySet())));
+        assertThat(new ArrayList<>(compact.descendingKeySet()), equalTo(new ArrayList<>(expected.descendingKeySet())));
+        assertThat(new ArrayList<>(compact.descendingMap().headMap("fireplace20", true).keySet()),
+                equalTo(new ArrayList<>(expected.descendingMap().headMap("fireplace20", true).keySet())));
+        assertThat(compact.descendingMap().higherKey("fireplace21"), equalTo("fireplace20"));
+        assertThat(compact.descendingMap().firstKey(), equalTo(expected.lastKey()));
+
+        final NavigableSet<String> keys = compact.navigableKeySet();
+        assertThat(keys.size(), equalTo(expected.size()));
+        assertThat(new ArrayList<>(keys.subSet("fireplace10", true, "fireplace20", false)),
+                equalTo(new ArrayList<>(expected.navigableKeySet().subSet("fireplace10", true, "fireplace20", false))));
+        assertThat(keys.ceiling("fireplace14"), equalTo("fireplace15"));
+        assertThat(new ArrayList<>(keys.tailSet("fireplace40", false).descendingSet()),
+                equalTo(new ArrayList<>(expected.navigableKeySet().tailSet("fireplace40", false).descendingSet())));
+        assertThrows(UnsupportedOperationException.class, keys::pollFirst);
+        assertThrows(UnsupportedOperationException.class, compact::pollLastEntry);
+    }
+
+    @Test
+    public void indexesEnabledDevices() {
+        for (int i = 0; i < 200; i++) {
+            final Fireplace fireplace = new Fireplace("fireplace" + i);
+            fireplace.setEnabled(i % 3 == 0);
+            house.addDevice(fireplace.getLabel(), fireplace);
+        }
+        house.addDevice("actuator", new Actuator("actuator"));
+        assertThat(house.countDevicesOfType(Fireplace.class, true), equalTo(67));
+        assertThat(house.countDevicesOfType(Device.class, false), equalTo(134));
+
+        house.modifyDeviceIfPresent("fireplace1", Fireplace.class, fireplace -> fireplace.changeEnabled(true));
+        house.removeDevice("fireplace0");
+        final NavigableMap<String, Device> enabled = house.getEnabledDevicesOfType(Actuator.class);
+        assertThat(enabled.size(), equalTo(67));
+        assertThat(enabled.firstKey(), equalTo("fireplace1"));
+        assertNull(enabled.get("fireplace2"));
+        house.modifyDeviceIfPresent("fireplace1", Fireplace.class, fireplace -> fireplace.changeEnabled(false));
+        assertThat(house.getEnabledDevicesOfType(Actuator.class).firstKey(), equalTo("fireplace102"));
+    }
+
+    @Test
+    public void rejectsDevicesWithMoreState() {
+        final Actuator custom = new Actuator("custom") {
+        };
+        assertThrows(IllegalArgumentException.class, () -> house.addDevice("custom", custom));
+        assertNull(house.findDevice("custom"));
+        assertTrue(house.getDevices().isEmpty());
+    }
+}
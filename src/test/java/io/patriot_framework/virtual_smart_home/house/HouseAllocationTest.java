@@ -0,0 +1,82 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.house;
+
+import io.patriot_framework.virtual_smart_home.house.device.Fireplace;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.Predicate;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+
+/**
+ * Checks that the exception-free House API doesn't allocate anything on its hot paths.
+ */
+public class HouseAllocationTest {
+
+    private static final int DEVICES = 1_000;
+    private static final int OPERATIONS = 200_000;
+
+    private static final Predicate<Fireplace> TOGGLE = fireplace -> fireplace.changeEnabled(!fireplace.isEnabled());
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final House house = new House("house");
+    private final String[] labels = new String[DEVICES];
+    private final Fireplace[] fireplaces = new Fireplace[DEVICES];
+    private final Fireplace[] replacements = new Fireplace[DEVICES];
+
+    {
+        for (int i = 0; i < DEVICES; i++) {
+            labels[i] = "fireplace" + i;
+            fireplaces[i] = new Fireplace(labels[i]);
+            replacements[i] = new Fireplace(labels[i]);
+        }
+    }
+
+    private long mutate() {
+        final long threadId = Thread.currentThread().getId();
+        final long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < OPERATIONS; i++) {
+            final int device = i % DEVICES;
+            house.replaceDeviceIfPresent(labels[device], Fireplace.class,
+                    (i / DEVICES) % 2 == 0 ? replacements[device] : fireplaces[device]);
+            house.replaceDeviceVersioned(labels[device], Fireplace.class, -1,
+                    (i / DEVICES) % 2 == 0 ? replacements[device] : fireplaces[device]);
+            house.modifyDeviceIfPresent(labels[device], Fireplace.class, TOGGLE);
+            house.findDevice(labels[device], Fireplace.class);
+            house.findDevice("missing", Fireplace.class);
+            house.putDeviceIfAbsent(labels[device], fireplaces[device]);
+            house.removeDeviceIfPresent("missing");
+            replacements[device].setEnabled(i % 2 == 0);
+        }
+        return threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+    }
+
+    @Test
+    public void mutationsDoNotAllocate() {
+        for (int i = 0; i < DEVICES; i++) {
+            house.addDevice(labels[i], fireplaces[i]);
+        }
+        house.addListener((label, origDevice, device, version) -> { });
+        mutate(); // warm up
+
+        assertThat(mutate(), lessThan((long) OPERATIONS));
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.house;
+
+import io.patriot_framework.virtual_smart_home.house.device.Actuator;
+import io.patriot_framework.virtual_smart_home.house.device.Fireplace;
+import org.junit.jupiter.api.Test;
+
+import javax.management.openmbean.KeyAlreadyExistsException;
+import java.util.NoSuchElementException;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class HouseRegistryTest {
+
+    HouseRegistry registry = new HouseRegistry();
+
+    @Test
+    public void createHouse() {
+        House house = registry.createHouse("house");
+        assertThat(registry.getHouse("house"), equalTo(house));
+        assertThrows(KeyAlreadyExistsException.class, () -> registry.createHouse("house"));
+    }
+
+    @Test
+    public void housesAreIsolated() {
+        House house = registry.createHouse("house");
+        House house2 = registry.createHouse("house2");
+        house.addDevice("fireplace", new Fireplace("fireplace"));
+
+        assertNull(house2.findDevice("fireplace"));
+        assertThat(house2.getVersion(), equalTo(0L));
+    }
+
+    @Test
+    public void createHouseWithStorage() {
+        final HouseRegistry compact = new HouseRegistry(HouseStorage.COMPACT);
+        final Actuator custom = new Actuator("custom") {
+        };
+        assertThat(compact.getStorage(), equalTo(HouseStorage.COMPACT));
+        assertThrows(IllegalArgumentException.class, () -> compact.createHouse("house").addDevice("custom", custom));
+        registry.createHouse("house").addDevice("custom", custom);
+        assertThrows(IllegalArgumentException.class, () -> new HouseRegistry(null));
+    }
+
+    @Test
+    public void removeHouse() {
+        House house = registry.createHouse("house");
+        assertThat(registry.removeHouse("house"), equalTo(house));
+        assertNull(registry.findHouse("house"));
+        assertThrows(NoSuchElementException.class, () -> registry.getHouse("house"));
+        assertThrows(NoSuchElementException.class, () -> registry.removeHouse("house"));
+    }
+}
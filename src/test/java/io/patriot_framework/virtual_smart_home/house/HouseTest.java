@@ -16,17 +16,28 @@
 
 package io.patriot_framework.virtual_smart_home.house;
 
+import io.patriot_framework.virtual_smart_home.house.device.Actuator;
 import io.patriot_framework.virtual_smart_home.house.device.Device;
 import io.patriot_framework.virtual_smart_home.house.device.Fireplace;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Function;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -74,4 +85,199 @@ public class HouseTest {
         Map<String, Device> expected = new HashMap<>(devices);
         assertThat(house.getDevicesOfType(Fireplace.class), equalTo(expected));
     }
+
+    @Test
+    public void getDevicesOfSuperType() {
+        house.addDevice("fireplace", fireplace);
+        assertThat(house.getDevicesOfType(Actuator.class).get("fireplace"), equalTo(fireplace));
+        assertThat(house.getDevicesOfType(Device.class).get("fireplace"), equalTo(fireplace));
+    }
+
+    @Test
+    public void getDevicesOfTypeIsLiveView() {
+        Map<String, Device> fireplaces = house.getDevicesOfType(Fireplace.class);
+        house.addDevice("fireplace", fireplace);
+        assertThat(fireplaces.get("fireplace"), equalTo(fireplace));
+        house.removeDevice("fireplace");
+        assertFalse(fireplaces.containsKey("fireplace"));
+    }
+
+    @Test
+    public void getDeviceOfType() {
+        house.addDevice("fireplace", fireplace);
+        assertThat(house.getDevice("fireplace", Fireplace.class), equalTo(fireplace));
+        assertThat(house.getDevice("fireplace", Actuator.class), equalTo(fireplace));
+    }
+
+    @Test
+    public void setDevicesReplacesTypeIndex() {
+        house.addDevice("fireplace", fireplace);
+        devices.put("fireplace2", fireplace2);
+        house.setDevices(devices);
+        assertThrows(NoSuchElementException.class, () -> house.getDevice("fireplace", Fireplace.class));
+        assertThat(house.getDevicesOfType(Fireplace.class), equalTo(new HashMap<>(devices)));
+    }
+
+    @Test
+    public void getSortedDevicesOfType() {
+        house.addDevice("fireplace2", fireplace2);
+        house.addDevice("fireplace", fireplace);
+        assertThat(house.getSortedDevicesOfType(Actuator.class).firstKey(), equalTo("fireplace"));
+        assertThat(house.getSortedDevicesOfType(Fireplace.class).tailMap("fireplace", false).firstKey(),
+                equalTo("fireplace2"));
+        house.removeDevice("fireplace");
+        assertThat(house.getSortedDevicesOfType(Fireplace.class).firstKey(), equalTo("fireplace2"));
+    }
+
+    @Test
+    public void versions() {
+        house.addDevice("fireplace", fireplace);
+        long added = house.getVersion();
+        assertThat(house.getDeviceVersion("fireplace"), equalTo(added));
+        assertThat(house.getVersionOfType(Actuator.class), equalTo(added));
+
+        house.updateDevice("fireplace", fireplace2);
+        assertTrue(house.getVersion() > added);
+        assertThat(house.getVersionOfType(Fireplace.class), equalTo(house.getVersion()));
+
+        house.removeDevice("fireplace");
+        assertThat(house.getDeviceVersion("fireplace"), equalTo(0L));
+    }
+
+    @Test
+    public void versionsOfWritersFinishingOutOfOrder() throws Exception {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final DeviceStore indexed = new IndexedDeviceStore();
+        final DeviceStore stalling = (DeviceStore) Proxy.newProxyInstance(DeviceStore.class.getClassLoader(),
+                new Class<?>[]{DeviceStore.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("update") && "slow".equals(args[0])) {
+                        entered.countDown();
+                        release.await();
+                    }
+                    try {
+                        return method.invoke(indexed, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+        final House stallingHouse = new House("house", stalling);
+        final Thread slowWriter = new Thread(() -> stallingHouse.addDevice("slow", new Fireplace("slow")));
+        slowWriter.start();
+        entered.await();
+
+        // The slow writer took its version first, but the fast one finishes first
+        stallingHouse.addDevice("fast", new Fireplace("fast"));
+        final long typeVersion = stallingHouse.getVersionOfType(Fireplace.class);
+        final long houseVersion = stallingHouse.getVersion();
+        assertThat(stallingHouse.getDevicesOfType(Fireplace.class).keySet(), equalTo(Set.of("fast")));
+
+        release.countDown();
+        slowWriter.join();
+        assertThat(stallingHouse.getDevicesOfType(Fireplace.class).keySet(), equalTo(Set.of("fast", "slow")));
+        assertTrue(stallingHouse.getVersionOfType(Fireplace.class) > typeVersion);
+        assertTrue(stallingHouse.getVersion() > houseVersion);
+    }
+
+    @Test
+    public void conditionalMutations() {
+        house.addDevice("fireplace", fireplace);
+        long added = house.getDeviceVersion("fireplace");
+
+        assertThat(house.replaceDeviceIfVersion("fireplace", Fireplace.class, added, fireplace2), equalTo(fireplace));
+        assertNull(house.replaceDeviceIfVersion("fireplace", Fireplace.class, added, fireplace));
+        assertNull(house.removeDeviceIfVersion("fireplace", Fireplace.class, added));
+        assertThat(house.getDevice("fireplace"), equalTo(fireplace2));
+
+        long updated = house.getDeviceVersion("fireplace");
+        assertNull(house.removeDeviceIfVersion("fireplace", Device.class, 0));
+        assertThat(house.removeDeviceIfVersion("fireplace", Actuator.class, updated), equalTo(fireplace2));
+        assertNull(house.replaceDeviceIfVersion("fireplace", Fireplace.class, updated, fireplace));
+
+        house.addDevice("fireplace", fireplace);
+        final long replaced = house.replaceDeviceVersioned("fireplace", Actuator.class, -1, fireplace2);
+        assertThat(house.getDeviceVersion("fireplace"), equalTo(replaced));
+        assertThat(house.replaceDeviceVersioned("fireplace", Fireplace.class, replaced - 1, fireplace), equalTo(0L));
+        assertThat(house.replaceDeviceVersioned("missing", Fireplace.class, -1, fireplace), equalTo(0L));
+    }
+
+    @Test
+    public void readDeviceExcludesChanges() throws InterruptedException {
+        house.addDevice("fireplace", fireplace);
+        final Thread remover = new Thread(() -> house.removeDevice("fireplace"));
+        house.readDevice("fireplace", device -> {
+            assertThat(device, equalTo(fireplace));
+            remover.start();
+            try {
+                remover.join(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            assertTrue(remover.isAlive());
+        });
+        remover.join();
+        house.readDevice("fireplace", Assertions::assertNull);
+        assertThrows(IllegalArgumentException.class, () -> house.readDevice("fireplace", null));
+    }
+
+    @Test
+    public void listeners() {
+        List<String> changes = new ArrayList<>();
+        HouseListener listener = (label, origDevice, device, version) ->
+                changes.add(label + ":" + (origDevice != null) + ":" + (device != null));
+        house.addListener(listener);
+
+        house.addDevice("fireplace", fireplace);
+        house.updateDevice("fireplace", fireplace2);
+        house.removeDevice("fireplace");
+        house.removeListener(listener);
+        house.addDevice("fireplace", fireplace);
+
+        assertThat(changes, equalTo(List.of("fireplace:false:true", "fireplace:true:true", "fireplace:true:false")));
+    }
+
+    @Test
+    public void serializeDevice() {
+        final List<Device> serialized = new ArrayList<>();
+        final Function<Device, byte[]> serializer = device -> {
+            serialized.add(device);
+            return new byte[]{(byte) serialized.size()};
+        };
+        house.addDevice("fireplace", fireplace);
+
+        assertThat(house.serializeDevice("fireplace", Fireplace.class, serializer)[0], equalTo((byte) 1));
+        assertThat(house.serializeDevice("fireplace", Device.class, serializer)[0], equalTo((byte) 1));
+        house.updateDevice("fireplace", fireplace2);
+        assertThat(house.serializeDevice("fireplace", Actuator.class, serializer)[0], equalTo((byte) 2));
+        assertThat(serialized, equalTo(List.of(fireplace, fireplace2)));
+
+        final Actuator actuator = new Actuator("fireplace");
+        house.updateDevice("fireplace", actuator);
+        assertThat(house.serializeDevice("fireplace", Actuator.class, serializer)[0], equalTo((byte) 3));
+        assertNull(house.serializeDevice("fireplace", Fireplace.class, serializer));
+
+        house.removeDevice("fireplace");
+        assertNull(house.serializeDevice("fireplace", Fireplace.class, serializer));
+    }
+
+    @Test
+    public void enabledDevicesOfType() {
+        fireplace.setEnabled(true);
+        house.addDevice("fireplace", fireplace);
+        house.addDevice("fireplace2", fireplace2);
+        house.addDevice("actuator", new Actuator("actuator"));
+        assertThat(house.getEnabledDevicesOfType(Actuator.class).keySet(), equalTo(Set.of("fireplace")));
+        assertThat(house.countDevicesOfType(Device.class), equalTo(3));
+        assertThat(house.countDevicesOfType(Device.class, true), equalTo(1));
+        assertThat(house.countDevicesOfType(Fireplace.class, false), equalTo(1));
+
+        house.modifyDeviceIfPresent("fireplace2", Fireplace.class, device -> device.changeEnabled(true));
+        house.modifyDeviceIfPresent("fireplace", Fireplace.class, device -> device.changeEnabled(false));
+        assertThat(house.getEnabledDevicesOfType(Device.class).keySet(), equalTo(Set.of("fireplace2")));
+        house.replaceDeviceIfPresent("fireplace2", new Fireplace("fireplace2"));
+        house.removeDevice("actuator");
+        assertTrue(house.getEnabledDevicesOfType(Fireplace.class).isEmpty());
+        assertThat(house.countDevicesOfType(Actuator.class, true), equalTo(0));
+        assertThat(house.countDevicesOfType(Actuator.class, false), equalTo(2));
+    }
 }
@@ -36,4 +36,13 @@ public class FireplaceTest {
         fireplace.setEnabled(false);
         assertThat(fireplace.isEnabled(), equalTo(false));
     }
+
+    @Test
+    public void changeAndToggle() {
+        assertThat(fireplace.changeEnabled(true), equalTo(true));
+        assertThat(fireplace.changeEnabled(true), equalTo(false));
+        assertThat(fireplace.toggle(), equalTo(false));
+        assertThat(fireplace.isEnabled(), equalTo(false));
+        assertThat(fireplace.toggle(), equalTo(true));
+    }
 }
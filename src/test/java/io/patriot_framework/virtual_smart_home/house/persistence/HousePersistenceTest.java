@@ -0,0 +1,200 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.house.persistence;
+
+import io.patriot_framework.virtual_smart_home.house.House;
+import io.patriot_framework.virtual_smart_home.house.device.Fireplace;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HousePersistenceTest {
+
+    @TempDir
+    Path directory;
+
+    private void populate(House house) {
+        final Fireplace enabled = new Fireplace("fireplace");
+        enabled.setEnabled(true);
+        house.addDevice("fireplace", new Fireplace("fireplace"));
+        house.updateDevice("fireplace", enabled);
+        house.addDevice("fireplace2", new Fireplace("fireplace2"));
+        house.addDevice("removed", new Fireplace("removed"));
+        house.removeDevice("removed");
+    }
+
+    private void assertRestored(House house, long version) {
+        assertThat(house.getDevices().size(), equalTo(2));
+        assertTrue(house.getDevice("fireplace", Fireplace.class).isEnabled());
+        assertFalse(house.getDevice("fireplace2", Fireplace.class).isEnabled());
+        assertNull(house.findDevice("removed"));
+        assertThat(house.getVersion(), equalTo(version));
+    }
+
+    /**
+     * Restores house from a journal of two fireplaces, which a crash left with a tail or a broken last record
+     */
+    private House restoreCrashed(String name, byte[] tail, boolean breakLastRecord) throws IOException {
+        final Path crashed = Files.createDirectory(directory.resolve(name));
+        final Path journal = crashed.resolve("journal-00000000000000000000.log");
+        try (OutputStream output = Files.newOutputStream(journal)) {
+            final RecordWriter writer = new RecordWriter(output);
+            writer.writeHeader(RecordFormat.JOURNAL_MAGIC, 0);
+            writer.put(1, "fireplace", Fireplace.class, RecordFormat.stateOf(new Fireplace("fireplace")));
+            writer.put(2, "fireplace2", Fireplace.class, RecordFormat.stateOf(new Fireplace("fireplace2")));
+            writer.flush();
+        }
+        if (breakLastRecord) {
+            final byte[] bytes = Files.readAllBytes(journal);
+            bytes[bytes.length - 1]++;
+            Files.write(journal, bytes);
+        }
+        Files.write(journal, tail, StandardOpenOption.APPEND);
+
+        final House restored = new House("house");
+        final HousePersistence persistence = new HousePersistence(restored, crashed, 0, 0);
+        persistence.start();
+        persistence.close();
+        return restored;
+    }
+
+    @Test
+    public void restoreFromSnapshot() throws IOException {
+        final House house = new House("house");
+        final HousePersistence persistence = new HousePersistence(house, directory, 0, 0);
+        persistence.start();
+        populate(house);
+        persistence.close();
+
+        final House restored = new House("house");
+        final HousePersistence restoredPersistence = new HousePersistence(restored, directory, 0, 0);
+        restoredPersistence.start();
+        assertRestored(restored, house.getVersion());
+        restoredPersistence.close();
+    }
+
+    @Test
+    public void restoreFromJournal() throws Exception {
+        final House house = new House("house");
+        final HousePersistence persistence = new HousePersistence(house, directory, 5, 0);
+        persistence.start();
+        populate(house);
+        persistence.sync();
+
+        // Simulates a crash, the journal was synced but no snapshot was taken since the start.
+        final Path copy = Files.createDirectory(directory.resolve("copy"));
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(Files::isRegularFile).collect(Collectors.toList())) {
+                Files.copy(file, copy.resolve(file.getFileName()));
+            }
+        }
+        persistence.close();
+
+        final House restored = new House("house");
+        final HousePersistence restoredPersistence = new HousePersistence(restored, copy, 5, 0);
+        restoredPersistence.start();
+        assertRestored(restored, house.getVersion());
+
+        restored.removeDevice("fireplace2");
+        assertThat(restored.getVersion(), equalTo(house.getVersion() + 1));
+        restoredPersistence.close();
+    }
+
+    @Test
+    public void replayRecordsOlderThanSnapshot() throws IOException {
+        final Fireplace enabled = new Fireplace("fireplace");
+        enabled.setEnabled(true);
+        // A crash left behind the journal preceding the snapshot
+        try (OutputStream output = Files.newOutputStream(directory.resolve("journal-00000000000000000000.log"))) {
+            final RecordWriter journal = new RecordWriter(output);
+            journal.writeHeader(RecordFormat.JOURNAL_MAGIC, 0);
+            journal.put(1, "fireplace", Fireplace.class, RecordFormat.stateOf(new Fireplace("fireplace")));
+            journal.flush();
+        }
+        try (OutputStream output = Files.newOutputStream(directory.resolve("snapshot-00000000000000000005.bin"))) {
+            final RecordWriter snapshot = new RecordWriter(output);
+            snapshot.writeHeader(RecordFormat.SNAPSHOT_MAGIC, 5);
+            snapshot.put(5, "fireplace", Fireplace.class, RecordFormat.stateOf(enabled));
+            snapshot.flush();
+        }
+        // Took version 4 before the snapshot was taken, but was written after it
+        try (OutputStream output = Files.newOutputStream(directory.resolve("journal-00000000000000000005.log"))) {
+            final RecordWriter journal = new RecordWriter(output);
+            journal.writeHeader(RecordFormat.JOURNAL_MAGIC, 5);
+            journal.put(4, "late", Fireplace.class, RecordFormat.stateOf(new Fireplace("late")));
+            journal.flush();
+        }
+
+        final House restored = new House("house");
+        final HousePersistence persistence = new HousePersistence(restored, directory, 0, 0);
+        persistence.start();
+        assertTrue(restored.getDevice("fireplace", Fireplace.class).isEnabled());
+        assertFalse(restored.getDevice("late", Fireplace.class).isEnabled());
+        persistence.close();
+    }
+
+    @Test
+    public void invalidJournalTail() throws IOException {
+        final House zeroFilled = restoreCrashed("zero-filled", new byte[64], false);
+        assertThat(zeroFilled.getDevices().keySet(), equalTo(Set.of("fireplace", "fireplace2")));
+        final House garbage = restoreCrashed("garbage", new byte[]{0x7f, -1, -1, -1, 1, 2, 3, 4, 5}, false);
+        assertThat(garbage.getDevices().keySet(), equalTo(Set.of("fireplace", "fireplace2")));
+        final House torn = restoreCrashed("torn", new byte[0], true);
+        assertThat(torn.getDevices().keySet(), equalTo(Set.of("fireplace")));
+    }
+
+    @Test
+    public void corruptedSnapshot() throws IOException {
+        final Path snapshot = directory.resolve("snapshot-00000000000000000001.bin");
+        try (OutputStream output = Files.newOutputStream(snapshot)) {
+            final RecordWriter writer = new RecordWriter(output);
+            writer.writeHeader(RecordFormat.SNAPSHOT_MAGIC, 1);
+            writer.put(1, "fireplace", Fireplace.class, RecordFormat.stateOf(new Fireplace("fireplace")));
+            writer.flush();
+        }
+        final byte[] bytes = Files.readAllBytes(snapshot);
+        bytes[bytes.length - 1]++;
+        Files.write(snapshot, bytes);
+
+        final HousePersistence persistence = new HousePersistence(new House("house"), directory, 0, 0);
+        assertThrows(IOException.class, persistence::start);
+    }
+
+    @Test
+    public void directoryIsLocked() throws IOException {
+        final HousePersistence persistence = new HousePersistence(new House("house"), directory, 0, 0);
+        persistence.start();
+        final HousePersistence second = new HousePersistence(new House("house"), directory, 0, 0);
+        assertThrows(IOException.class, second::start);
+        persistence.close();
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.layout;
+
+import io.patriot_framework.virtual_smart_home.house.House;
+import io.patriot_framework.virtual_smart_home.house.HouseStorage;
+import io.patriot_framework.virtual_smart_home.house.device.Actuator;
+import io.patriot_framework.virtual_smart_home.house.device.Fireplace;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HouseLayoutTest {
+
+    House house = new House("house");
+    HouseLayout layout = new HouseLayout(house);
+
+    @BeforeEach
+    public void observeHouse() {
+        layout.start();
+        house.addDevice("fireplace", new Fireplace("fireplace"));
+        house.addDevice("actuator", new Actuator("actuator"));
+    }
+
+    @Test
+    public void roomOfExistingDevices() {
+        assertTrue(layout.addRoom(new Room("kitchen", "ground", List.of("fireplace", "actuator", "heater"))));
+        assertFalse(layout.addRoom(new Room("kitchen", "first", null)));
+
+        final Room kitchen = layout.findRoom("kitchen");
+        assertThat(kitchen.getDevices(), equalTo(List.of("actuator", "fireplace", "heater")));
+        assertSame(kitchen, layout.findRoomOfDevice("heater"));
+        assertSummary(kitchen, 2, 0, Map.of("actuator", 1, "fireplace", 1));
+    }
+
+    @Test
+    public void aggregatesFollowChanges() {
+        layout.addRoom(new Room("kitchen", "ground", List.of("fireplace", "heater")));
+        final Room kitchen = layout.findRoom("kitchen");
+
+        house.modifyDeviceIfPresent("fireplace", Fireplace.class, fireplace -> fireplace.changeEnabled(true));
+        house.addDevice("heater", new Fireplace("heater"));
+        house.addDevice("other", new Fireplace("other"));
+        assertSummary(kitchen, 2, 1, Map.of("fireplace", 2));
+
+        house.replaceDeviceIfPresent("heater", new Actuator("heater"));
+        house.removeDevice("fireplace");
+        assertSummary(kitchen, 1, 0, Map.of("actuator", 1));
+    }
+
+    @Test
+    public void membership() {
+        layout.addRoom(new Room("kitchen", "ground", List.of("fireplace")));
+        layout.addRoom(new Room("bedroom", "first", null));
+        final Room kitchen = layout.findRoom("kitchen");
+        final Room bedroom = layout.findRoom("bedroom");
+
+        assertSame(bedroom, layout.assignDevice("bedroom", "fireplace"));
+        assertSummary(kitchen, 0, 0, Map.of());
+        assertSummary(bedroom, 1, 0, Map.of("fireplace", 1));
+        assertNull(layout.assignDevice("garage", "actuator"));
+        assertThat(layout.getRoomsOfFloor("first"), equalTo(List.of(bedroom)));
+
+        assertNull(layout.unassignDevice("kitchen", "fireplace"));
+        assertSame(bedroom, layout.unassignDevice("bedroom", "fireplace"));
+        assertNull(layout.findRoomOfDevice("fireplace"));
+        house.modifyDeviceIfPresent("fireplace", Fireplace.class, fireplace -> fireplace.changeEnabled(true));
+        assertSummary(bedroom, 0, 0, Map.of());
+
+        layout.assignDevice("bedroom", "actuator");
+        assertSame(bedroom, layout.removeRoom("bedroom"));
+        assertNull(layout.findRoomOfDevice("actuator"));
+        assertNull(layout.removeRoom("bedroom"));
+    }
+
+    @Test
+    public void assignDuringChanges() throws Exception {
+        final House compact = new House("compact", HouseStorage.COMPACT);
+        final HouseLayout compactLayout = new HouseLayout(compact);
+        compactLayout.start();
+        compact.addDevice("fireplace", new Fireplace("fireplace"));
+        compactLayout.addRoom(new Room("kitchen", "ground", null));
+        compactLayout.addRoom(new Room("bedroom", "first", null));
+
+        final CyclicBarrier barrier = new CyclicBarrier(2);
+        final Thread toggler = new Thread(() -> {
+            try {
+                for (int i = 0; i < 5_000; i++) {
+                    barrier.await();
+                    compact.modifyDeviceIfPresent("fireplace", Fireplace.class,
+                            fireplace -> fireplace.changeEnabled(!fireplace.isEnabled()));
+                    barrier.await();
+                }
+            } catch (InterruptedException | BrokenBarrierException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        toggler.start();
+        for (int i = 0; i < 5_000; i++) {
+            barrier.await();
+            final Room room = compactLayout.assignDevice(i % 2 == 0 ? "kitchen" : "bedroom", "fireplace");
+            barrier.await();
+            final boolean enabled = ((Fireplace) compact.findDevice("fireplace")).isEnabled();
+            assertSummary(room, 1, enabled ? 1 : 0, Map.of("fireplace", 1));
+        }
+        toggler.join();
+    }
+
+    @Test
+    public void invalidRoom() {
+        assertThrows(IllegalArgumentException.class, () -> new Room("kitchen", null, null));
+        assertThrows(IllegalArgumentException.class, () -> layout.addRoom(null));
+    }
+
+    private static void assertSummary(Room room, int devices, int enabledActuators, Map<String, Integer> types) {
+        final RoomSummary summary = room.getSummary();
+        assertThat(summary.getDevices(), equalTo(devices));
+        assertThat(summary.getEnabledActuators(), equalTo(enabledActuators));
+        assertThat(summary.getTypes(), equalTo(types));
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.metrics;
+
+import io.restassured.http.ContentType;
+import org.apache.catalina.connector.Response;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static io.restassured.RestAssured.given;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.DEFINED_PORT)
+class MetricsTest {
+
+    private static final int MANAGEMENT_PORT = 8090;
+
+    @Test
+    void routeAndHouseMetrics() {
+        given()
+                .contentType(ContentType.JSON).body("{\"label\":\"metered\"}")
+                .when().post("house/device/fireplace")
+                .then().assertThat().statusCode(Response.SC_CREATED);
+        given()
+                .when().get("house/device/fireplace/unknown")
+                .then().assertThat().statusCode(Response.SC_NOT_FOUND); // 404
+
+        given()
+                .port(MANAGEMENT_PORT)
+                .when().get("actuator/prometheus")
+                .then().assertThat().statusCode(Response.SC_OK)
+                .body(Matchers.containsString("camel_route_seconds_bucket{routeId=\"create-fireplace-route\""))
+                .body(Matchers.containsString(
+                        "camel_route_responses_total{routeId=\"read-fireplace-route\",status=\"404\",}"))
+                .body(Matchers.containsString(
+                        "house_operations_seconds_bucket{house=\"house\",operation=\"putDeviceIfAbsent\""))
+                .body(Matchers.containsString("house_devices{house=\"house\",type=\"fireplace\",}"));
+
+        given()
+                .queryParam("label", "metered")
+                .when().delete("house/device/fireplace")
+                .then().assertThat().statusCode(Response.SC_OK);
+    }
+}
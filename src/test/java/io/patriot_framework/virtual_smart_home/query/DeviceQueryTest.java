@@ -0,0 +1,96 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.query;
+
+import io.patriot_framework.virtual_smart_home.house.House;
+import io.patriot_framework.virtual_smart_home.house.device.Device;
+import io.patriot_framework.virtual_smart_home.house.device.Fireplace;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class DeviceQueryTest {
+
+    House house = new House("house");
+
+    @BeforeEach
+    public void addDevices() {
+        for (String label : new String[]{"kitchen", "kitchen-left", "kitchen-right", "living-room", "bedroom"}) {
+            final Fireplace fireplace = new Fireplace(label);
+            fireplace.setEnabled(label.endsWith("room"));
+            house.addDevice(label, fireplace);
+        }
+    }
+
+    @Test
+    public void labelPatterns() {
+        assertThat(query(null, null, "kitchen"), equalTo(List.of("kitchen")));
+        assertThat(query(null, null, "kitchen*"), equalTo(List.of("kitchen", "kitchen-left", "kitchen-right")));
+        assertThat(query(null, null, "*room"), equalTo(List.of("bedroom", "living-room")));
+        assertThat(query(null, null, "kitchen*gh*"), equalTo(List.of("kitchen-right")));
+        assertThat(query(null, null, "*t*n"), equalTo(List.of("kitchen")));
+        assertThat(query(null, null, "*"), equalTo(List.of("bedroom", "kitchen", "kitchen-left", "kitchen-right",
+                "living-room")));
+    }
+
+    @Test
+    public void typeAndState() {
+        assertThat(query("Actuator", "true", null), equalTo(List.of("bedroom", "living-room")));
+        assertThat(query("fireplace", "false", "kitchen-*"), equalTo(List.of("kitchen-left", "kitchen-right")));
+        assertThat(query("device", "false", "*room"), equalTo(List.of()));
+        assertThat(query("thermometer", null, null), equalTo(List.of()));
+        assertThrows(IllegalArgumentException.class, () -> DeviceQuery.compile(null, "yes", null));
+    }
+
+    @Test
+    public void counts() {
+        assertThat(DeviceQuery.compile("fireplace", null, null).count(house), equalTo(5));
+        assertThat(DeviceQuery.compile("actuator", "true", null).count(house), equalTo(2));
+        assertThat(DeviceQuery.compile("device", "false", null).count(house), equalTo(3));
+        assertThat(DeviceQuery.compile(null, "true", "living*").count(house), equalTo(1));
+        assertThat(DeviceQuery.compile("thermometer", "true", null).count(house), equalTo(0));
+    }
+
+    @Test
+    public void compiledOnce() {
+        assertNull(DeviceQuery.compile(null, null, null));
+        assertThat(DeviceQuery.compile("fireplace", null, "kitchen*"),
+                sameInstance(DeviceQuery.compile("fireplace", null, "kitchen*")));
+        assertThat(DeviceQuery.compile("fireplace", null, "kitchen*").getFilter(), sameInstance(DeviceQuery.ALL));
+    }
+
+    private List<String> query(String type, String enabled, String label) {
+        final DeviceQuery query = DeviceQuery.compile(type, enabled, label);
+        final NavigableMap<String, Device> selected = query.select(house);
+        final List<String> labels = new ArrayList<>();
+        selected.forEach((deviceLabel, device) -> {
+            if (query.getFilter().test(deviceLabel, device)) {
+                labels.add(deviceLabel);
+            }
+        });
+        return labels;
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.route;
+
+import io.restassured.RestAssured;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * Runs the same tests against a house with compact storage, served by the Netty transport
+ * so that the context can live next to the cached servlet ones.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.DEFINED_PORT, properties = {
+        "house.storage=COMPACT", "house.rest.transport=NETTY", "house.rest.port=" + CompactDeviceRouteTest.PORT,
+        "server.port=0", "camel.component.servlet.mapping.enabled=false", "management.server.port=0"})
+class CompactDeviceRouteTest extends DeviceRouteTest {
+
+    static final int PORT = 8083;
+
+    @BeforeAll
+    static void useCompactPort() {
+        RestAssured.port = PORT;
+    }
+
+    @AfterAll
+    static void resetPort() {
+        RestAssured.port = RestAssured.DEFAULT_PORT;
+    }
+}
@@ -16,6 +16,11 @@
 
 package io.patriot_framework.virtual_smart_home.route;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.patriot_framework.virtual_smart_home.format.MediaFormat;
+import io.restassured.RestAssured;
+import io.restassured.config.DecoderConfig;
 import io.restassured.http.ContentType;
 import org.apache.catalina.connector.Response;
 import org.hamcrest.Matchers;
@@ -23,7 +28,12 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
 import static io.restassured.RestAssured.given;
+import static org.hamcrest.MatcherAssert.assertThat;
 
 public class DeviceRouteBase {
 
@@ -77,6 +87,98 @@ public class DeviceRouteBase {
                 .then().body(Matchers.equalTo(body.toString()));
     }
 
+    void streamedGetRequest(String endpoint, JSONObject body) {
+        given()
+                .contentType(ContentType.JSON)
+                .body(body.toString())
+                .post(endpoint);
+
+        given()
+                .queryParam("stream", true)
+                .when().get(endpoint)
+                .then().contentType(ContentType.JSON)
+                .body(Matchers.equalTo(new JSONArray().put(body).toString()));
+    }
+
+    void ndjsonGetRequest(String endpoint, JSONObject body) {
+        given()
+                .contentType(ContentType.JSON)
+                .body(body.toString())
+                .post(endpoint);
+
+        given()
+                .accept(HouseRoute.NDJSON_VALUE)
+                .when().get(endpoint)
+                .then().contentType(HouseRoute.NDJSON_VALUE)
+                .body(Matchers.equalTo(body.toString() + "\n"));
+    }
+
+    void pagedGetRequest(String endpoint, JSONObject body) throws JSONException {
+        JSONArray expected = new JSONArray();
+        for (String label : new String[] {"a", "b", "c"}) {
+            JSONObject device = new JSONObject(body.toString()).put("label", label);
+            expected.put(device);
+            given()
+                    .contentType(ContentType.JSON)
+                    .body(device.toString())
+                    .post(endpoint);
+        }
+
+        String cursor = given()
+                .queryParam("limit", 2)
+                .when().get(endpoint)
+                .then().body(Matchers.equalTo(new JSONArray().put(expected.get(0)).put(expected.get(1)).toString()))
+                .extract().header(HouseRoute.NEXT_CURSOR_HEADER);
+
+        given()
+                .queryParam("limit", 2)
+                .queryParam("cursor", cursor)
+                .when().get(endpoint)
+                .then().header(HouseRoute.NEXT_CURSOR_HEADER, Matchers.nullValue())
+                .body(Matchers.equalTo(new JSONArray().put(expected.get(2)).toString()));
+    }
+
+    void pagedGetRequestWithInvalidLimit(String endpoint) {
+        given()
+                .queryParam("limit", 0)
+                .when().get(endpoint)
+                .then().statusCode(Response.SC_BAD_REQUEST); // 400
+    }
+
+    void conditionalGetRequest(String endpoint, JSONObject body) throws JSONException {
+        String etag = given()
+                .when().get(endpoint)
+                .then().statusCode(Response.SC_OK)
+                .extract().header(HouseRoute.ETAG_HEADER);
+
+        given()
+                .header(HouseRoute.IF_NONE_MATCH_HEADER, etag)
+                .when().get(endpoint)
+                .then().statusCode(Response.SC_NOT_MODIFIED)
+                .body(Matchers.equalTo(""));
+
+        given()
+                .contentType(ContentType.JSON)
+                .body(body.toString())
+                .post(endpoint);
+
+        given()
+                .header(HouseRoute.IF_NONE_MATCH_HEADER, etag)
+                .when().get(endpoint)
+                .then().statusCode(Response.SC_OK)
+                .header(HouseRoute.ETAG_HEADER, Matchers.not(etag));
+
+        String deviceEtag = given()
+                .when().get(endpoint + "/" + body.getString("label"))
+                .then().statusCode(Response.SC_OK)
+                .extract().header(HouseRoute.ETAG_HEADER);
+
+        given()
+                .header(HouseRoute.IF_NONE_MATCH_HEADER, deviceEtag)
+                .when().get(endpoint + "/" + body.getString("label"))
+                .then().statusCode(Response.SC_NOT_MODIFIED);
+    }
+
     // === POST ===
     void postRequestWithoutBody(String endpoint) {
         given()
@@ -161,6 +263,126 @@ public class DeviceRouteBase {
                 .then().statusCode(Response.SC_OK);
     }
 
+    void conditionalPutAndDeleteRequest(String endpoint, JSONObject body) throws JSONException {
+        given()
+                .contentType(ContentType.JSON)
+                .body(body.toString())
+                .post(endpoint);
+
+        String etag = given()
+                .when().get(endpoint + "/" + body.getString("label"))
+                .then().statusCode(Response.SC_OK)
+                .extract().header(HouseRoute.ETAG_HEADER);
+
+        String updatedEtag = given()
+                .contentType(ContentType.JSON)
+                .header(HouseRoute.IF_MATCH_HEADER, etag)
+                .body(body.toString())
+                .when().put(endpoint)
+                .then().statusCode(Response.SC_OK)
+                .header(HouseRoute.ETAG_HEADER, Matchers.not(etag))
+                .extract().header(HouseRoute.ETAG_HEADER);
+
+        given()
+                .contentType(ContentType.JSON)
+                .header(HouseRoute.IF_MATCH_HEADER, etag)
+                .body(body.toString())
+                .when().patch(endpoint)
+                .then().statusCode(Response.SC_PRECONDITION_FAILED); // 412
+
+        given()
+                .queryParam("label", body.getString("label"))
+                .header(HouseRoute.IF_MATCH_HEADER, etag)
+                .when().delete(endpoint)
+                .then().statusCode(Response.SC_PRECONDITION_FAILED); // 412
+
+        given()
+                .when().get(endpoint + "/" + body.getString("label"))
+                .then().statusCode(Response.SC_OK)
+                .header(HouseRoute.ETAG_HEADER, updatedEtag);
+
+        given()
+                .queryParam("label", body.getString("label"))
+                .header(HouseRoute.IF_MATCH_HEADER, updatedEtag)
+                .when().delete(endpoint)
+                .then().statusCode(Response.SC_OK);
+
+        given()
+                .contentType(ContentType.JSON)
+                .header(HouseRoute.IF_MATCH_HEADER, updatedEtag)
+                .body(body.toString())
+                .when().put(endpoint)
+                .then().statusCode(Response.SC_PRECONDITION_FAILED); // 412
+        given()
+                .contentType(ContentType.JSON)
+                .body(body.toString())
+                .when().put(endpoint)
+                .then().statusCode(Response.SC_NOT_FOUND); // 404
+    }
+
+    // === COMMANDS ===
+    void commandRequest(String endpoint, JSONObject body) throws JSONException {
+        given()
+                .contentType(ContentType.JSON)
+                .body(body.toString())
+                .post(endpoint);
+
+        given()
+                .when().post(endpoint + "/" + body.getString("label") + "/enable")
+                .then().statusCode(Response.SC_OK)
+                .body("enabled", Matchers.equalTo(true));
+        given()
+                .when().post(endpoint + "/" + body.getString("label") + "/toggle")
+                .then().statusCode(Response.SC_OK)
+                .body("enabled", Matchers.equalTo(false));
+        given()
+                .when().get(endpoint + "/" + body.getString("label"))
+                .then().statusCode(Response.SC_OK)
+                .body("enabled", Matchers.equalTo(false));
+        given()
+                .when().post(endpoint + "/" + body.getString("label") + "/explode")
+                .then().statusCode(Response.SC_NOT_FOUND); // 404
+        given()
+                .when().post(endpoint + "/missing/enable")
+                .then().statusCode(Response.SC_NOT_FOUND); // 404
+    }
+
+    void enabledQueryAndCountRequest(String endpoint, JSONObject body) throws JSONException {
+        for (String label : new String[]{body.getString("label"), "other"}) {
+            given()
+                    .contentType(ContentType.JSON)
+                    .body(new JSONObject(body.toString()).put("label", label).toString())
+                    .post(endpoint);
+        }
+        given()
+                .when().post(endpoint + "/" + body.getString("label") + "/enable")
+                .then().statusCode(Response.SC_OK);
+
+        given()
+                .queryParam("enabled", true)
+                .when().get(endpoint)
+                .then().statusCode(Response.SC_OK)
+                .body("label", Matchers.contains(body.getString("label")));
+        given()
+                .when().get(endpoint + "/_count")
+                .then().statusCode(Response.SC_OK)
+                .body("count", Matchers.equalTo(2));
+        given()
+                .queryParam("enabled", true)
+                .when().get(endpoint + "/_count")
+                .then().statusCode(Response.SC_OK)
+                .body("count", Matchers.equalTo(1));
+        given()
+                .queryParam("enabled", false)
+                .when().get(endpoint + "/_count")
+                .then().statusCode(Response.SC_OK)
+                .body("count", Matchers.equalTo(1));
+        given()
+                .queryParam("enabled", "maybe")
+                .when().get(endpoint + "/_count")
+                .then().statusCode(Response.SC_BAD_REQUEST); // 400
+    }
+
     // === PATCH ===
     void patchRequestWithoutBody(String endpoint) {
         given()
@@ -215,4 +437,187 @@ public class DeviceRouteBase {
                 .when().get(endpoint)
                 .then().body(Matchers.equalTo(new JSONArray().toString()));
     }
+
+    // === HISTORY ===
+    void historyRequest(String endpoint, JSONObject body) throws JSONException {
+        final String label = body.getString("label");
+        given()
+                .contentType(ContentType.JSON)
+                .body(body.toString())
+                .post(endpoint);
+        given()
+                .contentType(ContentType.JSON)
+                .body(new JSONObject(body.toString()).put("enabled", true).toString())
+                .put(endpoint);
+
+        given()
+                .when().get(endpoint + "/" + label + "/history")
+                .then().statusCode(Response.SC_OK)
+                .body("enabled", Matchers.contains(false, true))
+                .body("present", Matchers.contains(true, true));
+        given()
+                .queryParam("from", System.currentTimeMillis() + 60_000)
+                .when().get(endpoint + "/" + label + "/history")
+                .then().statusCode(Response.SC_OK)
+                .body(Matchers.equalTo(new JSONArray().toString()));
+        given()
+                .queryParam("from", "yesterday")
+                .when().get(endpoint + "/" + label + "/history")
+                .then().statusCode(Response.SC_BAD_REQUEST); // 400
+        given()
+                .when().get(endpoint + "/notFound/history")
+                .then().statusCode(Response.SC_NOT_FOUND); // 404
+    }
+
+    // === BULK ===
+    void binaryFormatRequest(String endpoint, JSONObject body, MediaFormat format)
+            throws JSONException, IOException {
+        final ObjectMapper mapper = new ObjectMapper(format.getFactory());
+        final String label = body.getString("label");
+        final Map<?, ?> device = new ObjectMapper().readValue(body.toString(), Map.class);
+
+        given()
+                .contentType(format.getMediaType())
+                .accept(format.getMediaType())
+                .body(mapper.writeValueAsBytes(device))
+                .when().post(endpoint)
+                .then().statusCode(Response.SC_CREATED);
+
+        final byte[] read = given()
+                .accept(format.getMediaType())
+                .when().get(endpoint + "/" + label)
+                .then().statusCode(Response.SC_OK)
+                .contentType(format.getMediaType())
+                .extract().asByteArray();
+        assertThat(mapper.readValue(read, Map.class), Matchers.equalTo(device));
+
+        final byte[] bulk = given()
+                .contentType(format.getMediaType())
+                .accept(format.getMediaType())
+                .body(mapper.writeValueAsBytes(List.of(device, Map.of())))
+                .when().post(endpoint + "/_bulk")
+                .then().statusCode(Response.SC_OK)
+                .contentType(format.getMediaType())
+                .extract().asByteArray();
+        final JsonNode statuses = mapper.readTree(bulk);
+        assertThat(statuses.findValuesAsText("status"), Matchers.contains(String.valueOf(Response.SC_CONFLICT),
+                String.valueOf(Response.SC_BAD_REQUEST)));
+
+        given()
+                .contentType(format.getMediaType())
+                .body(new byte[]{(byte) 0xff, (byte) 0xfe})
+                .when().put(endpoint)
+                .then().statusCode(Response.SC_BAD_REQUEST); // 400
+        given()
+                .when().get(endpoint + "/" + label)
+                .then().statusCode(Response.SC_OK)
+                .contentType(ContentType.JSON)
+                .body(Matchers.equalTo(body.toString()));
+    }
+
+    void gzippedGetRequest(String endpoint, JSONObject body) throws JSONException {
+        final JSONArray items = new JSONArray();
+        for (int i = 0; i < 300; i++) {
+            items.put(new JSONObject(body.toString()).put("label", body.getString("label") + i));
+        }
+        given()
+                .contentType(ContentType.JSON)
+                .body(items.toString())
+                .when().post(endpoint + "/_bulk")
+                .then().statusCode(Response.SC_OK);
+
+        String gzipEtag = null;
+        for (int i = 0; i < 2; i++) {
+            gzipEtag = given()
+                    .header("Accept-Encoding", "deflate, gzip;q=0.5")
+                    .when().get(endpoint)
+                    .then().statusCode(Response.SC_OK)
+                    .header("Content-Encoding", "gzip")
+                    .header("Vary", "Accept-Encoding")
+                    .contentType(ContentType.JSON)
+                    .body("size()", Matchers.is(300))
+                    .extract().header("ETag");
+        }
+        final String etag = given()
+                .config(RestAssured.config().decoderConfig(DecoderConfig.decoderConfig().noContentDecoders()))
+                .header("Accept-Encoding", "gzip;q=0, *")
+                .when().get(endpoint)
+                .then().statusCode(Response.SC_OK)
+                .header("Content-Encoding", Matchers.nullValue())
+                .header("Vary", "Accept-Encoding")
+                .body("size()", Matchers.is(300))
+                .extract().header("ETag");
+        assertThat(etag, Matchers.not(Matchers.equalTo(gzipEtag)));
+        given()
+                .header("Accept-Encoding", "gzip")
+                .header("If-None-Match", gzipEtag)
+                .when().get(endpoint)
+                .then().statusCode(Response.SC_NOT_MODIFIED) // 304
+                .header("ETag", gzipEtag);
+        given()
+                .contentType(ContentType.JSON)
+                .body(new JSONObject(items.getJSONObject(0).toString()).put("enabled", !body.getBoolean("enabled"))
+                        .toString())
+                .put(endpoint);
+        given()
+                .config(RestAssured.config().decoderConfig(DecoderConfig.decoderConfig().noContentDecoders()))
+                .when().get(endpoint)
+                .then().statusCode(Response.SC_OK)
+                .header("Content-Encoding", Matchers.nullValue())
+                .body("size()", Matchers.is(300))
+                .body("findAll { it.enabled != " + body.getBoolean("enabled") + " }.label",
+                        Matchers.contains(body.getString("label") + 0));
+    }
+
+    void bulkPostRequest(String endpoint, JSONObject body) {
+        JSONArray items = new JSONArray().put(body).put(body).put(new JSONObject());
+
+        given()
+                .contentType(ContentType.JSON)
+                .body(items.toString())
+                .when().post(endpoint + "/_bulk")
+                .then().statusCode(Response.SC_OK)
+                .body("status", Matchers.contains(Response.SC_CREATED, Response.SC_CONFLICT,
+                        Response.SC_BAD_REQUEST));
+    }
+
+    void bulkPostRequestWithoutArray(String endpoint, JSONObject body) {
+        given()
+                .contentType(ContentType.JSON)
+                .body(body.toString())
+                .when().post(endpoint + "/_bulk")
+                .then().statusCode(Response.SC_BAD_REQUEST); // 400
+    }
+
+    void bulkPutRequest(String endpoint, JSONObject body, JSONObject missing) {
+        given()
+                .contentType(ContentType.JSON)
+                .body(body.toString())
+                .post(endpoint);
+
+        given()
+                .contentType(ContentType.JSON)
+                .body(new JSONArray().put(body).put(missing).toString())
+                .when().put(endpoint + "/_bulk")
+                .then().statusCode(Response.SC_OK)
+                .body("status", Matchers.contains(Response.SC_OK, Response.SC_NOT_FOUND));
+    }
+
+    void bulkDeleteRequest(String endpoint, JSONObject body) throws JSONException {
+        given()
+                .contentType(ContentType.JSON)
+                .body(body.toString())
+                .post(endpoint);
+
+        given()
+                .contentType(ContentType.JSON)
+                .body(new JSONArray().put(body.getString("label")).put(body.getString("label")).toString())
+                .when().delete(endpoint + "/_bulk")
+                .then().statusCode(Response.SC_OK)
+                .body("status", Matchers.contains(Response.SC_OK, Response.SC_NOT_FOUND));
+
+        given()
+                .when().get(endpoint + "/" + body.getString("label"))
+                .then().statusCode(Response.SC_NOT_FOUND);
+    }
 }
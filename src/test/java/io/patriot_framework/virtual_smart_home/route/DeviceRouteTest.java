@@ -71,4 +71,119 @@ class DeviceRouteTest {
                 .then().body(Matchers.equalTo(new JSONObject().put(defaultFireplaceJson.getString("label"),
                     defaultFireplaceJson).toString()));
     }
+
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    void streamedGetRequest() throws JSONException {
+        JSONObject defaultFireplaceJson = new JSONObject()
+                .put("label", "fireplace")
+                .put("enabled", false);
+
+        given()
+                .contentType(ContentType.JSON)
+                .body(defaultFireplaceJson.toString())
+                .when().post(deviceEndpoint + "/fireplace")
+                .then().statusCode(Response.SC_CREATED);
+
+        given()
+                .queryParam("stream", true)
+                .when().get(deviceEndpoint)
+                .then().contentType(ContentType.JSON)
+                .body(Matchers.equalTo(new JSONObject().put(defaultFireplaceJson.getString("label"),
+                    defaultFireplaceJson).toString()));
+    }
+
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    void queryGetRequest() throws JSONException {
+        for (String label : new String[]{"kitchen-left", "kitchen-right", "bedroom"}) {
+            given()
+                    .contentType(ContentType.JSON)
+                    .body(new JSONObject().put("label", label).put("enabled", !label.endsWith("right")).toString())
+                    .when().post(deviceEndpoint + "/fireplace")
+                    .then().statusCode(Response.SC_CREATED);
+        }
+
+        given()
+                .queryParam("type", "Actuator")
+                .queryParam("enabled", true)
+                .queryParam("label", "kitchen*")
+                .when().get(deviceEndpoint)
+                .then().statusCode(Response.SC_OK)
+                .body("keySet()", Matchers.contains("kitchen-left"));
+        given()
+                .queryParam("label", "*room")
+                .queryParam("limit", 1)
+                .when().get(deviceEndpoint)
+                .then().statusCode(Response.SC_OK)
+                .body("keySet()", Matchers.contains("bedroom"));
+        given()
+                .queryParam("enabled", "sometimes")
+                .when().get(deviceEndpoint)
+                .then().statusCode(Response.SC_BAD_REQUEST); // 400
+    }
+
+    @Test
+    void commandAllRequest() throws JSONException {
+        for (String label : new String[]{"kitchen", "bedroom"}) {
+            given()
+                    .contentType(ContentType.JSON)
+                    .body(new JSONObject().put("label", label).put("enabled", label.equals("kitchen")).toString())
+                    .when().post(deviceEndpoint + "/fireplace")
+                    .then().statusCode(Response.SC_CREATED);
+        }
+
+        given()
+                .when().post(deviceEndpoint + "/actuator/_all/enable")
+                .then().statusCode(Response.SC_OK)
+                .body("changed", Matchers.equalTo(1));
+        given()
+                .when().post(deviceEndpoint + "/fireplace/_all/disable")
+                .then().statusCode(Response.SC_OK)
+                .body("changed", Matchers.equalTo(2));
+        given()
+                .queryParam("enabled", true)
+                .when().get(deviceEndpoint)
+                .then().statusCode(Response.SC_OK)
+                .body("keySet()", Matchers.empty());
+        given()
+                .when().post(deviceEndpoint + "/actuator/_all/explode")
+                .then().statusCode(Response.SC_NOT_FOUND); // 404
+        given()
+                .when().post(deviceEndpoint + "/sensor/_all/enable")
+                .then().statusCode(Response.SC_NOT_FOUND); // 404
+    }
+
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    void countRequest() throws JSONException {
+        for (String label : new String[]{"kitchen", "bedroom"}) {
+            given()
+                    .contentType(ContentType.JSON)
+                    .body(new JSONObject().put("label", label).put("enabled", label.equals("kitchen")).toString())
+                    .when().post(deviceEndpoint + "/fireplace")
+                    .then().statusCode(Response.SC_CREATED);
+        }
+
+        given()
+                .when().get(deviceEndpoint + "/_count")
+                .then().statusCode(Response.SC_OK)
+                .body("count", Matchers.equalTo(2));
+        given()
+                .queryParam("type", "actuator")
+                .queryParam("enabled", true)
+                .when().get(deviceEndpoint + "/_count")
+                .then().statusCode(Response.SC_OK)
+                .body("count", Matchers.equalTo(1));
+        given()
+                .queryParam("label", "kitchen*")
+                .when().get(deviceEndpoint + "/_count")
+                .then().statusCode(Response.SC_OK)
+                .body("count", Matchers.equalTo(1));
+        given()
+                .queryParam("type", "sensor")
+                .when().get(deviceEndpoint + "/_count")
+                .then().statusCode(Response.SC_OK)
+                .body("count", Matchers.equalTo(0));
+    }
 }
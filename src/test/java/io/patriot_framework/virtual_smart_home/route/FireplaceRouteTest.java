@@ -16,6 +16,7 @@
 
 package io.patriot_framework.virtual_smart_home.route;
 
+import io.patriot_framework.virtual_smart_home.format.MediaFormat;
 import io.restassured.http.ContentType;
 import org.hamcrest.Matchers;
 import org.json.JSONException;
@@ -24,6 +25,8 @@ import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.annotation.DirtiesContext;
 
+import java.io.IOException;
+
 import static io.restassured.RestAssured.given;
 
 @DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
@@ -79,6 +82,36 @@ class FireplaceRouteTest extends DeviceRouteBase {
         super.getUniqueDevice(fireplaceEndpoint, defaultFireplaceJson);
     }
 
+    @Test
+    void streamedGetRequest() {
+        super.streamedGetRequest(fireplaceEndpoint, defaultFireplaceJson);
+    }
+
+    @Test
+    void ndjsonGetRequest() {
+        super.ndjsonGetRequest(fireplaceEndpoint, defaultFireplaceJson);
+    }
+
+    @Test
+    void pagedGetRequest() throws JSONException {
+        super.pagedGetRequest(fireplaceEndpoint, defaultFireplaceJson);
+    }
+
+    @Test
+    void pagedGetRequestWithInvalidLimit() {
+        super.pagedGetRequestWithInvalidLimit(fireplaceEndpoint);
+    }
+
+    @Test
+    void gzippedGetRequest() throws JSONException {
+        super.gzippedGetRequest(fireplaceEndpoint, defaultFireplaceJson);
+    }
+
+    @Test
+    void conditionalGetRequest() throws JSONException {
+        super.conditionalGetRequest(fireplaceEndpoint, defaultFireplaceJson);
+    }
+
     // === POST ===
     @Test
     void postRequestWithoutBody() {
@@ -130,6 +163,21 @@ class FireplaceRouteTest extends DeviceRouteBase {
         super.putRequestStatusCode200(fireplaceEndpoint, defaultFireplaceJson);
     }
 
+    @Test
+    void commandRequest() throws JSONException {
+        super.commandRequest(fireplaceEndpoint, defaultFireplaceJson);
+    }
+
+    @Test
+    void enabledQueryAndCountRequest() throws JSONException {
+        super.enabledQueryAndCountRequest(fireplaceEndpoint, defaultFireplaceJson);
+    }
+
+    @Test
+    void conditionalPutAndDeleteRequest() throws JSONException {
+        super.conditionalPutAndDeleteRequest(fireplaceEndpoint, defaultFireplaceJson);
+    }
+
     @Test
     void simplePutRequest() throws JSONException {
         given()
@@ -176,4 +224,43 @@ class FireplaceRouteTest extends DeviceRouteBase {
     void simpleDeleteRequest() throws JSONException {
         super.simpleDeleteRequest(fireplaceEndpoint, defaultFireplaceJson);
     }
+
+    // === HISTORY ===
+    @Test
+    void historyRequest() throws JSONException {
+        super.historyRequest(fireplaceEndpoint, defaultFireplaceJson);
+    }
+
+    @Test
+    void cborRequest() throws JSONException, IOException {
+        super.binaryFormatRequest(fireplaceEndpoint, defaultFireplaceJson, MediaFormat.CBOR);
+    }
+
+    @Test
+    void smileRequest() throws JSONException, IOException {
+        super.binaryFormatRequest(fireplaceEndpoint, defaultFireplaceJson, MediaFormat.SMILE);
+    }
+
+    // === BULK ===
+    @Test
+    void bulkPostRequest() {
+        super.bulkPostRequest(fireplaceEndpoint, defaultFireplaceJson);
+    }
+
+    @Test
+    void bulkPostRequestWithoutArray() {
+        super.bulkPostRequestWithoutArray(fireplaceEndpoint, defaultFireplaceJson);
+    }
+
+    @Test
+    void bulkPutRequest() throws JSONException {
+        JSONObject missingFireplace = new JSONObject(defaultFireplaceJson.toString()).put("label", "missing");
+
+        super.bulkPutRequest(fireplaceEndpoint, defaultFireplaceJson, missingFireplace);
+    }
+
+    @Test
+    void bulkDeleteRequest() throws JSONException {
+        super.bulkDeleteRequest(fireplaceEndpoint, defaultFireplaceJson);
+    }
 }
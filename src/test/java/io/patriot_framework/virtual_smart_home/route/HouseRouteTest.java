@@ -55,4 +55,57 @@ class HouseRouteTest {
                 .then().assertThat().body(Matchers.equalTo(expected.toString()));
     }
 
+    @Test
+    void conditionalGetRequest() {
+        String etag = given()
+                .when().get(houseEndpoint)
+                .then().extract().header(HouseRoute.ETAG_HEADER);
+
+        given()
+                .header(HouseRoute.IF_NONE_MATCH_HEADER, etag)
+                .when().get(houseEndpoint)
+                .then().assertThat().statusCode(Response.SC_NOT_MODIFIED);
+    }
+
+    @Test
+    void namespacedHouse() throws JSONException {
+        String namespacedEndpoint = "houses/tenant";
+        JSONObject fireplace = new JSONObject().put("label", "fireplace").put("enabled", false);
+
+        given()
+                .when().post(namespacedEndpoint)
+                .then().assertThat().statusCode(Response.SC_CREATED);
+        given()
+                .when().post(namespacedEndpoint)
+                .then().assertThat().statusCode(Response.SC_CONFLICT);
+
+        given()
+                .contentType(ContentType.JSON)
+                .body(fireplace.toString())
+                .when().post(namespacedEndpoint + "/device/fireplace")
+                .then().assertThat().statusCode(Response.SC_CREATED);
+        given()
+                .when().get(namespacedEndpoint + "/device/fireplace/fireplace")
+                .then().assertThat().body(Matchers.equalTo(fireplace.toString()));
+        given()
+                .when().get(houseEndpoint + "/device/fireplace/fireplace")
+                .then().assertThat().statusCode(Response.SC_NOT_FOUND);
+
+        given()
+                .when().delete(namespacedEndpoint)
+                .then().assertThat().statusCode(Response.SC_NO_CONTENT);
+        given()
+                .when().get(namespacedEndpoint + "/device/fireplace/fireplace")
+                .then().assertThat().statusCode(Response.SC_NOT_FOUND);
+    }
+
+    @Test
+    void defaultHouseIsRegistered() {
+        given()
+                .when().get("houses/house")
+                .then().assertThat().statusCode(Response.SC_OK);
+        given()
+                .when().delete("houses/house")
+                .then().assertThat().statusCode(Response.SC_CONFLICT);
+    }
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.route;
+
+import io.restassured.http.ContentType;
+import org.apache.catalina.connector.Response;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import static io.restassured.RestAssured.given;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.DEFINED_PORT)
+class RoomRouteTest {
+
+    private final String roomEndpoint = "house/room";
+    private final String room = "{\"name\":\"kitchen\",\"floor\":\"ground\",\"devices\":[\"fireplace\"]}";
+
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    void roomLifecycle() {
+        given()
+                .contentType(ContentType.JSON).body(room)
+                .when().post(roomEndpoint)
+                .then().assertThat().statusCode(Response.SC_CREATED); // 201
+        given()
+                .contentType(ContentType.JSON).body(room)
+                .when().post(roomEndpoint)
+                .then().assertThat().statusCode(Response.SC_CONFLICT); // 409
+        given()
+                .contentType(ContentType.JSON).body("{\"label\":\"fireplace\",\"enabled\":true}")
+                .when().post("house/device/fireplace")
+                .then().assertThat().statusCode(Response.SC_CREATED); // 201
+        given()
+                .when().put(roomEndpoint + "/kitchen/device/heater")
+                .then().assertThat().statusCode(Response.SC_OK)
+                .body("devices", Matchers.contains("fireplace", "heater"));
+
+        given()
+                .queryParam("floor", "ground")
+                .when().get(roomEndpoint)
+                .then().assertThat().statusCode(Response.SC_OK)
+                .body("name", Matchers.contains("kitchen"))
+                .body("[0]", Matchers.not(Matchers.hasKey("summary")));
+        given()
+                .when().get(roomEndpoint + "/kitchen/summary")
+                .then().assertThat().statusCode(Response.SC_OK)
+                .body("floor", Matchers.equalTo("ground"))
+                .body("devices", Matchers.equalTo(1))
+                .body("enabledActuators", Matchers.equalTo(1))
+                .body("types.fireplace", Matchers.equalTo(1));
+
+        given()
+                .when().delete(roomEndpoint + "/kitchen/device/fireplace")
+                .then().assertThat().statusCode(Response.SC_OK)
+                .body("devices", Matchers.contains("heater"));
+        given()
+                .when().delete(roomEndpoint + "/kitchen/device/fireplace")
+                .then().assertThat().statusCode(Response.SC_NOT_FOUND); // 404
+        given()
+                .when().get(roomEndpoint + "/kitchen")
+                .then().assertThat().statusCode(Response.SC_OK)
+                .body("devices", Matchers.contains("heater"))
+                .body("$", Matchers.not(Matchers.hasKey("summary")));
+
+        given()
+                .when().delete(roomEndpoint + "/kitchen")
+                .then().assertThat().statusCode(Response.SC_OK);
+        given()
+                .when().get(roomEndpoint + "/kitchen/summary")
+                .then().assertThat().statusCode(Response.SC_NOT_FOUND); // 404
+        given()
+                .when().put(roomEndpoint + "/kitchen/device/heater")
+                .then().assertThat().statusCode(Response.SC_NOT_FOUND); // 404
+    }
+
+    @Test
+    void invalidRoom() {
+        given()
+                .contentType(ContentType.JSON).body("{\"name\":\"kitchen\"}")
+                .when().post(roomEndpoint)
+                .then().assertThat().statusCode(Response.SC_BAD_REQUEST); // 400
+    }
+}
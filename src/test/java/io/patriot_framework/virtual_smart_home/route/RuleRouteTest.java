@@ -0,0 +1,79 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.route;
+
+import io.restassured.http.ContentType;
+import org.apache.catalina.connector.Response;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static io.restassured.RestAssured.given;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.DEFINED_PORT)
+class RuleRouteTest {
+
+    private final String rulesEndpoint = "house/rules";
+    private final String rule = "{\"name\":\"heating\","
+            + "\"when\":{\"type\":\"fireplace\",\"enabled\":true},"
+            + "\"then\":{\"type\":\"fireplace\",\"label\":\"heater\",\"enabled\":true}}";
+
+    @Test
+    void ruleLifecycle() {
+        given()
+                .contentType(ContentType.JSON).body(rule)
+                .when().post(rulesEndpoint)
+                .then().assertThat().statusCode(Response.SC_CREATED); // 201
+        given()
+                .contentType(ContentType.JSON).body(rule)
+                .when().post(rulesEndpoint)
+                .then().assertThat().statusCode(Response.SC_CONFLICT); // 409
+
+        given()
+                .when().get(rulesEndpoint)
+                .then().assertThat().statusCode(Response.SC_OK)
+                .body("name", Matchers.contains("heating"));
+        given()
+                .when().get(rulesEndpoint + "/heating")
+                .then().assertThat().statusCode(Response.SC_OK)
+                .body("when.type", Matchers.equalTo("fireplace"))
+                .body("when.quantifier", Matchers.equalTo("ANY"))
+                .body("then.label", Matchers.equalTo("heater"));
+
+        given()
+                .when().delete(rulesEndpoint + "/heating")
+                .then().assertThat().statusCode(Response.SC_OK);
+        given()
+                .when().get(rulesEndpoint + "/heating")
+                .then().assertThat().statusCode(Response.SC_NOT_FOUND); // 404
+        given()
+                .when().delete(rulesEndpoint + "/heating")
+                .then().assertThat().statusCode(Response.SC_NOT_FOUND); // 404
+    }
+
+    @Test
+    void invalidRule() {
+        given()
+                .contentType(ContentType.JSON).body("{\"name\":\"incomplete\",\"when\":{\"type\":\"fireplace\"}}")
+                .when().post(rulesEndpoint)
+                .then().assertThat().statusCode(Response.SC_BAD_REQUEST); // 400
+        given()
+                .contentType(ContentType.JSON).body("{\"name\":")
+                .when().post(rulesEndpoint)
+                .then().assertThat().statusCode(Response.SC_BAD_REQUEST); // 400
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.rules;
+
+import io.patriot_framework.virtual_smart_home.house.House;
+import io.patriot_framework.virtual_smart_home.house.device.Actuator;
+import io.patriot_framework.virtual_smart_home.house.device.Fireplace;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RuleEngineTest {
+
+    House house = new House("house");
+    RuleEngine engine = new RuleEngine(house, 100);
+
+    @BeforeEach
+    public void observeHouse() {
+        house.addListener(engine);
+        house.addDevice("heater", new Fireplace("heater"));
+    }
+
+    @Test
+    public void anyEnabledFireplace() {
+        house.addDevice("fireplace", new Fireplace("fireplace"));
+        engine.addRule(new Rule("heating", new Condition("fireplace", null, true, null),
+                new Action("fireplace", "heater", true)));
+        engine.tick();
+        assertFalse(isEnabled("heater"));
+
+        setEnabled("fireplace", true);
+        engine.tick();
+        assertTrue(isEnabled("heater"));
+    }
+
+    @Test
+    public void firesOnceConditionStartsToHold() {
+        house.addDevice("fireplace", enabledFireplace("fireplace"));
+        engine.addRule(new Rule("heating", new Condition("fireplace", "fireplace", true, null),
+                new Action("actuator", "heater", true)));
+        engine.tick();
+        assertTrue(isEnabled("heater"));
+
+        setEnabled("heater", false);
+        house.updateDevice("fireplace", enabledFireplace("fireplace"));
+        engine.tick();
+        assertFalse(isEnabled("heater"));
+
+        setEnabled("fireplace", false);
+        engine.tick();
+        setEnabled("fireplace", true);
+        engine.tick();
+        assertTrue(isEnabled("heater"));
+    }
+
+    @Test
+    public void quantifiers() {
+        house.addDevice("fireplace", enabledFireplace("fireplace"));
+        engine.addRule(new Rule("all", new Condition("fireplace", null, true, Quantifier.ALL),
+                new Action("fireplace", "fireplace", false)));
+        engine.addRule(new Rule("none", new Condition("actuator", null, true, Quantifier.NONE),
+                new Action("fireplace", null, true)));
+        engine.tick();
+        assertTrue(isEnabled("fireplace"));
+        assertFalse(isEnabled("heater"));
+
+        setEnabled("heater", true);
+        engine.tick();
+        assertFalse(isEnabled("fireplace"));
+
+        setEnabled("heater", false);
+        engine.tick();
+        assertTrue(isEnabled("fireplace"));
+        assertTrue(isEnabled("heater"));
+
+        // Changes made by actions are evaluated in the next tick
+        engine.tick();
+        assertFalse(isEnabled("fireplace"));
+    }
+
+    @Test
+    public void actionSwitchesItsTypeOnly() {
+        house.addDevice("fireplace", new Fireplace("fireplace"));
+        house.addDevice("lamp", new Actuator("lamp"));
+        engine.addRule(new Rule("all", new Condition("actuator", "lamp", false, null),
+                new Action("fireplace", null, true)));
+        engine.addRule(new Rule("unknown", new Condition("actuator", "lamp", false, null),
+                new Action("heatpump", null, true)));
+        engine.tick();
+        assertTrue(isEnabled("fireplace"));
+        assertTrue(isEnabled("heater"));
+        assertFalse(isEnabled("lamp"));
+    }
+
+    @Test
+    public void removeRule() {
+        house.addDevice("fireplace", new Fireplace("fireplace"));
+        engine.addRule(new Rule("heating", new Condition("fireplace", null, true, null),
+                new Action("fireplace", "heater", true)));
+        engine.tick();
+        engine.removeRule("heating");
+        engine.tick();
+        assertNull(engine.findRule("heating"));
+
+        setEnabled("fireplace", true);
+        engine.tick();
+        assertFalse(isEnabled("heater"));
+    }
+
+    private static Fireplace enabledFireplace(String label) {
+        final Fireplace fireplace = new Fireplace(label);
+        fireplace.setEnabled(true);
+        return fireplace;
+    }
+
+    private boolean isEnabled(String label) {
+        return house.getDevice(label, Actuator.class).isEnabled();
+    }
+
+    private void setEnabled(String label, boolean enabled) {
+        house.modifyDeviceIfPresent(label, Actuator.class, actuator -> {
+            actuator.setEnabled(enabled);
+            return true;
+        });
+    }
+}
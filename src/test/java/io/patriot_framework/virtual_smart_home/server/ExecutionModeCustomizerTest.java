@@ -0,0 +1,43 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.server;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class ExecutionModeCustomizerTest {
+
+    private final boolean virtualThreadsSupported = Runtime.version().feature() >= 21;
+
+    @Test
+    public void platformMode() {
+        TomcatServletWebServerFactory factory = new TomcatServletWebServerFactory();
+        new ExecutionModeCustomizer(ExecutionMode.PLATFORM).customize(factory);
+        assertThat(factory.getTomcatProtocolHandlerCustomizers().size(), equalTo(0));
+    }
+
+    @Test
+    public void virtualMode() {
+        TomcatServletWebServerFactory factory = new TomcatServletWebServerFactory();
+        new ExecutionModeCustomizer(ExecutionMode.VIRTUAL).customize(factory);
+        assertThat(factory.getTomcatProtocolHandlerCustomizers().size(), equalTo(virtualThreadsSupported ? 1 : 0));
+        assertThat(ExecutionModeCustomizer.virtualThreadFactory("test-") != null, equalTo(virtualThreadsSupported));
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.simulation;
+
+import io.patriot_framework.virtual_smart_home.house.House;
+import io.patriot_framework.virtual_smart_home.house.device.Actuator;
+import io.patriot_framework.virtual_smart_home.house.device.Fireplace;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SimulationTest {
+
+    House house = new House("house");
+    Simulation simulation = new Simulation(house, 100);
+
+    @Test
+    public void actuatorSchedule() {
+        final Fireplace fireplace = new Fireplace("fireplace");
+        house.addDevice("fireplace", fireplace);
+        simulation.attach("fireplace", Fireplace.class, new ActuatorSchedule(2, 3), 3);
+
+        advance(3);
+        assertTrue(fireplace.isEnabled());
+        assertThat(house.getDeviceVersion("fireplace"), equalTo(2L));
+        advance(2);
+        assertFalse(fireplace.isEnabled());
+        advance(3);
+        assertTrue(fireplace.isEnabled());
+        assertThat(house.getDeviceVersion("fireplace"), equalTo(4L));
+    }
+
+    @Test
+    public void removedDeviceIsNotDriven() {
+        final Fireplace fireplace = new Fireplace("fireplace");
+        house.addDevice("fireplace", fireplace);
+        simulation.attach("fireplace", Actuator.class, new ActuatorSchedule(1, 1), 1);
+
+        advance(1);
+        house.removeDevice("fireplace");
+        advance(5);
+        assertTrue(fireplace.isEnabled());
+        assertThat(house.getVersion(), equalTo(3L));
+    }
+
+    @Test
+    public void typeBehaviorDrivesAddedDevices() {
+        // The simulation thread doesn't tick during the test, ticks are advanced by the test
+        simulation = new Simulation(house, TimeUnit.DAYS.toMillis(1));
+        simulation.start();
+        house.addDevice("present", new Fireplace("present"));
+        simulation.attachToType(Actuator.class, new ActuatorSchedule(10, 10), 1);
+        house.addDevice("added", new Fireplace("added"));
+
+        advance(1);
+        simulation.close();
+        assertTrue(house.getDevice("present", Actuator.class).isEnabled());
+        assertTrue(house.getDevice("added", Actuator.class).isEnabled());
+    }
+
+    private void advance(int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            simulation.tick();
+        }
+    }
+}
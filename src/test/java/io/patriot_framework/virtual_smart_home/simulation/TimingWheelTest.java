@@ -0,0 +1,119 @@
+/*
+ * Copyright 2021 Patriot project
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ */
+
+package io.patriot_framework.virtual_smart_home.simulation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TimingWheelTest {
+
+    TimingWheel wheel = new TimingWheel();
+    List<Long> expirations = new ArrayList<>();
+
+    @Test
+    public void expiresAtDeadline() {
+        final long[] delays = {1, 63, 64, 65, 4095, 4096, 300_000, TimingWheel.MAX_DELAY + 100};
+        final List<RecordingTimeout> timeouts = new ArrayList<>();
+        for (long delay : delays) {
+            final RecordingTimeout timeout = new RecordingTimeout();
+            wheel.schedule(timeout, delay);
+            timeouts.add(timeout);
+        }
+        assertThat(wheel.size(), equalTo(delays.length));
+
+        while (wheel.size() > 0) {
+            wheel.advance();
+        }
+        for (int i = 0; i < delays.length; i++) {
+            assertThat(timeouts.get(i).expiredAt, equalTo(delays[i]));
+        }
+    }
+
+    @Test
+    public void expiresRandomDelaysInOrder() {
+        final Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            wheel.schedule(new RecordingTimeout(), 1 + random.nextInt(1_000_000));
+        }
+        while (wheel.size() > 0) {
+            wheel.advance();
+        }
+        assertThat(expirations.size(), equalTo(10_000));
+        for (int i = 1; i < expirations.size(); i++) {
+            assertTrue(expirations.get(i - 1) <= expirations.get(i));
+        }
+    }
+
+    @Test
+    public void cancelAndReschedule() {
+        final RecordingTimeout cancelled = new RecordingTimeout();
+        final RecordingTimeout rescheduled = new RecordingTimeout();
+        wheel.schedule(cancelled, 10);
+        wheel.schedule(rescheduled, 10);
+        assertTrue(wheel.cancel(cancelled));
+        assertFalse(wheel.cancel(cancelled));
+        wheel.schedule(rescheduled, 100);
+
+        for (int i = 0; i < 200; i++) {
+            wheel.advance();
+        }
+        assertFalse(cancelled.isScheduled());
+        assertThat(cancelled.expiredAt, equalTo(0L));
+        assertThat(rescheduled.expiredAt, equalTo(100L));
+        assertThat(wheel.size(), equalTo(0));
+    }
+
+    @Test
+    public void cancelFromExpiringTimeout() {
+        final RecordingTimeout victim = new RecordingTimeout();
+        final TimingWheel.Timeout killer = new TimingWheel.Timeout() {
+            @Override
+            protected void expire(long tick) {
+                wheel.cancel(victim);
+            }
+        };
+        wheel.schedule(victim, 5);
+        wheel.schedule(killer, 5);
+
+        for (int i = 0; i < 10; i++) {
+            wheel.advance();
+        }
+        // The victim shares the slot of the killer, it either expired first or was cancelled
+        assertFalse(victim.isScheduled());
+        assertTrue(expirations.size() <= 1);
+        assertThat(wheel.size(), equalTo(0));
+    }
+
+    private class RecordingTimeout extends TimingWheel.Timeout {
+
+        long expiredAt;
+
+        @Override
+        protected void expire(long tick) {
+            expiredAt = tick;
+            expirations.add(tick);
+        }
+    }
+}